@@ -11,8 +11,10 @@ dependencies {
     api(platform(rootProject.libs.junit.bom))
 
     constraints {
+        api(project(":helper-diagnostics"))
         api(project(":timing-annotations"))
         api(project(":timing-aop"))
+        api(project(":timing-micrometer"))
         api(project(":logging-annotations"))
         api(project(":logging-aop"))
         api(project(":resilience-annotations"))
@@ -21,6 +23,7 @@ dependencies {
         api(rootProject.libs.aspectj.weaver)
         api(rootProject.libs.spring.expression)
         api(rootProject.libs.slf4j.api)
+        api(rootProject.libs.micrometer.core)
     }
 }
 
@@ -0,0 +1,96 @@
+package com.dpk.helper.diagnostics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Overhead statistics of one aspect, per join point. Obtained from
+ * {@link OverheadRecorder#forAspect(String)}.
+ */
+public final class AspectOverhead {
+
+    /**
+     * The body of an advice, given a join point whose {@code proceed()} is timed.
+     */
+    @FunctionalInterface
+    public interface Advice {
+        Object apply(ProceedingJoinPoint pjp) throws Throwable;
+    }
+
+    private final String aspectName;
+    private final ConcurrentMap<Object, Site> sites = new ConcurrentHashMap<>();
+
+    AspectOverhead(String aspectName) {
+        this.aspectName = aspectName;
+    }
+
+    /**
+     * Runs {@code advice} with a {@link MeasuredJoinPoint} in place of
+     * {@code pjp}, and records the time it spent outside {@code proceed()}.
+     * Advice should only build {@code advice} once it has checked that
+     * overhead is being recorded, so the unmeasured path allocates nothing.
+     */
+    public Object measure(ProceedingJoinPoint pjp, Advice advice) throws Throwable {
+        MeasuredJoinPoint measured = new MeasuredJoinPoint(pjp);
+        long enteredNanos = System.nanoTime();
+        try {
+            return advice.apply(measured);
+        } finally {
+            long overhead = System.nanoTime() - enteredNanos - measured.getExcludedNanos();
+            site(pjp).record(Math.max(0, overhead));
+        }
+    }
+
+    private Site site(ProceedingJoinPoint pjp) {
+        Signature signature = pjp.getSignature();
+        Object key = signature instanceof MethodSignature method ? method.getMethod() : signature.toLongString();
+        Site site = sites.get(key);
+        if (site == null) {
+            site = sites.computeIfAbsent(key,
+                    k -> new Site(signature.getDeclaringType().getSimpleName() + "." + signature.getName()));
+        }
+        return site;
+    }
+
+    void collect(List<JoinPointOverhead> into) {
+        for (Site site : sites.values()) {
+            long calls = site.calls.sum();
+            if (calls > 0) {
+                into.add(new JoinPointOverhead(aspectName, site.name, calls, site.totalNanos.sum(),
+                        site.maxNanos.get()));
+            }
+        }
+    }
+
+    void reset() {
+        sites.clear();
+    }
+
+    private static final class Site {
+
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Site(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            calls.increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.dpk.helper.diagnostics;
+
+/**
+ * Overhead one aspect added to one join point.
+ *
+ * @param aspect     the aspect's name, e.g. {@code "TimedAspect"}
+ * @param joinPoint  the advised method as {@code ClassName.methodName}
+ * @param calls      advised calls measured
+ * @param totalNanos time spent in the advice outside {@code proceed()}, summed over all calls
+ * @param maxNanos   the largest overhead of a single call
+ */
+public record JoinPointOverhead(String aspect, String joinPoint, long calls, long totalNanos, long maxNanos) {
+
+    /**
+     * Mean overhead per call, in nanoseconds.
+     */
+    public long meanNanos() {
+        return calls == 0 ? 0 : totalNanos / calls;
+    }
+
+    @Override
+    public String toString() {
+        return aspect + " " + joinPoint + " calls=" + calls + " mean=" + meanNanos() + "ns max=" + maxNanos
+                + "ns total=" + totalNanos / 1_000 + "us";
+    }
+}
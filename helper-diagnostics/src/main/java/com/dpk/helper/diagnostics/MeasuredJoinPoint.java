@@ -0,0 +1,110 @@
+package com.dpk.helper.diagnostics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.SourceLocation;
+import org.aspectj.runtime.internal.AroundClosure;
+
+/**
+ * A {@link ProceedingJoinPoint} that delegates everything and adds up the
+ * time spent in {@code proceed()}, so {@link AspectOverhead} can leave it out.
+ * An advice may proceed several times, as a retry does; every call counts.
+ *
+ * <p>Time an advice spends waiting on purpose, such as a retry backoff, can
+ * be left out too with {@link #exclude(long)}.
+ */
+public final class MeasuredJoinPoint implements ProceedingJoinPoint {
+
+    private final ProceedingJoinPoint delegate;
+    private long excludedNanos;
+
+    MeasuredJoinPoint(ProceedingJoinPoint delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Leaves {@code nanos} out of the overhead of this call.
+     */
+    public void exclude(long nanos) {
+        excludedNanos += nanos;
+    }
+
+    long getExcludedNanos() {
+        return excludedNanos;
+    }
+
+    @Override
+    public Object proceed() throws Throwable {
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.proceed();
+        } finally {
+            excludedNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    @Override
+    public Object proceed(Object[] args) throws Throwable {
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.proceed(args);
+        } finally {
+            excludedNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    @Override
+    public void set$AroundClosure(AroundClosure arc) {
+        delegate.set$AroundClosure(arc);
+    }
+
+    @Override
+    public String toShortString() {
+        return delegate.toShortString();
+    }
+
+    @Override
+    public String toLongString() {
+        return delegate.toLongString();
+    }
+
+    @Override
+    public Object getThis() {
+        return delegate.getThis();
+    }
+
+    @Override
+    public Object getTarget() {
+        return delegate.getTarget();
+    }
+
+    @Override
+    public Object[] getArgs() {
+        return delegate.getArgs();
+    }
+
+    @Override
+    public Signature getSignature() {
+        return delegate.getSignature();
+    }
+
+    @Override
+    public SourceLocation getSourceLocation() {
+        return delegate.getSourceLocation();
+    }
+
+    @Override
+    public String getKind() {
+        return delegate.getKind();
+    }
+
+    @Override
+    public StaticPart getStaticPart() {
+        return delegate.getStaticPart();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
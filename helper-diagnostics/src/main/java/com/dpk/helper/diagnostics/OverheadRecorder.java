@@ -0,0 +1,71 @@
+package com.dpk.helper.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects how much time the helper aspects spend on their own work at each
+ * join point: everything an advice does before and after {@code proceed()},
+ * such as name resolution, tag building, argument rendering and reporting.
+ * Time spent inside {@code proceed()}, including inner aspects and the
+ * business method, is not counted.
+ *
+ * <p>Overhead measurement is opt-in. Hand one recorder to every aspect of
+ * interest:
+ *
+ * <pre>{@code
+ * OverheadRecorder overhead = new OverheadRecorder();
+ * timedAspect.setOverheadRecorder(overhead);
+ * loggingAspect.setOverheadRecorder(overhead);
+ * retryAspect.setOverheadRecorder(overhead);
+ *
+ * overhead.top(10).forEach(o -> log.info("{}", o));
+ * }</pre>
+ *
+ * <p>While enabled, each advised call allocates one {@link MeasuredJoinPoint}
+ * and reads the clock four times, so leave it off in normal operation.
+ */
+public class OverheadRecorder {
+
+    private final ConcurrentMap<String, AspectOverhead> aspects = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the per-join-point statistics of one aspect, creating them on first use.
+     */
+    public AspectOverhead forAspect(String aspectName) {
+        return aspects.computeIfAbsent(aspectName, AspectOverhead::new);
+    }
+
+    /**
+     * Returns the {@code limit} join points with the highest total overhead,
+     * across all aspects, highest first.
+     */
+    public List<JoinPointOverhead> top(int limit) {
+        List<JoinPointOverhead> all = snapshot();
+        return all.size() <= limit ? all : List.copyOf(all.subList(0, limit));
+    }
+
+    /**
+     * Returns every join point seen so far, highest total overhead first.
+     */
+    public List<JoinPointOverhead> snapshot() {
+        List<JoinPointOverhead> all = new ArrayList<>();
+        for (AspectOverhead aspect : aspects.values()) {
+            aspect.collect(all);
+        }
+        all.sort(Comparator.comparingLong(JoinPointOverhead::totalNanos).reversed());
+        return all;
+    }
+
+    /**
+     * Forgets all statistics collected so far.
+     */
+    public void reset() {
+        for (AspectOverhead aspect : aspects.values()) {
+            aspect.reset();
+        }
+    }
+}
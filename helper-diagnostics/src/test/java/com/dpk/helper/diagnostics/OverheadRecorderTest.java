@@ -0,0 +1,120 @@
+package com.dpk.helper.diagnostics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OverheadRecorderTest {
+
+    private final OverheadRecorder recorder = new OverheadRecorder();
+
+    @Test
+    void proceedTime_isNotOverhead() throws Throwable {
+        AspectOverhead aspect = recorder.forAspect("TestAspect");
+
+        Object result = aspect.measure(joinPoint("work", 30), ProceedingJoinPoint::proceed);
+
+        assertThat(result).isEqualTo("work");
+        assertThat(recorder.snapshot()).singleElement().satisfies(o -> {
+            assertThat(o.aspect()).isEqualTo("TestAspect");
+            assertThat(o.joinPoint()).isEqualTo("Service.work");
+            assertThat(o.calls()).isEqualTo(1);
+            assertThat(o.totalNanos()).isLessThan(30_000_000L);
+        });
+    }
+
+    @Test
+    void adviceTime_isOverhead() throws Throwable {
+        AspectOverhead aspect = recorder.forAspect("TestAspect");
+
+        aspect.measure(joinPoint("work", 0), pjp -> {
+            TimeUnit.MILLISECONDS.sleep(20);
+            return pjp.proceed();
+        });
+
+        JoinPointOverhead overhead = recorder.snapshot().get(0);
+        assertThat(overhead.totalNanos()).isGreaterThanOrEqualTo(20_000_000L);
+        assertThat(overhead.maxNanos()).isEqualTo(overhead.totalNanos());
+        assertThat(overhead.meanNanos()).isEqualTo(overhead.totalNanos());
+    }
+
+    @Test
+    void excludedTime_isNotOverhead() throws Throwable {
+        AspectOverhead aspect = recorder.forAspect("TestAspect");
+
+        aspect.measure(joinPoint("work", 0), pjp -> {
+            long start = System.nanoTime();
+            TimeUnit.MILLISECONDS.sleep(20);
+            ((MeasuredJoinPoint) pjp).exclude(System.nanoTime() - start);
+            return pjp.proceed();
+        });
+
+        assertThat(recorder.snapshot().get(0).totalNanos()).isLessThan(20_000_000L);
+    }
+
+    @Test
+    void failingAdvice_isStillRecorded() {
+        AspectOverhead aspect = recorder.forAspect("TestAspect");
+
+        assertThatThrownBy(() -> aspect.measure(joinPoint("work", 0), pjp -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(recorder.snapshot()).singleElement()
+                .satisfies(o -> assertThat(o.calls()).isEqualTo(1));
+    }
+
+    @Test
+    void top_ordersByTotalAcrossAspects() throws Throwable {
+        recorder.forAspect("Cheap").measure(joinPoint("cheap", 0), ProceedingJoinPoint::proceed);
+        recorder.forAspect("Costly").measure(joinPoint("costly", 0), pjp -> {
+            TimeUnit.MILLISECONDS.sleep(5);
+            return pjp.proceed();
+        });
+
+        assertThat(recorder.top(1)).extracting(JoinPointOverhead::aspect).containsExactly("Costly");
+        assertThat(recorder.top(5)).extracting(JoinPointOverhead::joinPoint)
+                .containsExactly("Service.costly", "Service.cheap");
+    }
+
+    @Test
+    void reset_forgetsStatistics() throws Throwable {
+        recorder.forAspect("TestAspect").measure(joinPoint("work", 0), ProceedingJoinPoint::proceed);
+
+        recorder.reset();
+
+        assertThat(recorder.snapshot()).isEmpty();
+    }
+
+    /**
+     * A join point for {@code Service.<name>()} whose {@code proceed()}
+     * sleeps {@code proceedMillis} and returns {@code name}.
+     */
+    private static ProceedingJoinPoint joinPoint(String name, long proceedMillis) {
+        Signature signature = (Signature) Proxy.newProxyInstance(OverheadRecorderTest.class.getClassLoader(),
+                new Class<?>[] {Signature.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getName" -> name;
+                    case "getDeclaringType" -> Service.class;
+                    case "toLongString" -> "Service." + name + "()";
+                    default -> null;
+                });
+        return (ProceedingJoinPoint) Proxy.newProxyInstance(OverheadRecorderTest.class.getClassLoader(),
+                new Class<?>[] {ProceedingJoinPoint.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getSignature" -> signature;
+                    case "proceed" -> {
+                        TimeUnit.MILLISECONDS.sleep(proceedMillis);
+                        yield name;
+                    }
+                    default -> null;
+                });
+    }
+
+    private static final class Service {
+    }
+}
@@ -1,5 +1,7 @@
 package com.dpk.helper.logging.aop;
 
+import com.dpk.helper.diagnostics.AspectOverhead;
+import com.dpk.helper.diagnostics.OverheadRecorder;
 import com.dpk.helper.logging.LogEntry;
 import com.dpk.helper.logging.LogExit;
 import com.dpk.helper.logging.LogLevel;
@@ -23,8 +25,28 @@ import java.util.StringJoiner;
 @Aspect
 public class LoggingAspect {
 
+    private AspectOverhead overhead;
+
+    /**
+     * Measures the time this aspect adds to each call, such as argument
+     * rendering and logging, in {@code overheadRecorder}. Pass {@code null}
+     * to disable. Configure before the aspect starts intercepting calls.
+     */
+    public void setOverheadRecorder(OverheadRecorder overheadRecorder) {
+        this.overhead = overheadRecorder == null ? null : overheadRecorder.forAspect("LoggingAspect");
+    }
+
     @Around("@annotation(logEntry) && @annotation(logExit)")
     public Object logEntryAndExit(ProceedingJoinPoint pjp, LogEntry logEntry, LogExit logExit) throws Throwable {
+        AspectOverhead overhead = this.overhead;
+        if (overhead != null) {
+            return overhead.measure(pjp, measured -> doLogEntryAndExit(measured, logEntry, logExit));
+        }
+        return doLogEntryAndExit(pjp, logEntry, logExit);
+    }
+
+    private Object doLogEntryAndExit(ProceedingJoinPoint pjp, LogEntry logEntry, LogExit logExit)
+            throws Throwable {
         Logger log = getLogger(pjp);
         Method method = ((MethodSignature) pjp.getSignature()).getMethod();
 
@@ -48,6 +70,14 @@ public class LoggingAspect {
 
     @Around("@annotation(logEntry) && !@annotation(com.dpk.helper.logging.LogExit)")
     public Object logEntryOnly(ProceedingJoinPoint pjp, LogEntry logEntry) throws Throwable {
+        AspectOverhead overhead = this.overhead;
+        if (overhead != null) {
+            return overhead.measure(pjp, measured -> doLogEntryOnly(measured, logEntry));
+        }
+        return doLogEntryOnly(pjp, logEntry);
+    }
+
+    private Object doLogEntryOnly(ProceedingJoinPoint pjp, LogEntry logEntry) throws Throwable {
         Logger log = getLogger(pjp);
         Method method = ((MethodSignature) pjp.getSignature()).getMethod();
         logMethodEntry(log, logEntry.level(), method, pjp.getArgs(), logEntry.message());
@@ -56,6 +86,14 @@ public class LoggingAspect {
 
     @Around("@annotation(logExit) && !@annotation(com.dpk.helper.logging.LogEntry)")
     public Object logExitOnly(ProceedingJoinPoint pjp, LogExit logExit) throws Throwable {
+        AspectOverhead overhead = this.overhead;
+        if (overhead != null) {
+            return overhead.measure(pjp, measured -> doLogExitOnly(measured, logExit));
+        }
+        return doLogExitOnly(pjp, logExit);
+    }
+
+    private Object doLogExitOnly(ProceedingJoinPoint pjp, LogExit logExit) throws Throwable {
         Logger log = getLogger(pjp);
         Method method = ((MethodSignature) pjp.getSignature()).getMethod();
 
@@ -75,6 +113,14 @@ public class LoggingAspect {
 
     @Around("@annotation(logPerf)")
     public Object logPerformance(ProceedingJoinPoint pjp, LogPerformance logPerf) throws Throwable {
+        AspectOverhead overhead = this.overhead;
+        if (overhead != null) {
+            return overhead.measure(pjp, measured -> doLogPerformance(measured, logPerf));
+        }
+        return doLogPerformance(pjp, logPerf);
+    }
+
+    private Object doLogPerformance(ProceedingJoinPoint pjp, LogPerformance logPerf) throws Throwable {
         Method method = ((MethodSignature) pjp.getSignature()).getMethod();
         Logger log = getLogger(pjp);
 
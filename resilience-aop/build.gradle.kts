@@ -1,5 +1,6 @@
 dependencies {
     api(project(":resilience-annotations"))
+    api(project(":helper-diagnostics"))
     implementation(libs.aspectj.rt)
     implementation(libs.aspectj.weaver)
     implementation(libs.slf4j.api)
@@ -1,5 +1,7 @@
 package com.dpk.helper.resilience.aop;
 
+import com.dpk.helper.diagnostics.AspectOverhead;
+import com.dpk.helper.diagnostics.OverheadRecorder;
 import com.dpk.helper.resilience.CircuitBreaker;
 import com.dpk.helper.resilience.CircuitBreakerOpenException;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -22,9 +24,27 @@ public class CircuitBreakerAspect {
     private static final Logger log = LoggerFactory.getLogger(CircuitBreakerAspect.class);
 
     private final ConcurrentMap<String, CircuitBreakerState> circuits = new ConcurrentHashMap<>();
+    private AspectOverhead overhead;
+
+    /**
+     * Measures the time this aspect adds to each call in
+     * {@code overheadRecorder}. Pass {@code null} to disable. Configure
+     * before the aspect starts intercepting calls.
+     */
+    public void setOverheadRecorder(OverheadRecorder overheadRecorder) {
+        this.overhead = overheadRecorder == null ? null : overheadRecorder.forAspect("CircuitBreakerAspect");
+    }
 
     @Around("@annotation(cb)")
     public Object handleCircuitBreaker(ProceedingJoinPoint pjp, CircuitBreaker cb) throws Throwable {
+        AspectOverhead overhead = this.overhead;
+        if (overhead != null) {
+            return overhead.measure(pjp, measured -> doHandleCircuitBreaker(measured, cb));
+        }
+        return doHandleCircuitBreaker(pjp, cb);
+    }
+
+    private Object doHandleCircuitBreaker(ProceedingJoinPoint pjp, CircuitBreaker cb) throws Throwable {
         String name = resolveName(cb, pjp);
         CircuitBreakerState state = circuits.computeIfAbsent(name,
                 k -> new CircuitBreakerState(cb.failureThreshold(), cb.resetTimeoutMs()));
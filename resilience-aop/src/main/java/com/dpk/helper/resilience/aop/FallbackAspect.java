@@ -1,5 +1,8 @@
 package com.dpk.helper.resilience.aop;
 
+import com.dpk.helper.diagnostics.AspectOverhead;
+import com.dpk.helper.diagnostics.MeasuredJoinPoint;
+import com.dpk.helper.diagnostics.OverheadRecorder;
 import com.dpk.helper.resilience.Fallback;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -21,8 +24,28 @@ public class FallbackAspect {
 
     private static final Logger log = LoggerFactory.getLogger(FallbackAspect.class);
 
+    private AspectOverhead overhead;
+
+    /**
+     * Measures the time this aspect adds to each call in
+     * {@code overheadRecorder}, not counting the fallback method itself.
+     * Pass {@code null} to disable. Configure before the aspect starts
+     * intercepting calls.
+     */
+    public void setOverheadRecorder(OverheadRecorder overheadRecorder) {
+        this.overhead = overheadRecorder == null ? null : overheadRecorder.forAspect("FallbackAspect");
+    }
+
     @Around("@annotation(fallback)")
     public Object handleFallback(ProceedingJoinPoint pjp, Fallback fallback) throws Throwable {
+        AspectOverhead overhead = this.overhead;
+        if (overhead != null) {
+            return overhead.measure(pjp, measured -> doHandleFallback(measured, fallback));
+        }
+        return doHandleFallback(pjp, fallback);
+    }
+
+    private Object doHandleFallback(ProceedingJoinPoint pjp, Fallback fallback) throws Throwable {
         try {
             return pjp.proceed();
         } catch (Throwable t) {
@@ -45,10 +68,15 @@ public class FallbackAspect {
                                         pjp.getTarget().getClass().getSimpleName(), methodName), t);
             }
 
+            long fallbackStart = System.nanoTime();
             try {
                 return invokeFallback(pjp, fallbackMethod, t);
             } catch (InvocationTargetException ite) {
                 throw ite.getCause();
+            } finally {
+                if (pjp instanceof MeasuredJoinPoint measured) {
+                    measured.exclude(System.nanoTime() - fallbackStart);
+                }
             }
         }
     }
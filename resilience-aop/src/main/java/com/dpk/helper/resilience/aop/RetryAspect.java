@@ -1,5 +1,8 @@
 package com.dpk.helper.resilience.aop;
 
+import com.dpk.helper.diagnostics.AspectOverhead;
+import com.dpk.helper.diagnostics.MeasuredJoinPoint;
+import com.dpk.helper.diagnostics.OverheadRecorder;
 import com.dpk.helper.resilience.Retry;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -16,8 +19,28 @@ public class RetryAspect {
 
     private static final Logger log = LoggerFactory.getLogger(RetryAspect.class);
 
+    private AspectOverhead overhead;
+
+    /**
+     * Measures the time this aspect adds to each call in
+     * {@code overheadRecorder}, not counting backoff delays. Pass
+     * {@code null} to disable. Configure before the aspect starts
+     * intercepting calls.
+     */
+    public void setOverheadRecorder(OverheadRecorder overheadRecorder) {
+        this.overhead = overheadRecorder == null ? null : overheadRecorder.forAspect("RetryAspect");
+    }
+
     @Around("@annotation(retry)")
     public Object retryMethod(ProceedingJoinPoint pjp, Retry retry) throws Throwable {
+        AspectOverhead overhead = this.overhead;
+        if (overhead != null) {
+            return overhead.measure(pjp, measured -> doRetryMethod(measured, retry));
+        }
+        return doRetryMethod(pjp, retry);
+    }
+
+    private Object doRetryMethod(ProceedingJoinPoint pjp, Retry retry) throws Throwable {
         int maxAttempts = retry.maxAttempts();
         long delay = retry.backoff().delay();
         double multiplier = retry.backoff().multiplier();
@@ -41,7 +64,11 @@ public class RetryAspect {
                             attempt, maxAttempts, methodName,
                             t.getClass().getSimpleName(), t.getMessage());
 
+                    long sleepStart = System.nanoTime();
                     Thread.sleep(delay);
+                    if (pjp instanceof MeasuredJoinPoint measured) {
+                        measured.exclude(System.nanoTime() - sleepStart);
+                    }
                     delay = computeNextDelay(delay, multiplier, maxDelay);
                 }
             }
@@ -1,7 +1,9 @@
 package com.dpk.helper.resilience.aop;
 
+import com.dpk.helper.diagnostics.OverheadRecorder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
@@ -84,6 +86,27 @@ class RetryAspectTest {
         assertThat(service.getCallCount()).isEqualTo(1);
     }
 
+    @Test
+    void overheadRecorder_excludesBackoff() {
+        OverheadRecorder overhead = new OverheadRecorder();
+        RetryAspect aspect = new RetryAspect();
+        aspect.setOverheadRecorder(overhead);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new RetryTestService());
+        factory.addAspect(aspect);
+        RetryTestService measured = factory.getProxy();
+
+        measured.setFailUntilAttempt(2);
+        assertThat(measured.retryWithBackoff()).isEqualTo("success");
+
+        // Backoff sleeps 10ms + 20ms; none of it is the aspect's own work
+        assertThat(overhead.snapshot()).singleElement().satisfies(o -> {
+            assertThat(o.aspect()).isEqualTo("RetryAspect");
+            assertThat(o.joinPoint()).isEqualTo("RetryTestService.retryWithBackoff");
+            assertThat(o.calls()).isEqualTo(1);
+            assertThat(o.totalNanos()).isLessThan(10_000_000L);
+        });
+    }
+
     @Test
     void computeNextDelay_withMultiplier() {
         assertThat(RetryAspect.computeNextDelay(100, 2.0, 0)).isEqualTo(200);
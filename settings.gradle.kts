@@ -1,8 +1,8 @@
 rootProject.name = "java-helper-libs-dpk"
 
 include(
-    "helper-bom",
-    "timing-annotations", "timing-aop",
+    "helper-bom", "helper-diagnostics",
+    "timing-annotations", "timing-aop", "timing-micrometer",
     "logging-annotations", "logging-aop",
     "resilience-annotations", "resilience-aop"
 )
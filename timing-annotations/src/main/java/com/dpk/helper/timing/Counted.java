@@ -0,0 +1,29 @@
+package com.dpk.helper.timing;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Counts invocations of a method by outcome, without timing them.
+ *
+ * <p>Each call only increments a counter. The AOP aspect reports the counts
+ * accumulated since its previous report at a fixed interval via the configured
+ * {@link com.dpk.helper.timing.aop.MetricsReporter}, so per-call cost stays far
+ * below that of {@link Timed}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Counted {
+
+    /**
+     * Metric name. Defaults to {@code ClassName.methodName} if empty.
+     */
+    String value() default "";
+
+    /**
+     * Static key-value tags to attach to the metric.
+     */
+    Tag[] tags() default {};
+}
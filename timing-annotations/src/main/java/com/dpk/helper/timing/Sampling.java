@@ -0,0 +1,43 @@
+package com.dpk.helper.timing;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Configures sampling for {@link Timed} and {@link TimedClass}.
+ *
+ * <p>Invocations that are not sampled run without any timing overhead.
+ * Sampled invocations are reported with a weight (the inverse of the
+ * sampling probability) so that counts can be scaled back up.
+ *
+ * <pre>{@code
+ * @Timed(sampling = @Sampling(mode = SamplingMode.ONE_IN_N, oneIn = 100))
+ * public int lookup(String key) { ... }
+ * }</pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface Sampling {
+
+    /**
+     * The sampling strategy. Defaults to timing every invocation.
+     */
+    SamplingMode mode() default SamplingMode.ALWAYS;
+
+    /**
+     * Probability (0-1] of timing an invocation. Used by {@link SamplingMode#PROBABILITY}.
+     */
+    double probability() default 1.0;
+
+    /**
+     * Time one invocation in this many. Used by {@link SamplingMode#ONE_IN_N}.
+     */
+    int oneIn() default 1;
+
+    /**
+     * Upper bound on timed invocations per second for the metric.
+     * Used by {@link SamplingMode#RATE_LIMITED}.
+     */
+    int maxPerSecond() default 100;
+}
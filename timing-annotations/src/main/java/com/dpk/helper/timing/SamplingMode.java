@@ -0,0 +1,22 @@
+package com.dpk.helper.timing;
+
+/**
+ * How {@link Sampling} decides which invocations are timed.
+ */
+public enum SamplingMode {
+
+    /** Time every invocation. */
+    ALWAYS,
+
+    /** Time each invocation with probability {@link Sampling#probability()}. */
+    PROBABILITY,
+
+    /** Time one in every {@link Sampling#oneIn()} invocations on each thread. */
+    ONE_IN_N,
+
+    /**
+     * Time at most {@link Sampling#maxPerSecond()} invocations per second per
+     * metric, adapting the sampling probability to the observed call rate.
+     */
+    RATE_LIMITED
+}
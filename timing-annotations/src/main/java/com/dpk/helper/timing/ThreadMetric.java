@@ -0,0 +1,27 @@
+package com.dpk.helper.timing;
+
+/**
+ * Per-thread resource counters that {@link Timed#threadMetrics()} can capture
+ * alongside wall-clock duration. Each is reported as the difference between
+ * the counter's value when the method is entered and when it returns.
+ */
+public enum ThreadMetric {
+
+    /** CPU time consumed by the calling thread, in nanoseconds. */
+    CPU_TIME,
+
+    /** Bytes allocated on the heap by the calling thread. */
+    ALLOCATED_BYTES,
+
+    /**
+     * Time the calling thread spent blocked entering a monitor, in nanoseconds.
+     * Enables JVM thread contention monitoring on first use.
+     */
+    BLOCKED_TIME,
+
+    /**
+     * Time the calling thread spent in {@code Object.wait}, {@code LockSupport.park}
+     * and similar, in nanoseconds. Enables JVM thread contention monitoring on first use.
+     */
+    WAITED_TIME
+}
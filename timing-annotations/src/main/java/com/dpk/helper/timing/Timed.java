@@ -39,4 +39,44 @@ public @interface Timed {
      * Whether to report timing even when the method throws an exception.
      */
     boolean reportExceptions() default true;
+
+    /**
+     * Sampling strategy. By default every invocation is timed.
+     */
+    Sampling sampling() default @Sampling;
+
+    /**
+     * Per-thread resource usage to report in addition to duration, e.g. CPU
+     * time or allocated bytes. Only the synchronous part of the call on the
+     * calling thread is measured; nothing is captured on virtual threads.
+     */
+    ThreadMetric[] threadMetrics() default {};
+
+    /**
+     * Whether a lazily consumed result is timed until the caller has consumed
+     * it. Applies to methods declared to return {@code java.util.stream.Stream},
+     * {@code Iterator} or {@code Iterable}: the result is wrapped and reported
+     * on exhaustion or close, together with the element count and the time to
+     * the first element. A result that is abandoned without being exhausted
+     * or closed is never reported.
+     */
+    boolean lazyResult() default false;
+
+    /**
+     * SpEL expressions summarizing the arguments of a slow call, in the same
+     * {@code "key=expression"} format as {@link #dynamicTags()}, e.g.
+     * {@code "items=#order.items.size()"}. Evaluated only for calls kept by a
+     * {@code SlowCallReservoir}, so they may be more detailed than tags.
+     */
+    String[] exemplarArgs() default {};
+
+    /**
+     * Interval at which callers intend to invoke this method, in nanoseconds,
+     * for methods driven at a fixed rate such as load generators or scheduled
+     * workers. When a call takes longer, the calls that should have started
+     * during it were held back, and an aggregating reporter back-fills them
+     * into a corrected distribution, reported next to the measured one.
+     * {@code 0} (the default) disables the correction.
+     */
+    long expectedIntervalNanos() default 0;
 }
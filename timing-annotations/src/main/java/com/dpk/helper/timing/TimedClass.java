@@ -25,4 +25,9 @@ public @interface TimedClass {
      * Static key-value tags applied to all methods in this class.
      */
     Tag[] tags() default {};
+
+    /**
+     * Sampling strategy. By default every invocation is timed.
+     */
+    Sampling sampling() default @Sampling;
 }
@@ -0,0 +1,34 @@
+package com.dpk.helper.timing;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Times the tasks run by an executor: how long each waited to start, how
+ * long it ran, and how many tasks were waiting when it was submitted.
+ *
+ * <p>On a method, the returned {@code Executor} or {@code ExecutorService} is
+ * replaced by a timing wrapper. On a field, reads of the field return the
+ * wrapper; this needs AspectJ weaving, since Spring AOP proxies cannot
+ * intercept field access.
+ *
+ * <p>Each task reports {@code <name>.wait} and {@code <name>.run} via the
+ * configured {@link com.dpk.helper.timing.aop.MetricsReporter}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.FIELD})
+public @interface TimedExecutor {
+
+    /**
+     * Metric name prefix. Defaults to {@code ClassName.methodName} or
+     * {@code ClassName.fieldName} if empty.
+     */
+    String value() default "";
+
+    /**
+     * Static key-value tags to attach to both metrics.
+     */
+    Tag[] tags() default {};
+}
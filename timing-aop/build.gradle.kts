@@ -1,5 +1,10 @@
+plugins {
+    alias(libs.plugins.jmh)
+}
+
 dependencies {
     api(project(":timing-annotations"))
+    api(project(":helper-diagnostics"))
     implementation(libs.aspectj.rt)
     implementation(libs.aspectj.weaver)
     implementation(libs.slf4j.api)
@@ -9,3 +14,8 @@ dependencies {
     testImplementation(libs.spring.test)
     testRuntimeOnly(libs.slf4j.simple)
 }
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
+}
@@ -0,0 +1,55 @@
+package com.dpk.helper.timing.aop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link OpenMetricsExporter} scrape as the number of series
+ * grows. Time per scrape should grow linearly with {@code series}, and
+ * {@code -prof gc} should show no allocation per scrape once the buffer
+ * and label cache are warm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenMetricsScrapeBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int series;
+
+    private OpenMetricsExporter exporter;
+
+    @Setup
+    public void setUp() {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        MeterId site = MeterId.of("bench.method", Map.of("env", "prod"), "tenant");
+        for (int i = 0; i < series; i++) {
+            MeterId id = site.withDynamicValues("tenant-" + i);
+            for (int j = 0; j < 100; j++) {
+                aggregator.report(id, 100_000L * (j + 1), null);
+            }
+        }
+        exporter = new OpenMetricsExporter(aggregator);
+    }
+
+    @Benchmark
+    public void scrape() throws Exception {
+        exporter.writeTo(OutputStream.nullOutputStream());
+    }
+}
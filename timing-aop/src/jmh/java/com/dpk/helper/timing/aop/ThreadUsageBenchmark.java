@@ -0,0 +1,89 @@
+package com.dpk.helper.timing.aop;
+
+import com.dpk.helper.timing.ThreadMetric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-invocation cost of {@link com.dpk.helper.timing.Timed#threadMetrics()}.
+ * Every benchmark makes the two {@code System.nanoTime()} calls of a timed
+ * invocation, and the probe benchmarks also read and report their thread
+ * counters between them, so each result is a total and
+ * {@link #nanoTimeOnly()} is the baseline.
+ *
+ * <p>Run with {@code ./gradlew :timing-aop:jmh -Pjmh.includes=ThreadUsageBenchmark},
+ * ideally with {@code -prof gc} to see the probe's own allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreadUsageBenchmark {
+
+    private final MeterId id = MeterId.of("bench", Map.of());
+
+    private ThreadUsageProbe cpuTime;
+    private ThreadUsageProbe allocatedBytes;
+    private ThreadUsageProbe cpuAndAllocated;
+    private ThreadUsageProbe blockedAndWaited;
+    private MetricsReporter reporter;
+
+    @Setup
+    public void setUp() {
+        cpuTime = ThreadUsageProbe.of(new ThreadMetric[] {ThreadMetric.CPU_TIME}, "bench");
+        allocatedBytes = ThreadUsageProbe.of(new ThreadMetric[] {ThreadMetric.ALLOCATED_BYTES}, "bench");
+        cpuAndAllocated = ThreadUsageProbe.of(
+                new ThreadMetric[] {ThreadMetric.CPU_TIME, ThreadMetric.ALLOCATED_BYTES}, "bench");
+        blockedAndWaited = ThreadUsageProbe.of(
+                new ThreadMetric[] {ThreadMetric.BLOCKED_TIME, ThreadMetric.WAITED_TIME}, "bench");
+        reporter = (name, duration, tags, exception) -> { };
+    }
+
+    @Benchmark
+    public long nanoTimeOnly() {
+        long start = System.nanoTime();
+        return System.nanoTime() - start;
+    }
+
+    @Benchmark
+    public void cpuTime(Blackhole bh) {
+        measure(cpuTime, bh);
+    }
+
+    @Benchmark
+    public void allocatedBytes(Blackhole bh) {
+        measure(allocatedBytes, bh);
+    }
+
+    @Benchmark
+    public void cpuTimeAndAllocatedBytes(Blackhole bh) {
+        measure(cpuAndAllocated, bh);
+    }
+
+    @Benchmark
+    public void blockedAndWaitedTime(Blackhole bh) {
+        measure(blockedAndWaited, bh);
+    }
+
+    private void measure(ThreadUsageProbe probe, Blackhole bh) {
+        long startNanos = System.nanoTime();
+        long[] start = probe.begin();
+        bh.consume(start);
+        probe.end(start, id, 1.0, reporter);
+        bh.consume(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,104 @@
+package com.dpk.helper.timing.aop;
+
+import com.dpk.helper.timing.Tag;
+import com.dpk.helper.timing.Timed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares per-call metadata resolution in {@link TimedAspect}: the original
+ * path (name concatenation, fresh tag map, SpEL parse and evaluation context
+ * on every call) against the cached {@link TimedMethodDescriptor}.
+ *
+ * <p>Run with {@code ./gradlew :timing-aop:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimedMetadataBenchmark {
+
+    private final ExpressionParser spelParser = new SpelExpressionParser();
+    private final ConcurrentMap<Method, TimedMethodDescriptor> descriptors = new ConcurrentHashMap<>();
+
+    private Method method;
+    private Timed timed;
+    private Sample target;
+    private Object[] args;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        method = Sample.class.getMethod("handle", String.class, int.class);
+        timed = method.getAnnotation(Timed.class);
+        target = new Sample();
+        args = new Object[] {"user-42", 7};
+    }
+
+    @Benchmark
+    public void legacyPerCallResolution(Blackhole bh) {
+        String metricName = timed.value().isEmpty()
+                ? method.getDeclaringClass().getSimpleName() + "." + method.getName()
+                : timed.value();
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (Tag tag : timed.tags()) {
+            tags.put(tag.key(), tag.value());
+        }
+
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        context.setVariable("args", args);
+        context.setVariable("target", target);
+        context.setVariable("userId", args[0]);
+        context.setVariable("count", args[1]);
+
+        for (String dynamicTag : timed.dynamicTags()) {
+            int eqIdx = dynamicTag.indexOf('=');
+            String key = dynamicTag.substring(0, eqIdx).trim();
+            String expression = dynamicTag.substring(eqIdx + 1).trim();
+            Object value = spelParser.parseExpression(expression).getValue(context);
+            tags.put(key, value != null ? value.toString() : "null");
+        }
+        bh.consume(metricName);
+        bh.consume(tags);
+    }
+
+    @Benchmark
+    public void cachedDescriptorResolution(Blackhole bh) {
+        TimedMethodDescriptor descriptor = descriptors.get(method);
+        if (descriptor == null) {
+            descriptor = descriptors.computeIfAbsent(method,
+                    m -> TimedMethodDescriptor.forTimed(m, m.getDeclaringClass(), timed));
+        }
+        bh.consume(descriptor.resolveId(target, args));
+    }
+
+    public static class Sample {
+
+        @Timed(tags = {@Tag(key = "env", value = "bench")},
+                dynamicTags = {"userId=#args[0]", "count=#count"})
+        public String handle(String userId, int count) {
+            return userId + count;
+        }
+    }
+}
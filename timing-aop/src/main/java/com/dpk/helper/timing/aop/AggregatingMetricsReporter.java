@@ -0,0 +1,292 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link MetricsReporter} that aggregates measurements in memory instead of
+ * forwarding each one.
+ *
+ * <p>Every metric name and tag set gets its own {@link LatencyHistogram}, so
+ * memory grows with the number of distinct series, not with call volume.
+ * Series are keyed by {@link MeterId}; for calls from {@link TimedAspect}
+ * the lookup is an identity match on a pre-hashed key, and recording into
+ * an existing series is lock-free and does not allocate.
+ *
+ * <p>Series reported with an expected interval (see
+ * {@link com.dpk.helper.timing.Timed#expectedIntervalNanos()}) keep a second
+ * histogram, corrected for coordinated omission: a call that took longer
+ * than the interval held back the calls due while it ran, and those are
+ * back-filled with the delay they would have seen. Snapshots carry both
+ * distributions, so the measured and the corrected percentiles can be
+ * compared.
+ *
+ * <p>Use {@link #snapshot()} for cumulative totals, or {@link #intervalSnapshot()}
+ * to read and advance a reporting interval (one interval consumer per reporter).
+ */
+public class AggregatingMetricsReporter implements MetricsReporter {
+
+    public static final double[] DEFAULT_PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private final int precisionBits;
+    private final int stripes;
+    private final double[] percentiles;
+
+    private final ConcurrentMap<MeterId, Series> series = new ConcurrentHashMap<>();
+
+    public AggregatingMetricsReporter() {
+        this(LatencyHistogram.DEFAULT_PRECISION_BITS, 2, DEFAULT_PERCENTILES);
+    }
+
+    public AggregatingMetricsReporter(double... percentiles) {
+        this(LatencyHistogram.DEFAULT_PRECISION_BITS, 2, percentiles);
+    }
+
+    /**
+     * @param precisionBits significant bits per recorded value, see {@link LatencyHistogram}
+     * @param stripes       bucket stripes per histogram; more stripes reduce contention and cost memory
+     * @param percentiles   percentiles (0-100) to compute in each snapshot
+     */
+    public AggregatingMetricsReporter(int precisionBits, int stripes, double... percentiles) {
+        for (double percentile : percentiles) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+            }
+        }
+        this.precisionBits = precisionBits;
+        this.stripes = stripes;
+        this.percentiles = percentiles.clone();
+    }
+
+    @Override
+    public void report(String metricName, long durationNanos, Map<String, String> tags, Throwable exception) {
+        report(MeterId.of(metricName, tags), durationNanos, exception);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception) {
+        seriesFor(id).record(durationNanos, exception, 1);
+    }
+
+    /**
+     * Records the measurement {@code sampleWeight} times. Fractional weights
+     * are rounded stochastically, so totals stay unbiased on average.
+     */
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight) {
+        long count = Sampler.toCount(sampleWeight);
+        if (count > 0) {
+            seriesFor(id).record(durationNanos, exception, count);
+        }
+    }
+
+    /**
+     * Records the measurement like {@link #report(MeterId, long, Throwable, double)},
+     * and into the series' corrected histogram together with the calls it
+     * held back.
+     */
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight,
+                       long expectedIntervalNanos) {
+        long count = Sampler.toCount(sampleWeight);
+        if (count > 0) {
+            Series s = seriesFor(id);
+            s.record(durationNanos, exception, count);
+            s.corrected().recordWithExpectedInterval(durationNanos, count, expectedIntervalNanos);
+        }
+    }
+
+    /**
+     * Adds {@code value}, scaled by {@code sampleWeight}, to the series' total
+     * for {@code measurement}.
+     */
+    @Override
+    public void reportValue(MeterId id, Measurement measurement, long value, double sampleWeight) {
+        seriesFor(id).add(measurement, Math.round(value * sampleWeight));
+    }
+
+    /**
+     * Returns cumulative data for every series seen so far.
+     */
+    public List<MetricSnapshot> snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * Returns data recorded since the previous call to this method.
+     * Series without activity in the interval are included with zero counts.
+     */
+    public List<MetricSnapshot> intervalSnapshot() {
+        return collect(true);
+    }
+
+    /**
+     * Visits every series' live counters without building snapshots, for
+     * exporters that render straight from them.
+     */
+    void forEachSeries(SeriesVisitor visitor) {
+        for (Series s : series.values()) {
+            visitor.visit(s.id, s.histogram, s.errors.sum(), s.cancellations.sum());
+        }
+    }
+
+    /**
+     * Visits the corrected histogram of every series that has one.
+     */
+    void forEachCorrectedSeries(BiConsumer<MeterId, LatencyHistogram> visitor) {
+        for (Series s : series.values()) {
+            LatencyHistogram corrected = s.corrected;
+            if (corrected != null) {
+                visitor.accept(s.id, corrected);
+            }
+        }
+    }
+
+    /**
+     * Receives one series from {@link #forEachSeries(SeriesVisitor)}.
+     */
+    interface SeriesVisitor {
+        void visit(MeterId id, LatencyHistogram histogram, long errorCount, long cancelledCount);
+    }
+
+    private Series seriesFor(MeterId id) {
+        Series s = series.get(id);
+        if (s == null) {
+            s = series.computeIfAbsent(id, k -> new Series(k, precisionBits, stripes));
+        }
+        return s;
+    }
+
+    private List<MetricSnapshot> collect(boolean interval) {
+        List<MetricSnapshot> result = new ArrayList<>(series.size());
+        for (Series s : series.values()) {
+            result.add(interval ? s.intervalSnapshot(percentiles) : s.snapshot(percentiles));
+        }
+        return result;
+    }
+
+    private static final class Series {
+
+        private static final Measurement[] MEASUREMENTS = Measurement.values();
+
+        private final MeterId id;
+        private final int precisionBits;
+        private final int stripes;
+        private final LatencyHistogram histogram;
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder cancellations = new LongAdder();
+        private long lastErrors;
+        private long lastCancellations;
+        // Created on first use; most series never see extra measurements
+        private final AtomicReferenceArray<LongAdder> totals = new AtomicReferenceArray<>(MEASUREMENTS.length);
+        private final long[] lastTotals = new long[MEASUREMENTS.length];
+        // Created on first use; only series with an expected interval have one
+        private volatile LatencyHistogram corrected;
+
+        Series(MeterId id, int precisionBits, int stripes) {
+            this.id = id;
+            this.precisionBits = precisionBits;
+            this.stripes = stripes;
+            this.histogram = newHistogram();
+        }
+
+        LatencyHistogram corrected() {
+            LatencyHistogram h = corrected;
+            if (h == null) {
+                synchronized (this) {
+                    h = corrected;
+                    if (h == null) {
+                        h = newHistogram();
+                        corrected = h;
+                    }
+                }
+            }
+            return h;
+        }
+
+        private LatencyHistogram newHistogram() {
+            return new LatencyHistogram(precisionBits, LatencyHistogram.DEFAULT_HIGHEST_TRACKABLE_NANOS, stripes);
+        }
+
+        void record(long durationNanos, Throwable exception, long count) {
+            histogram.record(durationNanos, count);
+            switch (Outcome.of(exception)) {
+                case FAILURE -> errors.add(count);
+                case CANCELLED -> cancellations.add(count);
+                case SUCCESS -> { }
+            }
+        }
+
+        void add(Measurement measurement, long value) {
+            int index = measurement.ordinal();
+            LongAdder total = totals.get(index);
+            if (total == null) {
+                totals.compareAndSet(index, null, new LongAdder());
+                total = totals.get(index);
+            }
+            total.add(value);
+        }
+
+        MetricSnapshot snapshot(double[] percentiles) {
+            Map<Measurement, Long> currentTotals = new EnumMap<>(Measurement.class);
+            for (int i = 0; i < MEASUREMENTS.length; i++) {
+                LongAdder total = totals.get(i);
+                if (total != null) {
+                    currentTotals.put(MEASUREMENTS[i], total.sum());
+                }
+            }
+            LatencyHistogram c = corrected;
+            return toMetricSnapshot(histogram.snapshot(), c == null ? null : c.snapshot(), errors.sum(),
+                    cancellations.sum(), currentTotals, percentiles);
+        }
+
+        synchronized MetricSnapshot intervalSnapshot(double[] percentiles) {
+            HistogramSnapshot interval = histogram.intervalSnapshot();
+            LatencyHistogram c = corrected;
+            HistogramSnapshot correctedInterval = c == null ? null : c.intervalSnapshot();
+            long currentErrors = errors.sum();
+            long currentCancellations = cancellations.sum();
+            long intervalErrors = currentErrors - lastErrors;
+            long intervalCancellations = currentCancellations - lastCancellations;
+            lastErrors = currentErrors;
+            lastCancellations = currentCancellations;
+
+            Map<Measurement, Long> intervalTotals = new EnumMap<>(Measurement.class);
+            for (int i = 0; i < MEASUREMENTS.length; i++) {
+                LongAdder total = totals.get(i);
+                if (total != null) {
+                    long current = total.sum();
+                    intervalTotals.put(MEASUREMENTS[i], current - lastTotals[i]);
+                    lastTotals[i] = current;
+                }
+            }
+            return toMetricSnapshot(interval, correctedInterval, intervalErrors, intervalCancellations, intervalTotals,
+                    percentiles);
+        }
+
+        private MetricSnapshot toMetricSnapshot(HistogramSnapshot h, HistogramSnapshot corrected, long errorCount,
+                                                long cancelledCount, Map<Measurement, Long> measurementTotals,
+                                                double[] percentiles) {
+            return new MetricSnapshot(id, h.getCount(), errorCount, cancelledCount, h.getSum(), h.getMax(),
+                    percentileValues(h, percentiles), h, Collections.unmodifiableMap(measurementTotals),
+                    corrected, corrected == null ? Map.of() : percentileValues(corrected, percentiles));
+        }
+
+        private static Map<Double, Long> percentileValues(HistogramSnapshot h, double[] percentiles) {
+            Map<Double, Long> values = new LinkedHashMap<>();
+            for (double percentile : percentiles) {
+                values.put(percentile, h.getValueAtPercentile(percentile));
+            }
+            return Collections.unmodifiableMap(values);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.dpk.helper.timing.aop;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link MetricsReporter} decorator that takes reporting off the caller's thread.
+ *
+ * <p>Each measurement (its {@link MeterId}, duration, outcome and sample weight) is written
+ * into a preallocated slot of a bounded
+ * multi-producer/single-consumer ring buffer. Claiming a slot costs one CAS
+ * and no allocation. A daemon thread drains the buffer and hands the
+ * measurements to a {@link BatchMetricsReporter} in batches.
+ *
+ * <p>When the buffer is full, the {@link OverflowPolicy} decides whether the
+ * measurement is dropped (counted in {@link #getDroppedCount()}) or the caller
+ * waits for space. Call {@link #close()} to flush and stop the drain thread.
+ */
+public class AsyncMetricsReporter implements MetricsReporter, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncMetricsReporter.class);
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * What to do with a measurement when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** Discard the measurement and count it as dropped. */
+        DROP,
+        /** Wait until the drain thread frees a slot. */
+        BLOCK
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final BatchMetricsReporter delegate;
+    private final OverflowPolicy overflowPolicy;
+    private final int capacity;
+    private final int mask;
+
+    // Slot sequence numbers (Vyukov bounded queue): a slot is free for
+    // producer position p when its sequence is p, and readable when it is p + 1.
+    private final AtomicLongArray sequences;
+    private final MeterId[] ids;
+    private final long[] durations;
+    private final double[] weights;
+    private final Throwable[] exceptions;
+    private final Measurement[] measurements;
+    private final long[] intervals;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final LongAdder dropped = new LongAdder();
+
+    private final MetricBatch batch;
+    private final Thread drainThread;
+    private volatile boolean running = true;
+
+    public AsyncMetricsReporter(MetricsReporter delegate) {
+        this(BatchMetricsReporter.of(delegate), DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, OverflowPolicy.DROP);
+    }
+
+    public AsyncMetricsReporter(BatchMetricsReporter delegate) {
+        this(delegate, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, OverflowPolicy.DROP);
+    }
+
+    /**
+     * @param delegate       receives drained measurements on the drain thread
+     * @param capacity       ring buffer size; rounded up to a power of two
+     * @param batchSize      maximum measurements per {@code reportBatch} call
+     * @param overflowPolicy behaviour when the buffer is full
+     */
+    public AsyncMetricsReporter(BatchMetricsReporter delegate, int capacity, int batchSize,
+                                OverflowPolicy overflowPolicy) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2: " + capacity);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.delegate = delegate;
+        this.overflowPolicy = overflowPolicy;
+        this.capacity = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.mask = this.capacity - 1;
+
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.ids = new MeterId[this.capacity];
+        this.durations = new long[this.capacity];
+        this.weights = new double[this.capacity];
+        this.exceptions = new Throwable[this.capacity];
+        this.measurements = new Measurement[this.capacity];
+        this.intervals = new long[this.capacity];
+
+        this.batch = new MetricBatch(batchSize);
+        this.drainThread = new Thread(this::drainLoop, "timing-async-reporter");
+        this.drainThread.setDaemon(true);
+        this.drainThread.start();
+    }
+
+    @Override
+    public void report(String metricName, long durationNanos, Map<String, String> tags, Throwable exception) {
+        report(MeterId.of(metricName, tags), durationNanos, exception);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception) {
+        report(id, durationNanos, exception, 1.0);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight) {
+        enqueue(id, null, durationNanos, exception, sampleWeight, 0);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight,
+                       long expectedIntervalNanos) {
+        enqueue(id, null, durationNanos, exception, sampleWeight, expectedIntervalNanos);
+    }
+
+    /**
+     * Queues the value in its own slot, so it counts against the capacity like a duration.
+     */
+    @Override
+    public void reportValue(MeterId id, Measurement measurement, long value, double sampleWeight) {
+        enqueue(id, measurement, value, null, sampleWeight, 0);
+    }
+
+    /**
+     * Number of measurements accepted into the buffer.
+     */
+    public long getEnqueuedCount() {
+        return tail.get();
+    }
+
+    /**
+     * Number of measurements handed to the delegate.
+     */
+    public long getDrainedCount() {
+        return head;
+    }
+
+    /**
+     * Number of measurements discarded because the buffer was full or closed.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Flushes buffered measurements and stops the drain thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(drainThread);
+        try {
+            drainThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(MeterId id, Measurement measurement, long value, Throwable exception, double sampleWeight,
+                         long expectedIntervalNanos) {
+        long position = claim();
+        if (position < 0) {
+            dropped.increment();
+            return;
+        }
+        int index = (int) (position & mask);
+        ids[index] = id;
+        measurements[index] = measurement;
+        durations[index] = value;
+        weights[index] = sampleWeight;
+        exceptions[index] = exception;
+        intervals[index] = expectedIntervalNanos;
+        sequences.lazySet(index, position + 1);
+    }
+
+    /**
+     * Returns the claimed producer position, or -1 if the measurement must be dropped.
+     */
+    private long claim() {
+        long position = tail.get();
+        while (true) {
+            if (!running) {
+                return -1;
+            }
+            long sequence = sequences.get((int) (position & mask));
+            long diff = sequence - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // Full: the slot still holds an entry from the previous lap
+                if (overflowPolicy == OverflowPolicy.DROP) {
+                    return -1;
+                }
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                position = tail.get();
+            } else {
+                // Another producer took this slot
+                position = tail.get();
+            }
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drainBatch() == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        // Producers stop claiming once running is false; let in-flight writes land
+        while (drainBatch() > 0 || head < tail.get()) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private int drainBatch() {
+        long position = head;
+        int limit = batch.capacity();
+        while (batch.size() < limit) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            batch.add(ids[index], measurements[index], durations[index], exceptions[index], weights[index],
+                    intervals[index]);
+            ids[index] = null;
+            exceptions[index] = null;
+            sequences.lazySet(index, position + capacity);
+            position++;
+        }
+
+        int drained = batch.size();
+        if (drained > 0) {
+            try {
+                delegate.reportBatch(batch);
+            } catch (Exception e) {
+                log.warn("Failed to report batch of {} timing metrics", drained, e);
+            } finally {
+                batch.clear();
+                head = position;
+            }
+        }
+        return drained;
+    }
+}
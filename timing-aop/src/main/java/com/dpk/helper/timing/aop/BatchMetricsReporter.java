@@ -0,0 +1,37 @@
+package com.dpk.helper.timing.aop;
+
+/**
+ * Receives timing measurements in batches, typically from
+ * {@link AsyncMetricsReporter}'s background thread.
+ */
+@FunctionalInterface
+public interface BatchMetricsReporter {
+
+    /**
+     * Reports a batch of measurements. The batch object is reused after this
+     * method returns, so implementations must not keep a reference to it.
+     *
+     * @param batch the measurements, in the order they were recorded
+     */
+    void reportBatch(MetricBatch batch);
+
+    /**
+     * Adapts a per-call {@link MetricsReporter} so it can sit behind an
+     * {@link AsyncMetricsReporter}.
+     */
+    static BatchMetricsReporter of(MetricsReporter reporter) {
+        return batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                Measurement measurement = batch.measurement(i);
+                if (measurement != null) {
+                    reporter.reportValue(batch.id(i), measurement, batch.value(i), batch.sampleWeight(i));
+                } else if (batch.expectedIntervalNanos(i) > 0) {
+                    reporter.report(batch.id(i), batch.durationNanos(i), batch.exception(i), batch.sampleWeight(i),
+                            batch.expectedIntervalNanos(i));
+                } else {
+                    reporter.report(batch.id(i), batch.durationNanos(i), batch.exception(i), batch.sampleWeight(i));
+                }
+            }
+        };
+    }
+}
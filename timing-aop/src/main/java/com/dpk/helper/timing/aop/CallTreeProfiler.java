@@ -0,0 +1,223 @@
+package com.dpk.helper.timing.aop;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates nested timed calls into a call tree with total and self time
+ * per call path.
+ *
+ * <p>Enable it with {@link TimedAspect#setCallTreeProfiler(CallTreeProfiler)}.
+ * Each thread keeps a stack of its active timed frames; when a frame exits,
+ * its duration is added to its node in a shared tree and subtracted from
+ * its parent's self time. The tree is bounded: once {@code maxNodes} nodes
+ * exist, new call paths are folded into a {@value #TRUNCATED} child of
+ * their parent, and frames deeper than {@code maxDepth} are attributed to
+ * the deepest tracked frame.
+ *
+ * <p>{@link #writeCollapsedStacks(Appendable)} exports the tree in the
+ * collapsed-stack format read by flame graph tools: one
+ * {@code frame;frame;frame value} line per path, where the value is the
+ * path's self time in microseconds.
+ */
+public class CallTreeProfiler {
+
+    static final String TRUNCATED = "[truncated]";
+
+    public static final int DEFAULT_MAX_NODES = 10_000;
+    public static final int DEFAULT_MAX_DEPTH = 64;
+
+    private final int maxNodes;
+    private final int maxDepth;
+    private final AtomicInteger nodeCount = new AtomicInteger();
+    private volatile Node root = new Node("root");
+
+    private final ThreadLocal<ThreadStack> stacks = ThreadLocal.withInitial(this::newStack);
+
+    public CallTreeProfiler() {
+        this(DEFAULT_MAX_NODES, DEFAULT_MAX_DEPTH);
+    }
+
+    public CallTreeProfiler(int maxNodes, int maxDepth) {
+        if (maxNodes < 1 || maxDepth < 1) {
+            throw new IllegalArgumentException("maxNodes and maxDepth must be positive");
+        }
+        this.maxNodes = maxNodes;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Pushes a frame for {@code frameName} on the current thread's stack.
+     */
+    void enter(String frameName, long startNanos) {
+        stacks.get().push(frameName, startNanos);
+    }
+
+    /**
+     * Pops the current thread's top frame and records its time.
+     */
+    void exit(long endNanos) {
+        stacks.get().pop(endNanos);
+    }
+
+    /**
+     * Writes every call path with its self time in microseconds, one per line.
+     */
+    public void writeCollapsedStacks(Appendable out) {
+        StringBuilder path = new StringBuilder();
+        try {
+            for (Node child : root.children.values()) {
+                writeCollapsed(child, path, out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the collapsed-stack export as a string.
+     */
+    public String toCollapsedStacks() {
+        StringBuilder sb = new StringBuilder();
+        writeCollapsedStacks(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Returns per-path totals, parents before children.
+     */
+    public List<CallPathSnapshot> snapshot() {
+        List<CallPathSnapshot> result = new ArrayList<>();
+        for (Node child : root.children.values()) {
+            collect(child, new ArrayList<>(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Discards the tree. Calls still in progress are recorded into the discarded tree.
+     */
+    public void reset() {
+        root = new Node("root");
+        nodeCount.set(0);
+    }
+
+    private ThreadStack newStack() {
+        return new ThreadStack(maxDepth);
+    }
+
+    private Node childOf(Node parent, String name) {
+        Node child = parent.children.get(name);
+        if (child != null) {
+            return child;
+        }
+        if (nodeCount.get() >= maxNodes) {
+            return parent.children.computeIfAbsent(TRUNCATED, Node::new);
+        }
+        return parent.children.computeIfAbsent(name, n -> {
+            nodeCount.incrementAndGet();
+            return new Node(n);
+        });
+    }
+
+    private void writeCollapsed(Node node, StringBuilder path, Appendable out) throws IOException {
+        int mark = path.length();
+        if (mark > 0) {
+            path.append(';');
+        }
+        path.append(node.name);
+        long selfMicros = node.selfNanos.sum() / 1_000;
+        if (selfMicros > 0) {
+            out.append(path).append(' ').append(Long.toString(selfMicros)).append('\n');
+        }
+        for (Node child : node.children.values()) {
+            writeCollapsed(child, path, out);
+        }
+        path.setLength(mark);
+    }
+
+    private void collect(Node node, List<String> path, List<CallPathSnapshot> result) {
+        path.add(node.name);
+        result.add(new CallPathSnapshot(List.copyOf(path), node.count.sum(),
+                node.totalNanos.sum(), node.selfNanos.sum()));
+        for (Node child : node.children.values()) {
+            collect(child, path, result);
+        }
+        path.remove(path.size() - 1);
+    }
+
+    /**
+     * Totals for one call path.
+     *
+     * @param path       frame names from the outermost timed call down to this one
+     * @param count      number of completed calls on this path
+     * @param totalNanos time spent in these calls, including timed children
+     * @param selfNanos  time spent in these calls outside any timed child
+     */
+    public record CallPathSnapshot(List<String> path, long count, long totalNanos, long selfNanos) {}
+
+    private static final class Node {
+        final String name;
+        final Map<String, Node> children = new ConcurrentHashMap<>();
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder selfNanos = new LongAdder();
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+
+    private final class ThreadStack {
+        private final Node[] nodes;
+        private final long[] starts;
+        private final long[] childNanos;
+        private int depth;
+        // Frames beyond maxDepth are counted but folded into the top tracked frame
+        private int overflow;
+
+        ThreadStack(int maxDepth) {
+            this.nodes = new Node[maxDepth];
+            this.starts = new long[maxDepth];
+            this.childNanos = new long[maxDepth];
+        }
+
+        void push(String name, long startNanos) {
+            if (depth == nodes.length) {
+                overflow++;
+                return;
+            }
+            Node parent = depth == 0 ? root : nodes[depth - 1];
+            nodes[depth] = childOf(parent, name);
+            starts[depth] = startNanos;
+            childNanos[depth] = 0;
+            depth++;
+        }
+
+        void pop(long endNanos) {
+            if (overflow > 0) {
+                overflow--;
+                return;
+            }
+            if (depth == 0) {
+                return;
+            }
+            depth--;
+            Node node = nodes[depth];
+            long total = endNanos - starts[depth];
+            node.count.increment();
+            node.totalNanos.add(total);
+            node.selfNanos.add(Math.max(0, total - childNanos[depth]));
+            nodes[depth] = null;
+            if (depth > 0) {
+                childNanos[depth - 1] += total;
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MetricsReporter} decorator that bounds the number of distinct values
+ * per tag key, so unbounded dynamic tags such as user IDs cannot make
+ * downstream reporters grow without limit.
+ *
+ * <p>The first {@code maxValues} distinct values seen for a tag key pass
+ * through unchanged; later values are replaced with {@value #OTHER}. Limits
+ * apply per tag key across all metrics, and only to dynamic tags for
+ * {@link MeterId}-based calls (static tags are bounded by definition).
+ *
+ * <p>To keep the insight the collapsed values would have given, each limited
+ * key also tracks the original values of timed calls: the most frequent ones
+ * in a {@link SpaceSavingSketch} ({@link #topValues(String)}), and the ones
+ * with the slowest single call ({@link #slowestValues(String)}). Values
+ * reported through {@link #reportValue} are mapped the same way, but do not
+ * feed the trackers or {@link #getCollapsedCount(String)}, so each call
+ * counts once however many measurements it reports.
+ *
+ * <p>Updating a value the trackers already hold is lock-free, and a call no
+ * slower than every tracked one reads a single volatile field. New values
+ * take a short lock; put this reporter behind an {@link AsyncMetricsReporter}
+ * to keep that off application threads.
+ */
+public class CardinalityLimitingMetricsReporter implements MetricsReporter {
+
+    /** Replacement value for tag values beyond the limit. */
+    public static final String OTHER = "__other__";
+
+    public static final int DEFAULT_TOP_K = 20;
+
+    private final MetricsReporter delegate;
+    private final int defaultMaxValues;
+    private final Map<String, Integer> maxValuesByKey;
+    private final int topK;
+    private final ConcurrentMap<String, KeyState> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Allows {@code defaultMaxValues} distinct values for every tag key.
+     */
+    public CardinalityLimitingMetricsReporter(MetricsReporter delegate, int defaultMaxValues) {
+        this(delegate, defaultMaxValues, Map.of(), DEFAULT_TOP_K);
+    }
+
+    /**
+     * @param delegate         receives measurements with limited tags
+     * @param defaultMaxValues distinct values allowed for keys not in {@code maxValuesByKey}
+     * @param maxValuesByKey   per tag key overrides; use {@link Integer#MAX_VALUE} for no limit
+     * @param topK             entries tracked by each key's sketches
+     */
+    public CardinalityLimitingMetricsReporter(MetricsReporter delegate, int defaultMaxValues,
+                                              Map<String, Integer> maxValuesByKey, int topK) {
+        if (defaultMaxValues < 1) {
+            throw new IllegalArgumentException("defaultMaxValues must be positive: " + defaultMaxValues);
+        }
+        maxValuesByKey.forEach((key, max) -> {
+            if (max < 1) {
+                throw new IllegalArgumentException("Limit for tag [" + key + "] must be positive: " + max);
+            }
+        });
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK must be positive: " + topK);
+        }
+        this.delegate = delegate;
+        this.defaultMaxValues = defaultMaxValues;
+        this.maxValuesByKey = Map.copyOf(maxValuesByKey);
+        this.topK = topK;
+    }
+
+    @Override
+    public void report(String metricName, long durationNanos, Map<String, String> tags, Throwable exception) {
+        Map<String, String> limited = null;
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            KeyState state = stateFor(tag.getKey());
+            state.offer(tag.getValue(), durationNanos);
+            if (!state.admit(tag.getValue(), true)) {
+                if (limited == null) {
+                    limited = new LinkedHashMap<>(tags);
+                }
+                limited.put(tag.getKey(), OTHER);
+            }
+        }
+        delegate.report(metricName, durationNanos, limited == null ? tags : limited, exception);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception) {
+        report(id, durationNanos, exception, 1.0);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight) {
+        delegate.report(limitCall(id, durationNanos), durationNanos, exception, sampleWeight);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight,
+                       long expectedIntervalNanos) {
+        delegate.report(limitCall(id, durationNanos), durationNanos, exception, sampleWeight, expectedIntervalNanos);
+    }
+
+    @Override
+    public void reportValue(MeterId id, Measurement measurement, long value, double sampleWeight) {
+        delegate.reportValue(limit(id, false), measurement, value, sampleWeight);
+    }
+
+    /**
+     * Most frequent values seen for {@code tagKey}, by call count, including
+     * values that were collapsed into {@value #OTHER}.
+     */
+    public List<SpaceSavingSketch.Entry> topValues(String tagKey) {
+        KeyState state = keys.get(tagKey);
+        return state == null ? List.of() : state.byCalls.top();
+    }
+
+    /**
+     * Values of {@code tagKey} with the slowest single call, slowest first,
+     * including values that were collapsed into {@value #OTHER}.
+     */
+    public List<SlowValue> slowestValues(String tagKey) {
+        KeyState state = keys.get(tagKey);
+        return state == null ? List.of() : state.slowest.slowestFirst();
+    }
+
+    /**
+     * Number of distinct values passed through for {@code tagKey}.
+     */
+    public int getDistinctValueCount(String tagKey) {
+        KeyState state = keys.get(tagKey);
+        return state == null ? 0 : state.values.size();
+    }
+
+    /**
+     * Number of timed calls whose value for {@code tagKey} was replaced with {@value #OTHER}.
+     */
+    public long getCollapsedCount(String tagKey) {
+        KeyState state = keys.get(tagKey);
+        return state == null ? 0 : state.collapsed.sum();
+    }
+
+    /**
+     * Feeds the trackers with a timed call's values and limits its id.
+     */
+    private MeterId limitCall(MeterId id, long durationNanos) {
+        if (id.isSite()) {
+            return id;
+        }
+        for (int i = 0; i < id.getDynamicTagCount(); i++) {
+            stateFor(id.getDynamicKey(i)).offer(id.getDynamicValue(i), durationNanos);
+        }
+        return limit(id, true);
+    }
+
+    /**
+     * Replaces values beyond the limit with {@value #OTHER}. Only timed calls
+     * count as collapsed, so a call's extra measurements do not inflate the count.
+     */
+    private MeterId limit(MeterId id, boolean countCollapsed) {
+        if (id.isSite()) {
+            return id;
+        }
+        String[] values = null;
+        for (int i = 0; i < id.getDynamicTagCount(); i++) {
+            if (!stateFor(id.getDynamicKey(i)).admit(id.getDynamicValue(i), countCollapsed)) {
+                if (values == null) {
+                    values = new String[id.getDynamicTagCount()];
+                    for (int j = 0; j < values.length; j++) {
+                        values[j] = id.getDynamicValue(j);
+                    }
+                }
+                values[i] = OTHER;
+            }
+        }
+        return values == null ? id : id.getSite().withDynamicValues(values);
+    }
+
+    private KeyState stateFor(String key) {
+        KeyState state = keys.get(key);
+        if (state == null) {
+            state = keys.computeIfAbsent(key,
+                    k -> new KeyState(maxValuesByKey.getOrDefault(k, defaultMaxValues), topK));
+        }
+        return state;
+    }
+
+    private static final class KeyState {
+
+        private final int maxValues;
+        private final Set<String> values = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger reserved = new AtomicInteger();
+        private final LongAdder collapsed = new LongAdder();
+        private final SpaceSavingSketch byCalls;
+        private final SlowestValues slowest;
+
+        KeyState(int maxValues, int topK) {
+            this.maxValues = maxValues;
+            this.byCalls = new SpaceSavingSketch(topK);
+            this.slowest = new SlowestValues(topK);
+        }
+
+        boolean admit(String value, boolean countCollapsed) {
+            if (values.contains(value)) {
+                return true;
+            }
+            // Reserve a slot first so concurrent first sightings cannot overshoot the limit
+            if (reserved.get() >= maxValues || reserved.incrementAndGet() > maxValues) {
+                if (countCollapsed) {
+                    collapsed.increment();
+                }
+                return false;
+            }
+            if (!values.add(value)) {
+                reserved.decrementAndGet();
+            }
+            return true;
+        }
+
+        void offer(String value, long durationNanos) {
+            byCalls.offer(value, 1);
+            slowest.offer(value, durationNanos);
+        }
+    }
+
+    /**
+     * A tag value and the duration of its slowest call seen.
+     *
+     * @param value    the original tag value
+     * @param maxNanos duration of its slowest call, in nanoseconds
+     */
+    public record SlowValue(String value, long maxNanos) {}
+
+    /**
+     * The {@code capacity} values with the slowest single call. Once full, a
+     * call must be slower than the fastest of them to change anything, and
+     * that check is one volatile read. A tracked value's own maximum is never
+     * below that threshold, so faster calls cannot raise it either.
+     */
+    private static final class SlowestValues {
+
+        private final int capacity;
+        private final Map<String, Long> maxByValue = new HashMap<>();
+        // Duration a call must exceed to be considered; -1 while not full
+        private volatile long thresholdNanos = -1;
+
+        SlowestValues(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void offer(String value, long durationNanos) {
+            if (durationNanos > thresholdNanos) {
+                add(value, durationNanos);
+            }
+        }
+
+        private synchronized void add(String value, long durationNanos) {
+            Long max = maxByValue.get(value);
+            if (max != null) {
+                if (durationNanos <= max) {
+                    return;
+                }
+            } else if (maxByValue.size() >= capacity) {
+                Map.Entry<String, Long> fastest = fastest();
+                if (durationNanos <= fastest.getValue()) {
+                    return;
+                }
+                maxByValue.remove(fastest.getKey());
+            }
+            maxByValue.put(value, durationNanos);
+            thresholdNanos = maxByValue.size() >= capacity ? fastest().getValue() : -1;
+        }
+
+        private Map.Entry<String, Long> fastest() {
+            Map.Entry<String, Long> fastest = null;
+            for (Map.Entry<String, Long> entry : maxByValue.entrySet()) {
+                if (fastest == null || entry.getValue() < fastest.getValue()) {
+                    fastest = entry;
+                }
+            }
+            return fastest;
+        }
+
+        synchronized List<SlowValue> slowestFirst() {
+            List<SlowValue> result = new ArrayList<>(maxByValue.size());
+            maxByValue.forEach((value, max) -> result.add(new SlowValue(value, max)));
+            result.sort(Comparator.comparingLong(SlowValue::maxNanos).reversed());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.dpk.helper.timing.aop;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MetricsReporter} that fans measurements out to several delegates,
+ * each isolated from the caller and from the others.
+ *
+ * <p>Every delegate gets its own {@link AsyncMetricsReporter}: a bounded
+ * queue and a drain thread. A slow delegate therefore only fills its own
+ * queue, and its overflow is dropped and counted without holding up the
+ * business thread or the other delegates.
+ *
+ * <p>Each delegate also has its own error budget. After
+ * {@code failureThreshold} consecutive failed batches it is disabled, and its
+ * measurements are skipped. Once {@code probeInterval} has passed,
+ * measurements flow again. A successful batch re-enables the delegate, and a
+ * failed one disables it for another interval.
+ *
+ * <p>{@link #getStats()} reports lag, drops and failures per delegate.
+ */
+public class CompositeMetricsReporter implements MetricsReporter, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CompositeMetricsReporter.class);
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final Duration DEFAULT_PROBE_INTERVAL = Duration.ofSeconds(30);
+
+    private final Lane[] lanes;
+
+    /**
+     * Isolates each delegate with default settings, named by its simple class name.
+     */
+    public CompositeMetricsReporter(MetricsReporter... delegates) {
+        this(namedByClass(delegates), AsyncMetricsReporter.DEFAULT_CAPACITY, DEFAULT_FAILURE_THRESHOLD,
+                DEFAULT_PROBE_INTERVAL);
+    }
+
+    /**
+     * @param delegates        delegates by name, as used in {@link #getStats()} and log messages
+     * @param capacity         queue capacity per delegate
+     * @param failureThreshold consecutive failed batches that disable a delegate
+     * @param probeInterval    how long a disabled delegate is skipped before it is tried again
+     */
+    public CompositeMetricsReporter(Map<String, ? extends MetricsReporter> delegates, int capacity,
+                                    int failureThreshold, Duration probeInterval) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be positive: " + failureThreshold);
+        }
+        if (probeInterval.isNegative()) {
+            throw new IllegalArgumentException("probeInterval must not be negative: " + probeInterval);
+        }
+        this.lanes = new Lane[delegates.size()];
+        int i = 0;
+        for (Map.Entry<String, ? extends MetricsReporter> delegate : delegates.entrySet()) {
+            lanes[i++] = new Lane(delegate.getKey(), delegate.getValue(), capacity, failureThreshold,
+                    probeInterval.toNanos());
+        }
+    }
+
+    @Override
+    public void report(String metricName, long durationNanos, Map<String, String> tags, Throwable exception) {
+        report(MeterId.of(metricName, tags), durationNanos, exception);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception) {
+        report(id, durationNanos, exception, 1.0);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight) {
+        for (Lane lane : lanes) {
+            if (lane.accepts()) {
+                lane.queue.report(id, durationNanos, exception, sampleWeight);
+            }
+        }
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight,
+                       long expectedIntervalNanos) {
+        for (Lane lane : lanes) {
+            if (lane.accepts()) {
+                lane.queue.report(id, durationNanos, exception, sampleWeight, expectedIntervalNanos);
+            }
+        }
+    }
+
+    @Override
+    public void reportValue(MeterId id, Measurement measurement, long value, double sampleWeight) {
+        for (Lane lane : lanes) {
+            if (lane.accepts()) {
+                lane.queue.reportValue(id, measurement, value, sampleWeight);
+            }
+        }
+    }
+
+    /**
+     * Returns the current state of every delegate, in registration order.
+     */
+    public List<DelegateStats> getStats() {
+        List<DelegateStats> stats = new ArrayList<>(lanes.length);
+        for (Lane lane : lanes) {
+            AsyncMetricsReporter queue = lane.queue;
+            long drained = queue.getDrainedCount();
+            long failed = lane.failed.sum();
+            long discarded = lane.discarded.sum();
+            stats.add(new DelegateStats(lane.name, queue.getEnqueuedCount() - drained, drained - failed - discarded,
+                    queue.getDroppedCount() + lane.skipped.sum() + discarded, failed, lane.disabledUntilNanos != 0));
+        }
+        return stats;
+    }
+
+    /**
+     * Flushes every delegate's queue and stops the drain threads. Delegates
+     * themselves are not closed.
+     */
+    @Override
+    public void close() {
+        for (Lane lane : lanes) {
+            lane.queue.close();
+        }
+    }
+
+    /**
+     * Per-delegate counters.
+     *
+     * @param name      the delegate's name
+     * @param lag       measurements queued but not yet handed to the delegate
+     * @param delivered measurements the delegate accepted
+     * @param dropped   measurements discarded because the queue was full or the delegate was disabled
+     * @param failed    measurements in batches the delegate threw on
+     * @param disabled  whether the delegate is currently disabled or being probed
+     */
+    public record DelegateStats(String name, long lag, long delivered, long dropped, long failed,
+                                boolean disabled) {
+    }
+
+    private static Map<String, MetricsReporter> namedByClass(MetricsReporter[] delegates) {
+        Map<String, MetricsReporter> named = new LinkedHashMap<>();
+        for (MetricsReporter delegate : delegates) {
+            String name = delegate.getClass().getSimpleName();
+            String unique = name;
+            for (int n = 2; named.containsKey(unique); n++) {
+                unique = name + "#" + n;
+            }
+            named.put(unique, delegate);
+        }
+        return named;
+    }
+
+    /**
+     * One delegate with its queue and error budget. {@link #reportBatch} runs
+     * on the queue's drain thread only.
+     */
+    private static final class Lane implements BatchMetricsReporter {
+
+        private final String name;
+        private final BatchMetricsReporter target;
+        private final int failureThreshold;
+        private final long probeIntervalNanos;
+        private final AsyncMetricsReporter queue;
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder discarded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        // 0 while enabled; otherwise the nanoTime at which to probe again
+        private volatile long disabledUntilNanos;
+        private int consecutiveFailures;
+
+        Lane(String name, MetricsReporter delegate, int capacity, int failureThreshold, long probeIntervalNanos) {
+            this.name = name;
+            this.target = BatchMetricsReporter.of(delegate);
+            this.failureThreshold = failureThreshold;
+            this.probeIntervalNanos = probeIntervalNanos;
+            this.queue = new AsyncMetricsReporter(this, capacity, AsyncMetricsReporter.DEFAULT_BATCH_SIZE,
+                    AsyncMetricsReporter.OverflowPolicy.DROP);
+        }
+
+        boolean accepts() {
+            long until = disabledUntilNanos;
+            if (until == 0 || System.nanoTime() - until >= 0) {
+                return true;
+            }
+            skipped.increment();
+            return false;
+        }
+
+        @Override
+        public void reportBatch(MetricBatch batch) {
+            if (disabledUntilNanos != 0 && System.nanoTime() - disabledUntilNanos < 0) {
+                // Queued before the delegate was disabled
+                discarded.add(batch.size());
+                return;
+            }
+            try {
+                target.reportBatch(batch);
+            } catch (Exception e) {
+                failed.add(batch.size());
+                consecutiveFailures++;
+                if (consecutiveFailures >= failureThreshold) {
+                    boolean wasEnabled = disabledUntilNanos == 0;
+                    disabledUntilNanos = System.nanoTime() + Math.max(1, probeIntervalNanos);
+                    if (wasEnabled) {
+                        log.warn("Disabling metrics reporter [{}] after {} consecutive failures; retrying in {} ms",
+                                name, consecutiveFailures, probeIntervalNanos / 1_000_000, e);
+                    } else {
+                        log.debug("Metrics reporter [{}] still failing", name, e);
+                    }
+                } else {
+                    log.warn("Metrics reporter [{}] failed on a batch of {} measurements", name, batch.size(), e);
+                }
+                return;
+            }
+            consecutiveFailures = 0;
+            if (disabledUntilNanos != 0) {
+                disabledUntilNanos = 0;
+                log.info("Re-enabled metrics reporter [{}]", name);
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.dpk.helper.timing.aop;
+
+import com.dpk.helper.diagnostics.AspectOverhead;
+import com.dpk.helper.diagnostics.OverheadRecorder;
+import com.dpk.helper.timing.Counted;
+import com.dpk.helper.timing.Tag;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AspectJ aspect that counts invocations of methods annotated with
+ * {@link Counted}, by {@link Outcome}.
+ *
+ * <p>A call increments one striped {@link LongAdder}, so concurrent callers
+ * do not contend; metric name and static tags are resolved once per
+ * {@link Method}. The clock is never read. A background thread reports the
+ * counts accumulated since its previous report every {@code reportInterval},
+ * as {@link Measurement#SUCCESS_COUNT}, {@link Measurement#FAILURE_COUNT} and
+ * {@link Measurement#CANCELLED_COUNT} through
+ * {@link MetricsReporter#reportValue(MeterId, Measurement, long, double)}.
+ * Outcomes without calls in an interval are not reported.
+ *
+ * <p>Methods returning a {@link CompletionStage} are counted when the stage
+ * completes.
+ */
+@Aspect
+public class CountedAspect implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CountedAspect.class);
+
+    public static final Duration DEFAULT_REPORT_INTERVAL = Duration.ofSeconds(60);
+
+    private static final Measurement[] COUNTS = {
+            Measurement.SUCCESS_COUNT, Measurement.FAILURE_COUNT, Measurement.CANCELLED_COUNT
+    };
+
+    private final MetricsReporter reporter;
+    private final ConcurrentMap<Method, CountedMethod> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private AspectOverhead overhead;
+
+    public CountedAspect(MetricsReporter reporter, Duration reportInterval) {
+        if (reportInterval.isZero() || reportInterval.isNegative()) {
+            throw new IllegalArgumentException("reportInterval must be positive: " + reportInterval);
+        }
+        this.reporter = reporter;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "timing-counted-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = reportInterval.toNanos();
+        this.scheduler.scheduleAtFixedRate(this::flush, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public CountedAspect(MetricsReporter reporter) {
+        this(reporter, DEFAULT_REPORT_INTERVAL);
+    }
+
+    public CountedAspect() {
+        this(new Slf4jMetricsReporter());
+    }
+
+    /**
+     * Measures the time this aspect adds to each call in
+     * {@code overheadRecorder}. Pass {@code null} to disable. Configure
+     * before the aspect starts intercepting calls.
+     */
+    public void setOverheadRecorder(OverheadRecorder overheadRecorder) {
+        this.overhead = overheadRecorder == null ? null : overheadRecorder.forAspect("CountedAspect");
+    }
+
+    @Around("execution(* *(..)) && @annotation(counted)")
+    public Object countMethod(ProceedingJoinPoint pjp, Counted counted) throws Throwable {
+        AspectOverhead overhead = this.overhead;
+        if (overhead != null) {
+            return overhead.measure(pjp, measured -> doCountMethod(measured, counted));
+        }
+        return doCountMethod(pjp, counted);
+    }
+
+    private Object doCountMethod(ProceedingJoinPoint pjp, Counted counted) throws Throwable {
+        CountedMethod counter = counter(pjp, counted);
+        Object result;
+        try {
+            result = pjp.proceed();
+        } catch (Throwable t) {
+            counter.increment(Outcome.FAILURE);
+            throw t;
+        }
+        if (counter.asyncResult && result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, exception) -> counter.increment(Outcome.of(unwrap(exception))));
+        } else {
+            counter.increment(Outcome.SUCCESS);
+        }
+        return result;
+    }
+
+    /**
+     * Reports the counts accumulated since the previous report now, instead
+     * of waiting for the next interval.
+     */
+    public synchronized void flush() {
+        for (CountedMethod counter : counters.values()) {
+            for (Outcome outcome : Outcome.values()) {
+                long delta = counter.takeDelta(outcome);
+                if (delta == 0) {
+                    continue;
+                }
+                try {
+                    reporter.reportValue(counter.id, COUNTS[outcome.ordinal()], delta, 1.0);
+                } catch (Exception e) {
+                    log.warn("Failed to report call counts for [{}]", counter.id.getName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the reporting thread after one last report.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        flush();
+    }
+
+    private CountedMethod counter(ProceedingJoinPoint pjp, Counted counted) {
+        MethodSignature sig = (MethodSignature) pjp.getSignature();
+        Method method = sig.getMethod();
+        CountedMethod counter = counters.get(method);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(method, m -> CountedMethod.of(m, sig.getDeclaringType(), counted));
+        }
+        return counter;
+    }
+
+    private static Throwable unwrap(Throwable exception) {
+        if (exception instanceof CompletionException && exception.getCause() != null) {
+            return exception.getCause();
+        }
+        return exception;
+    }
+
+    /**
+     * Counters of one {@link Counted} method, one per {@link Outcome}.
+     */
+    private static final class CountedMethod {
+
+        private final MeterId id;
+        private final boolean asyncResult;
+        private final LongAdder[] counts = new LongAdder[COUNTS.length];
+        // Totals at the previous report; only touched under the aspect's lock
+        private final long[] reported = new long[COUNTS.length];
+
+        private CountedMethod(MeterId id, boolean asyncResult) {
+            this.id = id;
+            this.asyncResult = asyncResult;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        static CountedMethod of(Method method, Class<?> declaringType, Counted counted) {
+            String metricName = counted.value().isEmpty()
+                    ? declaringType.getSimpleName() + "." + method.getName()
+                    : counted.value();
+            Map<String, String> tags = new LinkedHashMap<>();
+            for (Tag tag : counted.tags()) {
+                tags.put(tag.key(), tag.value());
+            }
+            return new CountedMethod(MeterId.of(metricName.intern(), tags),
+                    CompletionStage.class.isAssignableFrom(method.getReturnType()));
+        }
+
+        void increment(Outcome outcome) {
+            counts[outcome.ordinal()].increment();
+        }
+
+        long takeDelta(Outcome outcome) {
+            int i = outcome.ordinal();
+            long total = counts[i].sum();
+            long delta = total - reported[i];
+            reported[i] = total;
+            return delta;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.dpk.helper.timing.aop;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps tasks handed to an executor so each reports how long it waited to
+ * start and how long it ran. Shared by every wrapper of one executor site.
+ *
+ * <p>For a {@link ThreadPoolExecutor} whose queue is a
+ * {@link LinkedBlockingQueue} or a {@link SynchronousQueue}, the queue depth
+ * is read from the pool's queue. Their {@code size()} reads a counter without
+ * locking. Other queues, such as {@code ArrayBlockingQueue} or the work queue
+ * of a {@code ScheduledThreadPoolExecutor}, take the lock their workers
+ * {@code take()} under. Reading them would make every submit contend with
+ * the pool, so for those and for other delegates the depth is a counter of
+ * tasks submitted through the site that have not started. That counter
+ * drifts upward when the delegate silently drops tasks, for example a
+ * rejection policy that discards them, because a dropped task never runs to
+ * decrement it.
+ */
+final class ExecutorTaskTimer {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutorTaskTimer.class);
+
+    private final MeterId waitId;
+    private final MeterId runId;
+    private final MetricsReporter reporter;
+    private final AtomicLong pending = new AtomicLong();
+
+    ExecutorTaskTimer(String metricName, Map<String, String> tags, MetricsReporter reporter) {
+        this.waitId = MeterId.of((metricName + ".wait").intern(), tags);
+        this.runId = MeterId.of((metricName + ".run").intern(), tags);
+        this.reporter = reporter;
+    }
+
+    /**
+     * Submits {@code command} to {@code delegate} wrapped in a timed task.
+     */
+    void execute(Executor delegate, Runnable command) {
+        BlockingQueue<Runnable> queue = lockFreeQueue(delegate);
+        if (queue != null) {
+            // The pool's queue stays right even if its rejection policy discards tasks
+            delegate.execute(new TimedTask(command, queue.size(), false));
+            return;
+        }
+        long depth = pending.getAndIncrement();
+        try {
+            delegate.execute(new TimedTask(command, depth, true));
+        } catch (RuntimeException | Error e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the original command of a task that will never run, and stops
+     * counting it as pending.
+     */
+    Runnable abandon(Runnable task) {
+        if (task instanceof TimedTask timed && timed.owner() == this) {
+            if (timed.counted) {
+                pending.decrementAndGet();
+            }
+            return timed.command;
+        }
+        return task;
+    }
+
+    /**
+     * Tasks waiting to start: the queue of a {@link ThreadPoolExecutor}
+     * {@code delegate} if its size can be read without locking, otherwise
+     * tasks submitted through this site that have not started yet.
+     */
+    long getPending(Executor delegate) {
+        BlockingQueue<Runnable> queue = lockFreeQueue(delegate);
+        if (queue != null) {
+            return queue.size();
+        }
+        return Math.max(0, pending.get());
+    }
+
+    /**
+     * The queue of a {@link ThreadPoolExecutor} {@code delegate} whose
+     * {@code size()} is a lock-free read, or {@code null}.
+     */
+    private static BlockingQueue<Runnable> lockFreeQueue(Executor delegate) {
+        if (delegate instanceof ThreadPoolExecutor pool) {
+            BlockingQueue<Runnable> queue = pool.getQueue();
+            if (queue instanceof LinkedBlockingQueue<Runnable> || queue instanceof SynchronousQueue<Runnable>) {
+                return queue;
+            }
+        }
+        return null;
+    }
+
+    private void reportWait(long waitNanos, long depth) {
+        try {
+            reporter.reportValue(waitId, Measurement.QUEUE_DEPTH, depth, 1.0);
+            reporter.report(waitId, waitNanos, null);
+        } catch (Exception e) {
+            log.warn("Failed to report queue wait for [{}]", waitId.getName(), e);
+        }
+    }
+
+    private void reportRun(long runNanos, Throwable exception) {
+        try {
+            reporter.report(runId, runNanos, exception);
+        } catch (Exception e) {
+            log.warn("Failed to report task run for [{}]", runId.getName(), e);
+        }
+    }
+
+    /**
+     * The outcome of a command that returned normally. A {@code FutureTask}
+     * from {@code submit} catches the task's exception, so it is read back
+     * from the future instead.
+     */
+    private static Throwable outcome(Runnable command) {
+        if (command instanceof Future<?> future && future.isDone()) {
+            return switch (future.state()) {
+                case FAILED -> future.exceptionNow();
+                case CANCELLED -> new CancellationException("Task cancelled");
+                default -> null;
+            };
+        }
+        return null;
+    }
+
+    /**
+     * One submitted task. Holds the submission timestamp; the start timestamp
+     * both ends the wait and begins the run.
+     */
+    private final class TimedTask implements Runnable {
+
+        private final Runnable command;
+        private final long depth;
+        // Whether the task is counted in pending
+        private final boolean counted;
+        private final long submitNanos = System.nanoTime();
+
+        TimedTask(Runnable command, long depth, boolean counted) {
+            this.command = command;
+            this.depth = depth;
+            this.counted = counted;
+        }
+
+        ExecutorTaskTimer owner() {
+            return ExecutorTaskTimer.this;
+        }
+
+        @Override
+        public void run() {
+            long startNanos = System.nanoTime();
+            if (counted) {
+                pending.decrementAndGet();
+            }
+            reportWait(startNanos - submitNanos, depth);
+            Throwable failure = null;
+            try {
+                command.run();
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                reportRun(System.nanoTime() - startNanos, failure != null ? failure : outcome(command));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return command.toString();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.dpk.helper.timing.aop;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the most recent stop-the-world GC pauses, so {@link TimedAspect} can
+ * tell how much of a slow call was spent with the JVM paused. Register one
+ * with {@link TimedAspect#setGcPauseTracker(GcPauseTracker)}.
+ *
+ * <p>Pauses come from {@link GarbageCollectorMXBean} notifications. Because
+ * notifications arrive shortly after a pause ends, {@link #pausedNanos(long, long)}
+ * also compares each collector's collection count with the pauses already
+ * known. If a collection is missing, it reads the collector's last GC
+ * synchronously, so a call that ends right after a pause still sees it.
+ * Collectors that report concurrent cycles as well as pauses (G1's
+ * "Concurrent GC", ZGC's and Shenandoah's "Cycles") are ignored, because
+ * application threads keep running during those cycles.
+ *
+ * <p>Pauses are kept in an array sorted by end time, replaced on every
+ * recorded pause under a lock. Calls read the current array without locks.
+ * In the common case they read one collection count per collector, and a
+ * single comparison against the newest pause answers the question.
+ *
+ * <p>Limitations:
+ * <ul>
+ *   <li>GC timestamps have millisecond resolution, so pauses shorter than
+ *       1 ms are not attributed.</li>
+ *   <li>The synchronous check sees only the last collection of each
+ *       collector. If one collector pauses twice before its first
+ *       notification arrives, a call ending then sees only the second pause.</li>
+ *   <li>Safepoint pauses other than GC are not covered, because the JVM
+ *       exposes them through no supported API.</li>
+ * </ul>
+ */
+public class GcPauseTracker implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(GcPauseTracker.class);
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final Pause[] NO_PAUSES = new Pause[0];
+
+    private final int capacity;
+    private volatile Pause[] pauses = NO_PAUSES;
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong totalPauseNanos = new AtomicLong();
+    private final long jvmStartNanos;
+    private final Collector[] collectors;
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = this::handleNotification;
+
+    public GcPauseTracker() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity pauses to remember
+     */
+    public GcPauseTracker(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        // GC timestamps count milliseconds from the JVM start time; getUptime()
+        // uses an earlier origin, so derive the offset from the wall clock.
+        // Look the bean up first: the first lookup can take tens of milliseconds.
+        long startMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long sinceStartMillis = System.currentTimeMillis() - startMillis;
+        this.jvmStartNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(sinceStartMillis);
+
+        List<Collector> pausing = new ArrayList<>();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof com.sun.management.GarbageCollectorMXBean bean && !isConcurrent(bean.getName())) {
+                pausing.add(new Collector(bean));
+            }
+            if (collector instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(listener, null, null);
+                emitters.add(emitter);
+            }
+        }
+        this.collectors = pausing.toArray(new Collector[0]);
+        if (emitters.isEmpty() && collectors.length == 0) {
+            log.warn("No garbage collector reports its pauses; GC pause attribution is disabled");
+        }
+    }
+
+    /**
+     * Nanoseconds of GC pauses that overlap {@code [startNanos, endNanos]},
+     * both {@link System#nanoTime()} values, including pauses whose
+     * notification has not arrived yet.
+     */
+    public long pausedNanos(long startNanos, long endNanos) {
+        for (Collector collector : collectors) {
+            long collections = collector.bean.getCollectionCount();
+            if (collections > collector.checkedCollections) {
+                catchUp(collector, collections);
+            }
+        }
+        Pause[] current = pauses;
+        long paused = 0;
+        for (int i = current.length - 1; i >= 0; i--) {
+            Pause pause = current[i];
+            if (pause.endNanos - startNanos <= 0) {
+                // Pauses are sorted by end, so older ones cannot overlap either
+                break;
+            }
+            long overlap = Math.min(pause.endNanos, endNanos) - Math.max(pause.startNanos, startNanos);
+            if (overlap > 0) {
+                paused += overlap;
+            }
+        }
+        return paused;
+    }
+
+    /**
+     * Number of pauses recorded since this tracker was created.
+     */
+    public long getPauseCount() {
+        return recorded.get();
+    }
+
+    /**
+     * Total duration of the pauses recorded since this tracker was created.
+     */
+    public long getTotalPauseNanos() {
+        return totalPauseNanos.get();
+    }
+
+    /**
+     * Stops listening for GC notifications. Calls still pick up pauses
+     * through the synchronous check.
+     */
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException e) {
+                // already removed
+            }
+        }
+        emitters.clear();
+    }
+
+    /**
+     * Records the collector's last GC, ahead of its notification.
+     */
+    private synchronized void catchUp(Collector collector, long collections) {
+        if (collections <= collector.checkedCollections) {
+            return;
+        }
+        GcInfo gc = collector.bean.getLastGcInfo();
+        if (gc != null) {
+            recordGc(collector, gc);
+        }
+        collector.checkedCollections = collections;
+    }
+
+    /**
+     * Records a GC once, whether its notification or the synchronous check
+     * sees it first.
+     */
+    private synchronized void recordGc(Collector collector, GcInfo gc) {
+        if (!collector.markSeen(gc.getId())) {
+            return;
+        }
+        insert(new Pause(jvmStartNanos + TimeUnit.MILLISECONDS.toNanos(gc.getStartTime()),
+                jvmStartNanos + TimeUnit.MILLISECONDS.toNanos(gc.getEndTime())));
+    }
+
+    // Visible for testing
+    synchronized void recordPauseNanos(long startNanos, long endNanos) {
+        insert(new Pause(startNanos, endNanos));
+    }
+
+    /**
+     * Copies the pauses with {@code pause} inserted in end order, dropping the
+     * oldest once capacity is reached. Callers hold the lock.
+     */
+    private void insert(Pause pause) {
+        if (pause.endNanos - pause.startNanos <= 0) {
+            return;
+        }
+        Pause[] current = pauses;
+        int position = current.length;
+        while (position > 0 && current[position - 1].endNanos - pause.endNanos > 0) {
+            position--;
+        }
+        int dropped = current.length == capacity ? 1 : 0;
+        if (position < dropped) {
+            // Older than every pause kept
+            return;
+        }
+        Pause[] next = new Pause[current.length - dropped + 1];
+        System.arraycopy(current, dropped, next, 0, position - dropped);
+        next[position - dropped] = pause;
+        System.arraycopy(current, position, next, position - dropped + 1, current.length - position);
+        pauses = next;
+        totalPauseNanos.addAndGet(pause.endNanos - pause.startNanos);
+        recorded.incrementAndGet();
+    }
+
+    private void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        if (isConcurrent(info.getGcName())) {
+            return;
+        }
+        for (Collector collector : collectors) {
+            if (collector.bean.getName().equals(info.getGcName())) {
+                recordGc(collector, info.getGcInfo());
+                return;
+            }
+        }
+    }
+
+    static boolean isConcurrent(String gcName) {
+        return gcName.contains("Concurrent") || gcName.contains("Cycles");
+    }
+
+    private record Pause(long startNanos, long endNanos) {
+    }
+
+    /**
+     * A collector that pauses the application. GC ids count the collector's
+     * collections, so the highest id recorded plus a bit mask of the ids just
+     * below it tell whether a notification is for a GC already recorded.
+     */
+    private static final class Collector {
+
+        final com.sun.management.GarbageCollectorMXBean bean;
+        // Collection count up to which the last GC has been looked up
+        volatile long checkedCollections;
+        // Guarded by the tracker; bit i of seenBelow is set if id highestId - 1 - i was recorded
+        long highestId;
+        long seenBelow;
+
+        Collector(com.sun.management.GarbageCollectorMXBean bean) {
+            this.bean = bean;
+            // Collections before the tracker existed cannot overlap a call it times
+            this.checkedCollections = Math.max(0, bean.getCollectionCount());
+            this.highestId = checkedCollections;
+            this.seenBelow = -1L;
+        }
+
+        /**
+         * Returns whether GC {@code id} was not seen before, and marks it seen.
+         */
+        boolean markSeen(long id) {
+            if (id > highestId) {
+                long shift = id - highestId;
+                seenBelow = (shift < Long.SIZE ? seenBelow << shift : 0)
+                        | (shift <= Long.SIZE ? 1L << (shift - 1) : 0);
+                highestId = id;
+                return true;
+            }
+            long distance = highestId - id;
+            if (distance == 0 || distance > Long.SIZE || (seenBelow & (1L << (distance - 1))) != 0) {
+                return false;
+            }
+            seenBelow |= 1L << (distance - 1);
+            return true;
+        }
+    }
+}
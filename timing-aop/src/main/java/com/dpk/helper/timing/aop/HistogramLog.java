@@ -0,0 +1,364 @@
+package com.dpk.helper.timing.aop;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary format shared by {@link HistogramLogWriter} and {@link HistogramLogReader}.
+ *
+ * <pre>
+ * File   = FILE_MAGIC (int) VERSION (int) Block*
+ * Block  = BLOCK_MAGIC (int) rawLength (int) compressedLength (int) crc32 (int) deflate(Interval)
+ * Interval = startMillis endMillis seriesCount Series*
+ * Series = name tagCount (key value)* errorCount cancelledCount Histogram
+ *          measurementCount (key total)* hasCorrected [Histogram]
+ * Histogram = sumNanos maxNanos minNanos precisionBits bucketCount (indexDelta count)*
+ * </pre>
+ * Block headers are big-endian ints. Inside a block, numbers are unsigned
+ * LEB128 varints and strings are a varint byte length followed by UTF-8. Only
+ * non-empty buckets are stored, each as the distance from the previous one.
+ * Every block is compressed on its own, so a log can be read from any block
+ * boundary and a block cut short by a crash is detected and skipped.
+ * {@code hasCorrected} is 1 if the histogram corrected for coordinated
+ * omission follows, 0 otherwise.
+ */
+final class HistogramLog {
+
+    static final int FILE_MAGIC = 0x544D484C;
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 8;
+    static final int BLOCK_MAGIC = 0x484C4231;
+    static final int BLOCK_HEADER_SIZE = 16;
+
+    /** Guards against allocating absurd buffers for a corrupt length field. */
+    static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+    static final int MAX_BUCKETS = 1 << 24;
+
+    private HistogramLog() {
+    }
+
+    static byte[] encodeBlock(long startMillis, long endMillis, Collection<MetricSnapshot> series,
+                              Deflater deflater) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(256);
+        writeVarLong(raw, startMillis);
+        writeVarLong(raw, Math.max(0, endMillis - startMillis));
+        int active = 0;
+        for (MetricSnapshot s : series) {
+            if (hasActivity(s)) {
+                active++;
+            }
+        }
+        writeVarLong(raw, active);
+        for (MetricSnapshot s : series) {
+            if (hasActivity(s)) {
+                writeSeries(raw, s);
+            }
+        }
+        byte[] input = raw.toByteArray();
+
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 2 + 64);
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            compressed.write(chunk, 0, n);
+        }
+        byte[] payload = compressed.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + payload.length);
+        block.putInt(BLOCK_MAGIC).putInt(input.length).putInt(payload.length).putInt((int) crc.getValue());
+        block.put(payload);
+        return block.array();
+    }
+
+    /**
+     * Reads the block at the channel's position. Returns {@code null} at the
+     * end of the log, including when the last block is incomplete.
+     *
+     * @throws IOException if the block is corrupt
+     */
+    static HistogramLogReader.Interval readBlock(FileChannel channel, Inflater inflater) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        if (!readFully(channel, header)) {
+            return null;
+        }
+        header.flip();
+        if (header.getInt() != BLOCK_MAGIC) {
+            throw new IOException("Corrupt histogram log: bad block marker at "
+                    + (channel.position() - BLOCK_HEADER_SIZE));
+        }
+        int rawLength = header.getInt();
+        int compressedLength = header.getInt();
+        int expectedCrc = header.getInt();
+        if (rawLength < 0 || rawLength > MAX_BLOCK_SIZE
+                || compressedLength < 0 || compressedLength > MAX_BLOCK_SIZE) {
+            throw new IOException("Corrupt histogram log: bad block length at "
+                    + (channel.position() - BLOCK_HEADER_SIZE));
+        }
+        ByteBuffer payload = ByteBuffer.allocate(compressedLength);
+        if (!readFully(channel, payload)) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Corrupt histogram log: checksum mismatch in block ending at "
+                    + channel.position());
+        }
+
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(payload.array());
+        try {
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, n, rawLength - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Corrupt histogram log: truncated block ending at "
+                            + channel.position());
+                }
+                n += inflated;
+            }
+            if (n != rawLength) {
+                throw new IOException("Corrupt histogram log: block ending at " + channel.position()
+                        + " holds " + n + " of " + rawLength + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt histogram log: " + e.getMessage(), e);
+        }
+        return decodeInterval(ByteBuffer.wrap(raw));
+    }
+
+    /**
+     * Length of the valid prefix of a log: the file header and every complete
+     * block. Used to drop a torn block before appending.
+     */
+    static long validLength(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = FILE_HEADER_SIZE;
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        while (position + BLOCK_HEADER_SIZE <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            if (header.remaining() < BLOCK_HEADER_SIZE || header.getInt() != BLOCK_MAGIC) {
+                break;
+            }
+            header.getInt();
+            int compressedLength = header.getInt();
+            long end = position + BLOCK_HEADER_SIZE + compressedLength;
+            if (compressedLength < 0 || end > size) {
+                break;
+            }
+            position = end;
+        }
+        return Math.min(position, size);
+    }
+
+    /**
+     * Whether the series recorded anything in the interval. Series fed only
+     * through {@code reportValue}, such as {@code @Counted} counts, have no
+     * timed calls but still carry measurement totals.
+     */
+    private static boolean hasActivity(MetricSnapshot s) {
+        if (s.count() > 0 || s.errorCount() > 0 || s.cancelledCount() > 0) {
+            return true;
+        }
+        for (long total : s.measurementTotals().values()) {
+            if (total != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeSeries(ByteArrayOutputStream out, MetricSnapshot s) {
+        writeString(out, s.metricName());
+        Map<String, String> tags = s.tags();
+        writeVarLong(out, tags.size());
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            writeString(out, tag.getKey());
+            writeString(out, tag.getValue());
+        }
+        writeVarLong(out, s.errorCount());
+        writeVarLong(out, s.cancelledCount());
+        writeHistogram(out, s.histogram());
+
+        Map<Measurement, Long> totals = s.measurementTotals();
+        writeVarLong(out, totals.size());
+        for (Map.Entry<Measurement, Long> total : totals.entrySet()) {
+            writeString(out, total.getKey().getKey());
+            writeVarLong(out, Math.max(0, total.getValue()));
+        }
+
+        HistogramSnapshot corrected = s.correctedHistogram();
+        writeVarLong(out, corrected == null ? 0 : 1);
+        if (corrected != null) {
+            writeHistogram(out, corrected);
+        }
+    }
+
+    private static void writeHistogram(ByteArrayOutputStream out, HistogramSnapshot h) {
+        writeVarLong(out, h.getSum());
+        writeVarLong(out, h.getMax());
+        writeVarLong(out, h.getMin());
+        writeVarLong(out, h.getPrecisionBits());
+
+        int nonEmpty = 0;
+        for (int i = 0; i < h.getBucketCount(); i++) {
+            if (h.getCountAt(i) > 0) {
+                nonEmpty++;
+            }
+        }
+        writeVarLong(out, nonEmpty);
+        int previous = 0;
+        for (int i = 0; i < h.getBucketCount(); i++) {
+            long count = h.getCountAt(i);
+            if (count > 0) {
+                writeVarLong(out, i - previous);
+                writeVarLong(out, count);
+                previous = i;
+            }
+        }
+    }
+
+    private static HistogramLogReader.Interval decodeInterval(ByteBuffer in) throws IOException {
+        try {
+            long startMillis = readVarLong(in);
+            long endMillis = startMillis + readVarLong(in);
+            int seriesCount = readLength(in);
+            List<MetricSnapshot> series = new ArrayList<>(seriesCount);
+            for (int i = 0; i < seriesCount; i++) {
+                series.add(readSeries(in));
+            }
+            return new HistogramLogReader.Interval(startMillis, endMillis, series);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt histogram log block: " + e, e);
+        }
+    }
+
+    private static MetricSnapshot readSeries(ByteBuffer in) throws IOException {
+        String name = readString(in);
+        int tagCount = readLength(in);
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (int i = 0; i < tagCount; i++) {
+            tags.put(readString(in), readString(in));
+        }
+        long errors = readVarLong(in);
+        long cancelled = readVarLong(in);
+        HistogramSnapshot h = readHistogram(in);
+
+        int measurementCount = readLength(in);
+        Map<Measurement, Long> totals = new EnumMap<>(Measurement.class);
+        for (int i = 0; i < measurementCount; i++) {
+            String key = readString(in);
+            long total = readVarLong(in);
+            // Measurements added in later versions are skipped
+            for (Measurement measurement : Measurement.values()) {
+                if (measurement.getKey().equals(key)) {
+                    totals.put(measurement, total);
+                }
+            }
+        }
+
+        HistogramSnapshot corrected = readInt(in, 1) == 1 ? readHistogram(in) : null;
+        return new MetricSnapshot(MeterId.of(name, tags), h.getCount(), errors, cancelled, h.getSum(), h.getMax(),
+                Map.of(), h, totals, corrected, Map.of());
+    }
+
+    private static HistogramSnapshot readHistogram(ByteBuffer in) throws IOException {
+        long sum = readVarLong(in);
+        long max = readVarLong(in);
+        long min = readVarLong(in);
+        int precisionBits = readInt(in, 30);
+
+        int nonEmpty = readLength(in);
+        int[] indexes = new int[nonEmpty];
+        long[] values = new long[nonEmpty];
+        int index = 0;
+        for (int i = 0; i < nonEmpty; i++) {
+            index += readInt(in, MAX_BUCKETS - index);
+            indexes[i] = index;
+            values[i] = readVarLong(in);
+        }
+        long[] counts = new long[nonEmpty == 0 ? 0 : index + 1];
+        for (int i = 0; i < nonEmpty; i++) {
+            counts[indexes[i]] = values[i];
+        }
+        return new HistogramSnapshot(precisionBits, counts, sum, max, min);
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt histogram log: varint too long");
+    }
+
+    /**
+     * Reads a count or byte length, which cannot exceed the bytes in the block.
+     */
+    private static int readLength(ByteBuffer in) throws IOException {
+        return readInt(in, in.capacity());
+    }
+
+    private static int readInt(ByteBuffer in, int max) throws IOException {
+        long value = readVarLong(in);
+        if (value < 0 || value > max) {
+            throw new IOException("Corrupt histogram log: value " + value + " out of range");
+        }
+        return (int) value;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
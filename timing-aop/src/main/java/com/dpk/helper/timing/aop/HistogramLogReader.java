@@ -0,0 +1,89 @@
+package com.dpk.helper.timing.aop;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the intervals of a log written by {@link HistogramLogWriter}, oldest
+ * first. A block cut short by a crash ends the log quietly; any other damage
+ * is reported as an {@link IOException}.
+ */
+public final class HistogramLogReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final Inflater inflater = new Inflater();
+
+    private HistogramLogReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Opens {@code file} and checks its header.
+     *
+     * @throws IOException if the file cannot be read or is not a histogram log of a supported version
+     */
+    public static HistogramLogReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HistogramLog.FILE_HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading
+            }
+            header.flip();
+            if (header.remaining() < HistogramLog.FILE_HEADER_SIZE || header.getInt() != HistogramLog.FILE_MAGIC) {
+                throw new IOException("Not a histogram log: " + file);
+            }
+            int version = header.getInt();
+            if (version != HistogramLog.VERSION) {
+                throw new IOException("Unsupported histogram log version " + version + ": " + file);
+            }
+            return new HistogramLogReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads every interval in {@code file}.
+     */
+    public static List<Interval> readAll(Path file) throws IOException {
+        try (HistogramLogReader reader = open(file)) {
+            List<Interval> intervals = new ArrayList<>();
+            for (Interval interval = reader.next(); interval != null; interval = reader.next()) {
+                intervals.add(interval);
+            }
+            return intervals;
+        }
+    }
+
+    /**
+     * Returns the next interval, or {@code null} at the end of the log.
+     */
+    public Interval next() throws IOException {
+        return HistogramLog.readBlock(channel, inflater);
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    /**
+     * One interval of histogram data as stored in a log.
+     *
+     * @param startMillis epoch millis at which the interval began
+     * @param endMillis   epoch millis at which the interval ended
+     * @param series      one entry per series with activity; percentile maps are empty,
+     *                    query {@link MetricSnapshot#histogram()} instead
+     */
+    public record Interval(long startMillis, long endMillis, List<MetricSnapshot> series) {
+    }
+}
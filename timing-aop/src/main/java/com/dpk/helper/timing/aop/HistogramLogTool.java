@@ -0,0 +1,279 @@
+package com.dpk.helper.timing.aop;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Command-line tool for logs written by {@link HistogramLogWriter}.
+ * <pre>
+ * java -cp timing-aop.jar com.dpk.helper.timing.aop.HistogramLogTool &lt;command&gt; [options] &lt;log&gt;...
+ *
+ *   print  &lt;log&gt;...                      percentiles per series over all selected intervals
+ *   slice  -o &lt;out&gt; &lt;log&gt;...             copy the selected intervals to a new log, oldest first
+ *   merge  -o &lt;out&gt; [--interval &lt;s&gt;] &lt;log&gt;...
+ *                                     merge series across logs (e.g. nodes) into windows
+ *                                     of the given length, 60 s by default
+ *   diff   &lt;baseline&gt; &lt;candidate&gt;     percentile changes per series
+ *
+ *   --from / --to &lt;time&gt;             select intervals overlapping this range; ISO-8601
+ *                                     instant (2024-05-01T12:00:00Z) or epoch millis
+ * </pre>
+ * Histograms are merged bucket for bucket, so merged percentiles are exactly
+ * what a single histogram over all the data would report.
+ * Series with a histogram corrected for coordinated omission also get its
+ * percentiles, printed on a {@code corrected} line and diffed as {@code cp50},
+ * {@code cp99} and so on.
+ */
+public final class HistogramLogTool {
+
+    static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private HistogramLogTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        try {
+            System.exit(run(args, System.out));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: HistogramLogTool print|slice|merge|diff [-o out] [--interval seconds]"
+                    + " [--from time] [--to time] <log>...");
+            System.exit(2);
+        }
+    }
+
+    // Visible for testing
+    static int run(String[] args, PrintStream out) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Missing command");
+        }
+        String command = args[0];
+        Path output = null;
+        long intervalMillis = 60_000;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        List<Path> logs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-o" -> output = Path.of(value(args, ++i));
+                case "--interval" -> intervalMillis = Long.parseLong(value(args, ++i)) * 1_000;
+                case "--from" -> from = parseTime(value(args, ++i));
+                case "--to" -> to = parseTime(value(args, ++i));
+                default -> logs.add(Path.of(args[i]));
+            }
+        }
+        if (logs.isEmpty()) {
+            throw new IllegalArgumentException("No log files given");
+        }
+
+        switch (command) {
+            case "print" -> print(combine(read(logs, from, to)), out);
+            case "slice" -> write(requireOutput(output), read(logs, from, to));
+            case "merge" -> {
+                if (intervalMillis <= 0) {
+                    throw new IllegalArgumentException("--interval must be positive");
+                }
+                write(requireOutput(output), merge(read(logs, from, to), intervalMillis));
+            }
+            case "diff" -> {
+                if (logs.size() != 2) {
+                    throw new IllegalArgumentException("diff takes exactly two logs");
+                }
+                diff(combine(read(List.of(logs.get(0)), from, to)),
+                        combine(read(List.of(logs.get(1)), from, to)), out);
+            }
+            default -> throw new IllegalArgumentException("Unknown command: " + command);
+        }
+        out.flush();
+        return 0;
+    }
+
+    /**
+     * Reads the intervals of all {@code logs} that overlap {@code [from, to)}, oldest first.
+     */
+    static List<HistogramLogReader.Interval> read(List<Path> logs, long from, long to) throws IOException {
+        List<HistogramLogReader.Interval> intervals = new ArrayList<>();
+        for (Path log : logs) {
+            for (HistogramLogReader.Interval interval : HistogramLogReader.readAll(log)) {
+                if (interval.endMillis() > from && interval.startMillis() < to) {
+                    intervals.add(interval);
+                }
+            }
+        }
+        intervals.sort(Comparator.comparingLong(HistogramLogReader.Interval::startMillis));
+        return intervals;
+    }
+
+    /**
+     * Merges every series across {@code intervals} into one snapshot per id.
+     */
+    static Map<MeterId, MetricSnapshot> combine(List<HistogramLogReader.Interval> intervals) {
+        Map<MeterId, MetricSnapshot> combined = new LinkedHashMap<>();
+        for (HistogramLogReader.Interval interval : intervals) {
+            for (MetricSnapshot series : interval.series()) {
+                combined.merge(series.id(), series, HistogramLogTool::mergeSeries);
+            }
+        }
+        return combined;
+    }
+
+    /**
+     * Groups {@code intervals} into windows of {@code windowMillis}, aligned to
+     * the epoch, by start time, and merges each series within a window.
+     */
+    static List<HistogramLogReader.Interval> merge(List<HistogramLogReader.Interval> intervals,
+                                                   long windowMillis) {
+        Map<Long, List<HistogramLogReader.Interval>> windows = new TreeMap<>();
+        for (HistogramLogReader.Interval interval : intervals) {
+            long window = Math.floorDiv(interval.startMillis(), windowMillis) * windowMillis;
+            windows.computeIfAbsent(window, w -> new ArrayList<>()).add(interval);
+        }
+        List<HistogramLogReader.Interval> merged = new ArrayList<>(windows.size());
+        windows.forEach((start, members) -> merged.add(new HistogramLogReader.Interval(
+                start, start + windowMillis, new ArrayList<>(combine(members).values()))));
+        return merged;
+    }
+
+    static MetricSnapshot mergeSeries(MetricSnapshot a, MetricSnapshot b) {
+        HistogramSnapshot h = a.histogram().merge(b.histogram());
+        Map<Measurement, Long> totals = new EnumMap<>(Measurement.class);
+        totals.putAll(a.measurementTotals());
+        b.measurementTotals().forEach((measurement, total) -> totals.merge(measurement, total, Long::sum));
+        HistogramSnapshot corrected = a.correctedHistogram() == null ? b.correctedHistogram()
+                : b.correctedHistogram() == null ? a.correctedHistogram()
+                : a.correctedHistogram().merge(b.correctedHistogram());
+        return new MetricSnapshot(a.id(), h.getCount(), a.errorCount() + b.errorCount(),
+                a.cancelledCount() + b.cancelledCount(), h.getSum(), h.getMax(), Map.of(), h, totals,
+                corrected, Map.of());
+    }
+
+    static void print(Map<MeterId, MetricSnapshot> series, PrintStream out) {
+        for (MetricSnapshot s : sorted(series)) {
+            out.println(distribution(new StringBuilder(s.id().toString())
+                    .append(" count=").append(s.count())
+                    .append(" errors=").append(s.errorCount()), s.histogram()));
+            if (s.isCorrected()) {
+                out.println(distribution(new StringBuilder("  corrected count=")
+                        .append(s.correctedHistogram().getCount()), s.correctedHistogram()));
+            }
+        }
+    }
+
+    private static StringBuilder distribution(StringBuilder line, HistogramSnapshot h) {
+        line.append(String.format(" mean=%.3fms", h.getMean() / 1e6));
+        for (double percentile : PERCENTILES) {
+            line.append(String.format(" p%s=%.3fms", label(percentile),
+                    h.getValueAtPercentile(percentile) / 1e6));
+        }
+        return line.append(String.format(" max=%.3fms", h.getMax() / 1e6));
+    }
+
+    static void diff(Map<MeterId, MetricSnapshot> baseline, Map<MeterId, MetricSnapshot> candidate,
+                     PrintStream out) {
+        TreeSet<String> names = new TreeSet<>();
+        Map<String, MetricSnapshot> before = byName(baseline);
+        Map<String, MetricSnapshot> after = byName(candidate);
+        names.addAll(before.keySet());
+        names.addAll(after.keySet());
+        for (String name : names) {
+            MetricSnapshot a = before.get(name);
+            MetricSnapshot b = after.get(name);
+            out.println(name);
+            if (a == null || b == null) {
+                out.println(a == null ? "  only in candidate, count=" + b.count()
+                        : "  only in baseline, count=" + a.count());
+                continue;
+            }
+            out.printf("  %-6s %12d -> %12d%s%n", "count", a.count(), b.count(), change(a.count(), b.count()));
+            out.printf("  %-6s %12d -> %12d%s%n", "errors", a.errorCount(), b.errorCount(),
+                    change(a.errorCount(), b.errorCount()));
+            for (double percentile : PERCENTILES) {
+                diffLine(out, "p" + label(percentile), a.histogram().getValueAtPercentile(percentile),
+                        b.histogram().getValueAtPercentile(percentile));
+            }
+            diffLine(out, "max", a.histogram().getMax(), b.histogram().getMax());
+            if (a.isCorrected() && b.isCorrected()) {
+                for (double percentile : PERCENTILES) {
+                    diffLine(out, "cp" + label(percentile), a.correctedHistogram().getValueAtPercentile(percentile),
+                            b.correctedHistogram().getValueAtPercentile(percentile));
+                }
+            }
+        }
+    }
+
+    private static void diffLine(PrintStream out, String label, long beforeNanos, long afterNanos) {
+        out.printf("  %-6s %10.3fms -> %10.3fms%s%n", label, beforeNanos / 1e6, afterNanos / 1e6,
+                change(beforeNanos, afterNanos));
+    }
+
+    private static String change(long before, long after) {
+        if (before == 0) {
+            return after == 0 ? "" : "  (new)";
+        }
+        return String.format("  (%+.1f%%)", (after - before) * 100.0 / before);
+    }
+
+    private static String label(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+
+    private static List<MetricSnapshot> sorted(Map<MeterId, MetricSnapshot> series) {
+        List<MetricSnapshot> list = new ArrayList<>(series.values());
+        list.sort(Comparator.comparing(s -> s.id().toString()));
+        return list;
+    }
+
+    private static Map<String, MetricSnapshot> byName(Map<MeterId, MetricSnapshot> series) {
+        Map<String, MetricSnapshot> result = new LinkedHashMap<>();
+        series.forEach((id, s) -> result.put(id.toString(), s));
+        return result;
+    }
+
+    private static void write(Path output, List<HistogramLogReader.Interval> intervals) throws IOException {
+        // Inputs are already in memory, so the output may replace one of them
+        Files.deleteIfExists(output);
+        try (HistogramLogWriter writer = new HistogramLogWriter(output, Long.MAX_VALUE, 0)) {
+            for (HistogramLogReader.Interval interval : intervals) {
+                writer.append(interval.startMillis(), interval.endMillis(), interval.series());
+            }
+        }
+    }
+
+    private static Path requireOutput(Path output) {
+        if (output == null) {
+            throw new IllegalArgumentException("Missing -o <output>");
+        }
+        return output;
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    static long parseTime(String value) {
+        if (value.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(value);
+        }
+        try {
+            return Instant.parse(value).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time [" + value
+                    + "], expected an ISO-8601 instant or epoch millis");
+        }
+    }
+}
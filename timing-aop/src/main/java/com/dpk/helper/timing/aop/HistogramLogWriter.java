@@ -0,0 +1,159 @@
+package com.dpk.helper.timing.aop;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.zip.Deflater;
+
+/**
+ * Appends interval histogram snapshots to a compact binary log, for keeping
+ * latency distributions around after an incident or comparing them across
+ * deploys and nodes with {@link HistogramLogTool}.
+ *
+ * <p>Each {@link #append} writes one block with every series that had
+ * activity: its tags, outcome counters and the non-empty histogram buckets,
+ * deflate-compressed. A series with a histogram corrected for coordinated
+ * omission carries that one too. Histograms are stored bucket for bucket, so
+ * intervals and nodes merge without losing precision.
+ *
+ * <p>When the file would grow beyond {@code maxFileBytes} it is renamed to
+ * {@code <file>.1}, older files shift up to {@code <file>.<maxBackups>}, and
+ * the oldest is deleted. Reopening an existing log appends to it after
+ * dropping any block left incomplete by a crash.
+ *
+ * <p>Appending does file I/O on the calling thread; call it from a
+ * reporting scheduler, not from application threads.
+ */
+public class HistogramLogWriter implements AutoCloseable {
+
+    public static final long DEFAULT_MAX_FILE_BYTES = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_BACKUPS = 4;
+
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxBackups;
+    private final Deflater deflater = new Deflater();
+
+    private FileChannel channel;
+    private long lastAppendMillis = System.currentTimeMillis();
+
+    public HistogramLogWriter(Path file) throws IOException {
+        this(file, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_BACKUPS);
+    }
+
+    /**
+     * @param file         the log to create or append to
+     * @param maxFileBytes size at which the log is rotated
+     * @param maxBackups   rotated files to keep; 0 starts the log over instead
+     */
+    public HistogramLogWriter(Path file, long maxFileBytes, int maxBackups) throws IOException {
+        if (maxFileBytes <= HistogramLog.FILE_HEADER_SIZE) {
+            throw new IllegalArgumentException("maxFileBytes too small: " + maxFileBytes);
+        }
+        if (maxBackups < 0) {
+            throw new IllegalArgumentException("maxBackups must not be negative: " + maxBackups);
+        }
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxBackups = maxBackups;
+        this.channel = openForAppend(file);
+    }
+
+    /**
+     * Appends the interval since the previous append (or since this writer was
+     * created) from {@code source}'s {@link AggregatingMetricsReporter#intervalSnapshot()}.
+     * That makes this writer the reporter's interval consumer.
+     */
+    public synchronized void appendInterval(AggregatingMetricsReporter source) throws IOException {
+        long now = System.currentTimeMillis();
+        append(lastAppendMillis, now, source.intervalSnapshot());
+    }
+
+    /**
+     * Appends one interval. Series without recorded calls are left out.
+     */
+    public synchronized void append(long startMillis, long endMillis, Collection<MetricSnapshot> series)
+            throws IOException {
+        if (channel == null) {
+            throw new IOException("Histogram log is closed: " + file);
+        }
+        byte[] block = HistogramLog.encodeBlock(startMillis, endMillis, series, deflater);
+        long size = channel.size();
+        if (size > HistogramLog.FILE_HEADER_SIZE && size + block.length > maxFileBytes) {
+            rotate();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        lastAppendMillis = endMillis;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+            deflater.end();
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        channel = null;
+        if (maxBackups == 0) {
+            Files.delete(file);
+        } else {
+            Files.deleteIfExists(backup(maxBackups));
+            for (int i = maxBackups - 1; i >= 1; i--) {
+                if (Files.exists(backup(i))) {
+                    Files.move(backup(i), backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, backup(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = openForAppend(file);
+    }
+
+    private Path backup(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private static FileChannel openForAppend(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HistogramLog.FILE_HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HistogramLog.FILE_HEADER_SIZE);
+                header.putInt(HistogramLog.FILE_MAGIC).putInt(HistogramLog.VERSION).flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+                channel.position(HistogramLog.FILE_HEADER_SIZE);
+                return channel;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HistogramLog.FILE_HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != HistogramLog.FILE_MAGIC || header.getInt() != HistogramLog.VERSION) {
+                throw new IOException("Not a histogram log of version " + HistogramLog.VERSION + ": " + file);
+            }
+            long valid = HistogramLog.validLength(channel);
+            channel.truncate(valid);
+            channel.position(valid);
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.Arrays;
+
+/**
+ * Immutable point-in-time copy of a {@link LatencyHistogram}.
+ *
+ * <p>Snapshots with the same precision can be {@linkplain #merge merged}
+ * without losing information, e.g. to combine intervals or nodes.
+ */
+public final class HistogramSnapshot {
+
+    private final int precisionBits;
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+    private final long min;
+
+    public HistogramSnapshot(int precisionBits, long[] counts, long sum, long max, long min) {
+        this.precisionBits = precisionBits;
+        this.counts = counts;
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        this.count = total;
+        this.sum = sum;
+        this.max = max;
+        this.min = min;
+    }
+
+    public static HistogramSnapshot empty(int precisionBits) {
+        return new HistogramSnapshot(precisionBits, new long[0], 0, 0, 0);
+    }
+
+    public int getPrecisionBits() {
+        return precisionBits;
+    }
+
+    /**
+     * Number of recorded values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Sum of all recorded values.
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Number of buckets, i.e. the length of the count array.
+     */
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    public long getCountAt(int bucketIndex) {
+        return bucketIndex < counts.length ? counts[bucketIndex] : 0;
+    }
+
+    /**
+     * Smallest value that falls into the given bucket.
+     */
+    public long getBucketLowerBound(int bucketIndex) {
+        return LatencyHistogram.bucketLowerBound(bucketIndex, precisionBits);
+    }
+
+    /**
+     * Largest value that falls into the given bucket.
+     */
+    public long getBucketUpperBound(int bucketIndex) {
+        return LatencyHistogram.bucketUpperBound(bucketIndex, precisionBits);
+    }
+
+    /**
+     * Number of recorded values less than or equal to {@code value}, to
+     * within the precision of the bucket containing {@code value}.
+     */
+    public long getCountAtOrBelow(long value) {
+        int last = Math.min(LatencyHistogram.bucketIndex(Math.max(0, value), precisionBits), counts.length - 1);
+        long total = 0;
+        for (int i = 0; i <= last; i++) {
+            total += counts[i];
+        }
+        return total;
+    }
+
+    /**
+     * Value at the given percentile (0-100). Returns the highest value
+     * equivalent to the bucket the percentile falls into, capped at the
+     * recorded maximum, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        double clamped = Math.min(100.0, Math.max(0.0, percentile));
+        long target = Math.max(1, (long) Math.ceil(clamped / 100.0 * count));
+
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(LatencyHistogram.bucketUpperBound(i, precisionBits), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns a snapshot holding the values of both this and {@code other}.
+     */
+    public HistogramSnapshot merge(HistogramSnapshot other) {
+        if (other.precisionBits != precisionBits) {
+            throw new IllegalArgumentException("Cannot merge histograms with precision "
+                    + precisionBits + " and " + other.precisionBits);
+        }
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        long[] merged = Arrays.copyOf(counts, Math.max(counts.length, other.counts.length));
+        for (int i = 0; i < other.counts.length; i++) {
+            merged[i] += other.counts[i];
+        }
+        return new HistogramSnapshot(precisionBits, merged, sum + other.sum,
+                Math.max(max, other.max), Math.min(min, other.min));
+    }
+
+    /**
+     * Returns a copy of the per-bucket counts.
+     */
+    public long[] getCounts() {
+        return counts.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max + "}";
+    }
+}
@@ -0,0 +1,65 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of calls currently executing for one metric, plus the highest value
+ * seen since the peak was last reset.
+ *
+ * <p>The count is a {@link LongAdder}, so concurrent callers update separate
+ * cells instead of fighting over one, and entering or leaving never reads the
+ * cells back. The peak is maintained off the call path by {@link #sample()},
+ * which {@link InFlightTracker} calls periodically and on every read, so it is
+ * the highest count seen by a sample rather than an exact maximum.
+ */
+final class InFlightGauge {
+
+    private final MeterId id;
+    private final LongAdder inFlight = new LongAdder();
+    private final AtomicLong peak = new AtomicLong();
+
+    InFlightGauge(MeterId id) {
+        this.id = id;
+    }
+
+    MeterId getId() {
+        return id;
+    }
+
+    void increment() {
+        inFlight.increment();
+    }
+
+    void decrement() {
+        inFlight.decrement();
+    }
+
+    long get() {
+        return Math.max(0, inFlight.sum());
+    }
+
+    /**
+     * Returns the current count, raising the peak if it is higher.
+     */
+    long sample() {
+        long current = get();
+        if (current > peak.get()) {
+            peak.accumulateAndGet(current, Math::max);
+        }
+        return current;
+    }
+
+    long getPeak() {
+        return peak.get();
+    }
+
+    /**
+     * Returns the peak, including the current count, and starts a new interval
+     * from the current count.
+     */
+    long resetPeak() {
+        long current = get();
+        return Math.max(current, peak.getAndSet(current));
+    }
+}
@@ -0,0 +1,138 @@
+package com.dpk.helper.timing.aop;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of in-flight gauges for timed methods: how many calls of each
+ * metric are executing right now, and the peak since the last interval.
+ * Register one with {@link TimedAspect#setInFlightTracker(InFlightTracker)}.
+ *
+ * <p>Gauges are kept per metric name and static tags; dynamic tags are left
+ * out, so a stuck method shows up as one growing number. Every call is
+ * counted, including calls skipped by sampling. Methods returning a
+ * {@link java.util.concurrent.CompletionStage} stay in flight until the stage
+ * completes; for all other methods, including publishers, only the
+ * synchronous part counts.
+ *
+ * <p>Entering and leaving a call only update a striped counter. Peaks are
+ * taken from samples of the count: a daemon thread samples every gauge each
+ * {@code samplePeriod}, and every read samples too. A burst shorter than the
+ * period can be missed. Each sample sums every gauge's counter cells, so
+ * short periods cost CPU even when nothing is being timed. Close the
+ * tracker to stop the sampling thread.
+ *
+ * <p>By Little's law, the average number in flight equals throughput times
+ * mean latency, so comparing the two against timing data shows whether calls
+ * are queueing up.
+ */
+public class InFlightTracker implements AutoCloseable {
+
+    public static final Duration DEFAULT_SAMPLE_PERIOD = Duration.ofMillis(100);
+
+    private final ConcurrentMap<MeterId, InFlightGauge> gauges = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sampler;
+
+    public InFlightTracker() {
+        this(DEFAULT_SAMPLE_PERIOD);
+    }
+
+    /**
+     * @param samplePeriod how often peaks are sampled in the background;
+     *                     {@link Duration#ZERO} samples only on reads
+     */
+    public InFlightTracker(Duration samplePeriod) {
+        if (samplePeriod.isNegative()) {
+            throw new IllegalArgumentException("samplePeriod must not be negative: " + samplePeriod);
+        }
+        if (samplePeriod.isZero()) {
+            this.sampler = null;
+            return;
+        }
+        this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "timing-inflight-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodNanos = samplePeriod.toNanos();
+        this.sampler.scheduleAtFixedRate(this::sample, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns current and peak in-flight counts, leaving the peaks as they are.
+     */
+    public List<Snapshot> snapshot() {
+        List<Snapshot> result = new ArrayList<>(gauges.size());
+        for (InFlightGauge gauge : gauges.values()) {
+            long inFlight = gauge.sample();
+            result.add(new Snapshot(gauge.getId(), inFlight, gauge.getPeak()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns current in-flight counts and the peak since the previous call to
+     * this method, then resets each peak to the current count.
+     */
+    public List<Snapshot> intervalSnapshot() {
+        List<Snapshot> result = new ArrayList<>(gauges.size());
+        for (InFlightGauge gauge : gauges.values()) {
+            long peak = gauge.resetPeak();
+            result.add(new Snapshot(gauge.getId(), gauge.get(), peak));
+        }
+        return result;
+    }
+
+    /**
+     * Calls of {@code metricName} executing right now, summed over its static tag sets.
+     */
+    public long getInFlight(String metricName) {
+        long total = 0;
+        for (InFlightGauge gauge : gauges.values()) {
+            if (gauge.getId().getName().equals(metricName)) {
+                total += gauge.sample();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Stops the sampling thread. Counting goes on; peaks are then sampled on reads only.
+     */
+    @Override
+    public void close() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    InFlightGauge gauge(MeterId site) {
+        InFlightGauge gauge = gauges.get(site);
+        if (gauge == null) {
+            gauge = gauges.computeIfAbsent(site, InFlightGauge::new);
+        }
+        return gauge;
+    }
+
+    private void sample() {
+        for (InFlightGauge gauge : gauges.values()) {
+            gauge.sample();
+        }
+    }
+
+    /**
+     * In-flight state of one metric.
+     *
+     * @param id       metric name and static tags
+     * @param inFlight calls executing when the snapshot was taken
+     * @param peak     highest sampled concurrent call count in the interval
+     */
+    public record Snapshot(MeterId id, long inFlight, long peak) {
+    }
+}
@@ -0,0 +1,252 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent log-linear latency histogram in the style of HdrHistogram.
+ *
+ * <p>Values below {@code 2^precisionBits} get one bucket each. Above that,
+ * every power of two is split into {@code 2^(precisionBits - 1)} equal
+ * sub-buckets, so the relative error of any reported value is at most
+ * {@code 1 / 2^(precisionBits - 1)}. Values above the highest trackable
+ * value land in the last bucket; the exact maximum is still kept.
+ *
+ * <p>Recording is lock-free and allocation-free: one atomic add on a bucket
+ * counter, one {@link LongAdder} add for the sum, and a compare-and-set
+ * min/max update that only touches shared state when a new extreme is seen.
+ * Bucket counters can be striped across several arrays to keep threads
+ * recording into the same bucket off each other's cache lines.
+ *
+ * <p>{@link #snapshot()} is cumulative and may be called from any thread.
+ * {@link #intervalSnapshot()} returns what was recorded since its previous
+ * call and is meant to have a single consumer.
+ */
+public final class LatencyHistogram {
+
+    public static final int DEFAULT_PRECISION_BITS = 6;
+    public static final long DEFAULT_HIGHEST_TRACKABLE_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final int precisionBits;
+    private final int bucketCount;
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong intervalMax = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong intervalMin = new AtomicLong(Long.MAX_VALUE);
+
+    // Interval bookkeeping, owned by the intervalSnapshot() caller
+    private long[] lastCounts;
+    private long lastSum;
+
+    public LatencyHistogram() {
+        this(DEFAULT_PRECISION_BITS, DEFAULT_HIGHEST_TRACKABLE_NANOS, 1);
+    }
+
+    /**
+     * @param precisionBits    significant bits kept per value (2..14)
+     * @param highestTrackable largest value with its own bucket
+     * @param stripes          number of bucket arrays; rounded up to a power of two
+     */
+    public LatencyHistogram(int precisionBits, long highestTrackable, int stripes) {
+        if (precisionBits < 2 || precisionBits > 14) {
+            throw new IllegalArgumentException("precisionBits must be between 2 and 14: " + precisionBits);
+        }
+        if (highestTrackable < 1) {
+            throw new IllegalArgumentException("highestTrackable must be positive: " + highestTrackable);
+        }
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes must be positive: " + stripes);
+        }
+        this.precisionBits = precisionBits;
+        this.bucketCount = bucketIndex(highestTrackable, precisionBits) + 1;
+
+        int stripeCount = Integer.highestOneBit(stripes) == stripes ? stripes : Integer.highestOneBit(stripes) << 1;
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new AtomicLongArray(bucketCount);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.lastCounts = new long[bucketCount];
+    }
+
+    public int getPrecisionBits() {
+        return precisionBits;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * Records a single value. Negative values are recorded as zero.
+     */
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    /**
+     * Records {@code count} occurrences of the same value.
+     */
+    public void record(long value, long count) {
+        long v = Math.max(0, value);
+        int index = Math.min(bucketIndex(v, precisionBits), bucketCount - 1);
+
+        stripes[stripeMask == 0 ? 0 : (int) Thread.currentThread().threadId() & stripeMask]
+                .getAndAdd(index, count);
+        sum.add(v * count);
+
+        updateMax(max, v);
+        updateMax(intervalMax, v);
+        updateMin(min, v);
+        updateMin(intervalMin, v);
+    }
+
+    /**
+     * Records {@code count} occurrences of {@code value}, corrected for
+     * coordinated omission like HdrHistogram's {@code recordValueWithExpectedInterval}:
+     * if the value exceeds {@code expectedInterval}, the calls that should
+     * have started during it are back-filled as {@code value - expectedInterval},
+     * {@code value - 2 * expectedInterval} and so on, down to
+     * {@code expectedInterval}. Back-filled values are added one bucket at a
+     * time, so the cost grows with the number of buckets they span, not with
+     * the number of values.
+     */
+    public void recordWithExpectedInterval(long value, long count, long expectedInterval) {
+        record(value, count);
+        if (expectedInterval <= 0 || value <= expectedInterval) {
+            return;
+        }
+        AtomicLongArray stripe = stripes[stripeMask == 0 ? 0 : (int) Thread.currentThread().threadId() & stripeMask];
+        long missing = value - expectedInterval;
+        long backfilledSum = 0;
+        while (missing >= expectedInterval) {
+            int index = Math.min(bucketIndex(missing, precisionBits), bucketCount - 1);
+            long lowest = Math.max(expectedInterval, bucketLowerBound(index, precisionBits));
+            // Values missing, missing - expectedInterval, ... down to lowest share this bucket
+            long n = (missing - lowest) / expectedInterval + 1;
+            stripe.getAndAdd(index, n * count);
+            backfilledSum += n * missing - expectedInterval * (n * (n - 1) / 2);
+            missing -= n * expectedInterval;
+        }
+        sum.add(backfilledSum * count);
+        long smallest = missing + expectedInterval;
+        updateMin(min, smallest);
+        updateMin(intervalMin, smallest);
+    }
+
+    /**
+     * Sum of all recorded values.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Adds the current bucket counts to {@code target}, which must have at
+     * least {@link #getBucketCount()} elements. Does not allocate.
+     */
+    public void addCountsTo(long[] target) {
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < bucketCount; i++) {
+                target[i] += stripe.get(i);
+            }
+        }
+    }
+
+    /**
+     * Returns everything recorded since this histogram was created.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[bucketCount];
+        addCountsTo(counts);
+        long maxValue = max.get();
+        long minValue = min.get();
+        return new HistogramSnapshot(precisionBits, counts, sum.sum(),
+                maxValue == Long.MIN_VALUE ? 0 : maxValue,
+                minValue == Long.MAX_VALUE ? 0 : minValue);
+    }
+
+    /**
+     * Returns everything recorded since the previous call to this method
+     * (or since creation, on the first call).
+     */
+    public synchronized HistogramSnapshot intervalSnapshot() {
+        long[] current = new long[bucketCount];
+        addCountsTo(current);
+        long currentSum = sum.sum();
+        long maxValue = intervalMax.getAndSet(Long.MIN_VALUE);
+        long minValue = intervalMin.getAndSet(Long.MAX_VALUE);
+
+        long[] delta = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            delta[i] = current[i] - lastCounts[i];
+        }
+        long deltaSum = currentSum - lastSum;
+        lastCounts = current;
+        lastSum = currentSum;
+
+        return new HistogramSnapshot(precisionBits, delta, deltaSum,
+                maxValue == Long.MIN_VALUE ? 0 : maxValue,
+                minValue == Long.MAX_VALUE ? 0 : minValue);
+    }
+
+    private static void updateMax(AtomicLong target, long value) {
+        if (value > target.get()) {
+            target.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    private static void updateMin(AtomicLong target, long value) {
+        if (value < target.get()) {
+            target.accumulateAndGet(value, Math::min);
+        }
+    }
+
+    /**
+     * Bucket index of a non-negative value for the given precision.
+     */
+    static int bucketIndex(long value, int precisionBits) {
+        long subBucketCount = 1L << precisionBits;
+        if (value < subBucketCount) {
+            return (int) value;
+        }
+        int half = 1 << (precisionBits - 1);
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - precisionBits + 1;
+        return (int) subBucketCount + (shift - 1) * half + (int) ((value >>> shift) - half);
+    }
+
+    /**
+     * Smallest value that maps to the given bucket.
+     */
+    static long bucketLowerBound(int index, int precisionBits) {
+        int subBucketCount = 1 << precisionBits;
+        if (index < subBucketCount) {
+            return index;
+        }
+        int half = 1 << (precisionBits - 1);
+        int offset = index - subBucketCount;
+        int shift = offset / half + 1;
+        long subBucket = offset % half + half;
+        return subBucket << shift;
+    }
+
+    /**
+     * Largest value that maps to the given bucket.
+     */
+    static long bucketUpperBound(int index, int precisionBits) {
+        int subBucketCount = 1 << precisionBits;
+        if (index < subBucketCount) {
+            return index;
+        }
+        int half = 1 << (precisionBits - 1);
+        int shift = (index - subBucketCount) / half + 1;
+        return bucketLowerBound(index, precisionBits) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,223 @@
+package com.dpk.helper.timing.aop;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.BUCKET_COUNT_OFFSET;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.CANCELLED_COUNT;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.COUNT;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.CREATED_MILLIS_OFFSET;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.DROPPED_SERIES_OFFSET;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.ERROR_COUNT;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.HEADER_SIZE;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.INTS;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.KEY;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.KEY_CAPACITY_OFFSET;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.KEY_LENGTH;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.LONGS;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.MAGIC;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.MAGIC_OFFSET;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.MAX_NANOS;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.PRECISION_BITS_OFFSET;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.SEQUENCE;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.SLOT_CAPACITY_OFFSET;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.SLOT_SIZE_OFFSET;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.SUM_NANOS;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.USED_SLOTS_OFFSET;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.VERSION;
+import static com.dpk.helper.timing.aop.MappedMetricsReporter.VERSION_OFFSET;
+
+/**
+ * Reads a file written by {@link MappedMetricsReporter}, from this or any
+ * other process. The file is mapped read-only, so reading never touches the
+ * writing JVM.
+ *
+ * <p>Also runnable as a command-line tool:
+ * <pre>
+ * java -cp timing-aop.jar com.dpk.helper.timing.aop.MappedMetricsReader metrics.bin [intervalSeconds]
+ * </pre>
+ * which prints one line per series, once or every {@code intervalSeconds}.
+ */
+public final class MappedMetricsReader implements AutoCloseable {
+
+    private static final int MAX_RETRIES = 10_000;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCapacity;
+    private final int slotSize;
+    private final int bucketCount;
+    private final int precisionBits;
+    private final int keyCapacity;
+    private final int bucketsOffset;
+
+    private MappedMetricsReader(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.slotCapacity = buffer.getInt(SLOT_CAPACITY_OFFSET);
+        this.slotSize = buffer.getInt(SLOT_SIZE_OFFSET);
+        this.bucketCount = buffer.getInt(BUCKET_COUNT_OFFSET);
+        this.precisionBits = buffer.getInt(PRECISION_BITS_OFFSET);
+        this.keyCapacity = buffer.getInt(KEY_CAPACITY_OFFSET);
+        this.bucketsOffset = KEY + ((keyCapacity + 7) & ~7);
+    }
+
+    /**
+     * Maps {@code file} for reading.
+     *
+     * @throws IOException if the file cannot be read or is not a metrics file of a supported version
+     */
+    public static MappedMetricsReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a timing metrics file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if ((int) INTS.getAcquire(buffer, MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("Not a timing metrics file, or not initialized yet: " + file);
+            }
+            int version = buffer.getInt(VERSION_OFFSET);
+            if (version != VERSION) {
+                throw new IOException("Unsupported timing metrics file version " + version + ": " + file);
+            }
+            return new MappedMetricsReader(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a consistent copy of every series in the file, in slot order.
+     */
+    public List<MappedMetric> read() {
+        int used = Math.min((int) INTS.getAcquire(buffer, USED_SLOTS_OFFSET), slotCapacity);
+        List<MappedMetric> result = new ArrayList<>(used);
+        long[] buckets = new long[bucketCount];
+        for (int slot = 0; slot < used; slot++) {
+            MappedMetric metric = readSlot(HEADER_SIZE + slot * slotSize, buckets);
+            if (metric != null) {
+                result.add(metric);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of reports the writer dropped because every slot was taken.
+     */
+    public long getDroppedSeries() {
+        return (long) LONGS.getAcquire(buffer, DROPPED_SERIES_OFFSET);
+    }
+
+    public long getCreatedMillis() {
+        return buffer.getLong(CREATED_MILLIS_OFFSET);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Copies one slot, retrying while a writer is active. Returns {@code null}
+     * if the slot stayed busy, which only happens under extreme write rates.
+     */
+    private MappedMetric readSlot(int base, long[] buckets) {
+        int keyLength = buffer.getInt(base + KEY_LENGTH);
+        byte[] key = new byte[Math.min(keyLength, keyCapacity)];
+        buffer.get(base + KEY, key);
+
+        for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
+            long before = (long) LONGS.getAcquire(buffer, base + SEQUENCE);
+            if ((before & 1) != 0) {
+                backOff(attempt + 1);
+                continue;
+            }
+            long count = (long) LONGS.get(buffer, base + COUNT);
+            long errors = (long) LONGS.get(buffer, base + ERROR_COUNT);
+            long cancelled = (long) LONGS.get(buffer, base + CANCELLED_COUNT);
+            long sum = (long) LONGS.get(buffer, base + SUM_NANOS);
+            long max = (long) LONGS.get(buffer, base + MAX_NANOS);
+            for (int i = 0; i < bucketCount; i++) {
+                buckets[i] = (long) LONGS.get(buffer, base + bucketsOffset + i * Long.BYTES);
+            }
+            VarHandle.loadLoadFence();
+            long after = (long) LONGS.getOpaque(buffer, base + SEQUENCE);
+            if (before != after) {
+                backOff(attempt + 1);
+            } else {
+                HistogramSnapshot histogram = new HistogramSnapshot(precisionBits, buckets.clone(), sum, max, 0);
+                return new MappedMetric(new String(key, StandardCharsets.UTF_8), count, errors, cancelled, histogram);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Spins briefly, then yields so a descheduled writer can finish the slot.
+     */
+    private static void backOff(int attempt) {
+        if (attempt % 64 == 0) {
+            Thread.yield();
+        } else {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * One series read from the file.
+     *
+     * @param key            metric name and tags, as {@code name{tag=value, ...}}
+     * @param count          recorded invocations
+     * @param errorCount     invocations that failed
+     * @param cancelledCount asynchronous invocations that were cancelled
+     * @param histogram      latency distribution; its minimum is not tracked and reads as 0
+     */
+    public record MappedMetric(String key, long count, long errorCount, long cancelledCount,
+                               HistogramSnapshot histogram) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: MappedMetricsReader <file> [intervalSeconds]");
+            System.exit(2);
+        }
+        long intervalMillis = args.length == 2 ? Long.parseLong(args[1]) * 1_000 : 0;
+        try (MappedMetricsReader reader = open(Path.of(args[0]))) {
+            do {
+                print(reader, System.out);
+                if (intervalMillis > 0) {
+                    Thread.sleep(intervalMillis);
+                }
+            } while (intervalMillis > 0);
+        }
+    }
+
+    // Visible for testing
+    static void print(MappedMetricsReader reader, PrintStream out) {
+        for (MappedMetric metric : reader.read()) {
+            HistogramSnapshot h = metric.histogram();
+            out.printf("%s count=%d errors=%d cancelled=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms%n",
+                    metric.key(), metric.count(), metric.errorCount(), metric.cancelledCount(),
+                    h.getMean() / 1e6, h.getValueAtPercentile(50) / 1e6,
+                    h.getValueAtPercentile(99) / 1e6, h.getMax() / 1e6);
+        }
+        long dropped = reader.getDroppedSeries();
+        if (dropped > 0) {
+            out.printf("(%d reports dropped: file is full)%n", dropped);
+        }
+        out.flush();
+    }
+}
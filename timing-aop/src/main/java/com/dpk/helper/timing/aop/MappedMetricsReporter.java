@@ -0,0 +1,320 @@
+package com.dpk.helper.timing.aop;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link MetricsReporter} that keeps per-series counters and a latency
+ * histogram in a memory-mapped file, so other processes can read live data
+ * without any call into this JVM. Use {@link MappedMetricsReader} to read it.
+ *
+ * <p>Each series (metric name and tags) gets a fixed slot the first time it
+ * is reported. Calling threads only hand the measurement to an
+ * {@link AsyncMetricsReporter}; its drain thread is the single writer of the
+ * mapping. Recording is therefore a handful of plain stores, bracketed by a
+ * per-slot sequence number that the writer makes odd before updating the slot
+ * and publishes as the next even value afterwards. Readers never block the
+ * writer and retry if the sequence changed while they copied the slot.
+ * Measurements that arrive while the queue is full are dropped and counted in
+ * {@link #getDroppedCount()}.
+ *
+ * <h2>File layout</h2>
+ * All values are little-endian; offsets are in bytes.
+ * <pre>
+ * Header (64 bytes)
+ *   0  int   magic          {@value #MAGIC}, written last when the file is ready
+ *   4  int   version        {@value #VERSION}
+ *   8  int   slotCapacity   maximum number of series
+ *  12  int   slotSize       bytes per slot
+ *  16  int   bucketCount    histogram buckets per slot
+ *  20  int   precisionBits  histogram precision, see {@link LatencyHistogram}
+ *  24  int   keyCapacity    bytes reserved for each series key
+ *  28  int   usedSlots      slots in use; a slot's key is final once counted here
+ *  32  long  droppedSeries  reports dropped because all slots were taken
+ *  40  long  createdMillis  epoch millis when the file was created
+ *  48  -     reserved
+ *
+ * Slot i at 64 + i * slotSize
+ *   0  long  sequence       odd while a writer is updating the slot
+ *   8  long  count
+ *  16  long  errorCount
+ *  24  long  cancelledCount
+ *  32  long  sumNanos
+ *  40  long  maxNanos
+ *  48  int   keyLength
+ *  52  int   reserved
+ *  56  byte[keyCapacity]   UTF-8 key: name{tag=value, ...}, truncated to fit
+ *  56 + keyCapacity        long[bucketCount] histogram bucket counts
+ * </pre>
+ * Bucket {@code i} counts durations between {@code LatencyHistogram.bucketLowerBound(i, precisionBits)}
+ * and {@code bucketUpperBound(i, precisionBits)} nanoseconds; durations above
+ * the highest bucket are counted in the last one.
+ *
+ * <p>The file is recreated on construction. Close the reporter to flush the
+ * mapping to disk; readers see updates without a flush.
+ */
+public class MappedMetricsReporter implements MetricsReporter, AutoCloseable {
+
+    public static final int MAGIC = 0x544D4450;
+    public static final int VERSION = 1;
+
+    public static final int DEFAULT_SLOT_CAPACITY = 1024;
+    public static final int DEFAULT_PRECISION_BITS = 3;
+    public static final int DEFAULT_KEY_CAPACITY = 256;
+
+    static final int HEADER_SIZE = 64;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int SLOT_CAPACITY_OFFSET = 8;
+    static final int SLOT_SIZE_OFFSET = 12;
+    static final int BUCKET_COUNT_OFFSET = 16;
+    static final int PRECISION_BITS_OFFSET = 20;
+    static final int KEY_CAPACITY_OFFSET = 24;
+    static final int USED_SLOTS_OFFSET = 28;
+    static final int DROPPED_SERIES_OFFSET = 32;
+    static final int CREATED_MILLIS_OFFSET = 40;
+
+    static final int SEQUENCE = 0;
+    static final int COUNT = 8;
+    static final int ERROR_COUNT = 16;
+    static final int CANCELLED_COUNT = 24;
+    static final int SUM_NANOS = 32;
+    static final int MAX_NANOS = 40;
+    static final int KEY_LENGTH = 48;
+    static final int KEY = 56;
+
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCapacity;
+    private final int slotSize;
+    private final int bucketCount;
+    private final int precisionBits;
+    private final int keyCapacity;
+    private final int bucketsOffset;
+
+    private static final long FLUSH_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    // Owned by the drain thread of queue
+    private final Map<MeterId, Integer> slots = new HashMap<>();
+    private int usedSlots;
+
+    private final AsyncMetricsReporter queue;
+
+    public MappedMetricsReporter(Path file) throws IOException {
+        this(file, DEFAULT_SLOT_CAPACITY, DEFAULT_PRECISION_BITS, DEFAULT_KEY_CAPACITY);
+    }
+
+    /**
+     * @param file          the file to create or replace
+     * @param slotCapacity  maximum number of series; later series are counted as dropped
+     * @param precisionBits histogram precision (2..14); each step doubles the buckets per slot
+     * @param keyCapacity   bytes reserved for each series key
+     */
+    public MappedMetricsReporter(Path file, int slotCapacity, int precisionBits, int keyCapacity)
+            throws IOException {
+        if (slotCapacity < 1) {
+            throw new IllegalArgumentException("slotCapacity must be positive: " + slotCapacity);
+        }
+        if (precisionBits < 2 || precisionBits > 14) {
+            throw new IllegalArgumentException("precisionBits must be between 2 and 14: " + precisionBits);
+        }
+        if (keyCapacity < 1) {
+            throw new IllegalArgumentException("keyCapacity must be positive: " + keyCapacity);
+        }
+        this.slotCapacity = slotCapacity;
+        this.precisionBits = precisionBits;
+        this.keyCapacity = keyCapacity;
+        this.bucketCount = LatencyHistogram.bucketIndex(LatencyHistogram.DEFAULT_HIGHEST_TRACKABLE_NANOS,
+                precisionBits) + 1;
+        this.bucketsOffset = KEY + align8(keyCapacity);
+        this.slotSize = bucketsOffset + bucketCount * Long.BYTES;
+
+        long fileSize = HEADER_SIZE + (long) slotCapacity * slotSize;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Metrics file would exceed 2 GB: " + fileSize + " bytes");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(SLOT_CAPACITY_OFFSET, slotCapacity);
+        buffer.putInt(SLOT_SIZE_OFFSET, slotSize);
+        buffer.putInt(BUCKET_COUNT_OFFSET, bucketCount);
+        buffer.putInt(PRECISION_BITS_OFFSET, precisionBits);
+        buffer.putInt(KEY_CAPACITY_OFFSET, keyCapacity);
+        buffer.putLong(CREATED_MILLIS_OFFSET, System.currentTimeMillis());
+        INTS.setRelease(buffer, MAGIC_OFFSET, MAGIC);
+
+        this.queue = new AsyncMetricsReporter(new Writer());
+    }
+
+    @Override
+    public void report(String metricName, long durationNanos, Map<String, String> tags, Throwable exception) {
+        queue.report(MeterId.of(metricName, tags), durationNanos, exception);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception) {
+        queue.report(id, durationNanos, exception);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight) {
+        queue.report(id, durationNanos, exception, sampleWeight);
+    }
+
+    /**
+     * Number of series that have a slot in the file.
+     */
+    public int getUsedSlots() {
+        return (int) INTS.getAcquire(buffer, USED_SLOTS_OFFSET);
+    }
+
+    /**
+     * Number of measurements discarded because the writer's queue was full.
+     */
+    public long getDroppedCount() {
+        return queue.getDroppedCount();
+    }
+
+    /**
+     * Waits until every measurement reported before this call is in the file.
+     */
+    public void flush() {
+        long reported = queue.getEnqueuedCount();
+        while (queue.getDrainedCount() < reported) {
+            LockSupport.parkNanos(FLUSH_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Writes pending measurements, flushes the mapping to disk and closes the
+     * file. Measurements reported after closing are dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        queue.close();
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Runs on the drain thread only, so the slot can be updated with plain stores.
+     */
+    private void record(int base, long durationNanos, Outcome outcome, long count) {
+        long sequence = (long) LONGS.get(buffer, base + SEQUENCE);
+        LONGS.setOpaque(buffer, base + SEQUENCE, sequence + 1);
+        // Keep the slot updates below from becoming visible before the odd sequence
+        VarHandle.storeStoreFence();
+
+        addPlain(base + COUNT, count);
+        if (outcome == Outcome.FAILURE) {
+            addPlain(base + ERROR_COUNT, count);
+        } else if (outcome == Outcome.CANCELLED) {
+            addPlain(base + CANCELLED_COUNT, count);
+        }
+        addPlain(base + SUM_NANOS, durationNanos * count);
+        if (durationNanos > (long) LONGS.get(buffer, base + MAX_NANOS)) {
+            LONGS.set(buffer, base + MAX_NANOS, durationNanos);
+        }
+        int bucket = Math.min(LatencyHistogram.bucketIndex(durationNanos, precisionBits), bucketCount - 1);
+        addPlain(base + bucketsOffset + bucket * Long.BYTES, count);
+
+        LONGS.setRelease(buffer, base + SEQUENCE, sequence + 2);
+    }
+
+    private void addPlain(int offset, long delta) {
+        LONGS.set(buffer, offset, (long) LONGS.get(buffer, offset) + delta);
+    }
+
+    private int slotFor(MeterId id) {
+        Integer existing = slots.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        if (usedSlots == slotCapacity) {
+            return -1;
+        }
+        int slot = usedSlots;
+        int base = HEADER_SIZE + slot * slotSize;
+        byte[] key = truncate(id.toString().getBytes(StandardCharsets.UTF_8), keyCapacity);
+        buffer.put(base + KEY, key);
+        buffer.putInt(base + KEY_LENGTH, key.length);
+
+        usedSlots = slot + 1;
+        INTS.setRelease(buffer, USED_SLOTS_OFFSET, usedSlots);
+        slots.put(id, slot);
+        return slot;
+    }
+
+    private static byte[] truncate(byte[] key, int capacity) {
+        if (key.length <= capacity) {
+            return key;
+        }
+        // Do not cut a multi-byte UTF-8 sequence in half
+        int length = capacity;
+        while (length > 0 && (key[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        byte[] truncated = new byte[length];
+        System.arraycopy(key, 0, truncated, 0, length);
+        return truncated;
+    }
+
+    /**
+     * The single writer of the mapping, fed by the drain thread of {@link #queue}.
+     */
+    private final class Writer implements MetricsReporter {
+
+        @Override
+        public void report(String metricName, long durationNanos, Map<String, String> tags,
+                           Throwable exception) {
+            report(MeterId.of(metricName, tags), durationNanos, exception);
+        }
+
+        @Override
+        public void report(MeterId id, long durationNanos, Throwable exception) {
+            report(id, durationNanos, exception, 1.0);
+        }
+
+        @Override
+        public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight) {
+            long count = Sampler.toCount(sampleWeight);
+            if (count <= 0) {
+                return;
+            }
+            int slot = slotFor(id);
+            if (slot < 0) {
+                addPlain(DROPPED_SERIES_OFFSET, 1L);
+                return;
+            }
+            record(HEADER_SIZE + slot * slotSize, Math.max(0, durationNanos), Outcome.of(exception), count);
+        }
+    }
+
+    private static int align8(int value) {
+        return (value + 7) & ~7;
+    }
+}
@@ -0,0 +1,77 @@
+package com.dpk.helper.timing.aop;
+
+/**
+ * Kinds of per-invocation values, other than duration, that the timing aspects
+ * can pass to {@link MetricsReporter#reportValue(MeterId, Measurement, long, double)}.
+ */
+public enum Measurement {
+
+    /** CPU time of the calling thread, in nanoseconds. */
+    CPU_TIME_NANOS("cpu.time", true),
+
+    /** Heap bytes allocated by the calling thread. */
+    ALLOCATED_BYTES("allocated.bytes", false),
+
+    /** Time the calling thread spent blocked on monitor entry, in nanoseconds. */
+    BLOCKED_NANOS("blocked.time", true),
+
+    /** Time the calling thread spent waiting or parked, in nanoseconds. */
+    WAITED_NANOS("waited.time", true),
+
+    /** Time the JVM spent in GC pauses during the call, in nanoseconds; see {@link GcPauseTracker}. */
+    GC_PAUSE_NANOS("gc.pause", true),
+
+    /** Elements the caller consumed from a lazy result; see {@link com.dpk.helper.timing.Timed#lazyResult()}. */
+    ELEMENT_COUNT("elements", false),
+
+    /** Time from invocation to the first element of a lazy result, in nanoseconds. */
+    FIRST_ELEMENT_NANOS("first.element", true),
+
+    /** Tasks already waiting when an executor task was submitted; see {@link TimedExecutorService}. */
+    QUEUE_DEPTH("queue.depth", false),
+
+    /** Calls that completed normally since the previous report; see {@link CountedAspect}. */
+    SUCCESS_COUNT("calls.success", false, true),
+
+    /** Calls that threw or completed exceptionally since the previous report. */
+    FAILURE_COUNT("calls.failure", false, true),
+
+    /** Calls whose asynchronous result was cancelled since the previous report. */
+    CANCELLED_COUNT("calls.cancelled", false, true);
+
+    private final String key;
+    private final boolean duration;
+    private final boolean callCount;
+
+    Measurement(String key, boolean duration) {
+        this(key, duration, false);
+    }
+
+    Measurement(String key, boolean duration, boolean callCount) {
+        this.key = key;
+        this.duration = duration;
+        this.callCount = callCount;
+    }
+
+    /**
+     * Short name suitable as a metric name suffix or log key, e.g. {@code "cpu.time"}.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Whether values are nanoseconds, as opposed to a count or byte size.
+     */
+    public boolean isDuration() {
+        return duration;
+    }
+
+    /**
+     * Whether values are numbers of calls accumulated over a reporting
+     * interval, as opposed to a value of a single call.
+     */
+    public boolean isCallCount() {
+        return callCount;
+    }
+}
@@ -0,0 +1,192 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable identity of a timing series: a metric name plus its tags.
+ *
+ * <p>{@link TimedAspect} creates one <em>site</em> id per instrumented method,
+ * holding the metric name and static tags, and reuses it for every call. For
+ * methods with dynamic tags the site also knows the dynamic tag keys, and each
+ * call derives a child id via {@link #withDynamicValues(String...)} that only
+ * carries the evaluated values.
+ *
+ * <p>The hash code is computed once, and equality short-circuits on identity
+ * and on a shared site, so reporters can key their aggregation state by
+ * {@code MeterId} without hashing tag maps on every call. Two ids are equal
+ * when their names and full tag sets are equal, however they were built.
+ */
+public final class MeterId {
+
+    private static final String[] NO_VALUES = new String[0];
+
+    private final String name;
+    private final Map<String, String> staticTags;
+    private final String[] dynamicKeys;
+    private final MeterId site;
+    private final String[] dynamicValues;
+    private final int staticTagsHash;
+    private final int overriddenStaticHash;
+    private final int hash;
+
+    // Lazily built for child ids; safe to race since the map is immutable
+    private Map<String, String> tags;
+
+    private MeterId(String name, Map<String, String> staticTags, String[] dynamicKeys) {
+        this.name = name;
+        this.staticTags = staticTags;
+        this.dynamicKeys = dynamicKeys;
+        this.site = this;
+        this.dynamicValues = NO_VALUES;
+        this.staticTagsHash = staticTags.hashCode();
+
+        int overridden = 0;
+        for (String key : dynamicKeys) {
+            String staticValue = staticTags.get(key);
+            if (staticValue != null) {
+                overridden += key.hashCode() ^ staticValue.hashCode();
+            }
+        }
+        this.overriddenStaticHash = overridden;
+        this.hash = 31 * name.hashCode() + staticTagsHash;
+        this.tags = staticTags;
+    }
+
+    private MeterId(MeterId site, String[] dynamicValues) {
+        this.name = site.name;
+        this.staticTags = site.staticTags;
+        this.dynamicKeys = site.dynamicKeys;
+        this.site = site;
+        this.dynamicValues = dynamicValues;
+        this.staticTagsHash = site.staticTagsHash;
+        this.overriddenStaticHash = site.overriddenStaticHash;
+
+        // Same value Map.hashCode() would give for the merged tag map
+        int tagsHash = staticTagsHash - overriddenStaticHash;
+        for (int i = 0; i < dynamicKeys.length; i++) {
+            tagsHash += dynamicKeys[i].hashCode() ^ dynamicValues[i].hashCode();
+        }
+        this.hash = 31 * name.hashCode() + tagsHash;
+    }
+
+    /**
+     * Creates an id with a fixed set of tags.
+     */
+    public static MeterId of(String name, Map<String, String> tags) {
+        return of(name, tags, NO_VALUES);
+    }
+
+    /**
+     * Creates a site id with static tags and the keys of tags whose values
+     * are supplied per call through {@link #withDynamicValues(String...)}.
+     * A dynamic key that is also a static key overrides the static value.
+     */
+    public static MeterId of(String name, Map<String, String> staticTags, String... dynamicKeys) {
+        if (name == null) {
+            throw new IllegalArgumentException("name must not be null");
+        }
+        Set<String> seen = new HashSet<>();
+        for (String key : dynamicKeys) {
+            if (!seen.add(key)) {
+                throw new IllegalArgumentException("Duplicate dynamic tag key: " + key);
+            }
+        }
+        Map<String, String> copy = staticTags.isEmpty()
+                ? Map.of()
+                : Collections.unmodifiableMap(new LinkedHashMap<>(staticTags));
+        return new MeterId(name, copy, dynamicKeys.length == 0 ? NO_VALUES : dynamicKeys.clone());
+    }
+
+    /**
+     * Derives the id for one call from this site id. Values are matched to
+     * the site's dynamic keys by position; the array is not copied.
+     */
+    public MeterId withDynamicValues(String... values) {
+        if (site != this) {
+            throw new IllegalStateException("Dynamic values can only be applied to a site id");
+        }
+        if (values.length != dynamicKeys.length) {
+            throw new IllegalArgumentException("Expected " + dynamicKeys.length
+                    + " dynamic tag values but got " + values.length);
+        }
+        if (values.length == 0) {
+            return this;
+        }
+        return new MeterId(this, values);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the full, immutable tag map: static tags merged with any dynamic values.
+     */
+    public Map<String, String> getTags() {
+        Map<String, String> result = tags;
+        if (result == null) {
+            Map<String, String> merged = new LinkedHashMap<>(staticTags);
+            for (int i = 0; i < dynamicKeys.length; i++) {
+                merged.put(dynamicKeys[i], dynamicValues[i]);
+            }
+            result = Collections.unmodifiableMap(merged);
+            tags = result;
+        }
+        return result;
+    }
+
+    /**
+     * The site id this id was derived from, or this id itself if it is a site.
+     */
+    public MeterId getSite() {
+        return site;
+    }
+
+    public boolean isSite() {
+        return site == this;
+    }
+
+    public int getDynamicTagCount() {
+        return dynamicKeys.length;
+    }
+
+    public String getDynamicKey(int index) {
+        return dynamicKeys[index];
+    }
+
+    /**
+     * The value of the dynamic tag at {@code index}, or {@code null} for a site id.
+     */
+    public String getDynamicValue(int index) {
+        return dynamicValues.length == 0 ? null : dynamicValues[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MeterId other) || hash != other.hash) {
+            return false;
+        }
+        if (site == other.site && !isSite() && !other.isSite()) {
+            return Arrays.equals(dynamicValues, other.dynamicValues);
+        }
+        return name.equals(other.name) && getTags().equals(other.getTags());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name + getTags();
+    }
+}
@@ -0,0 +1,128 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A reusable, fixed-capacity batch of timing measurements handed to a
+ * {@link BatchMetricsReporter}. Entries are accessed by index.
+ *
+ * <p>Most entries are call durations. Entries for which {@link #measurement(int)}
+ * is not {@code null} carry an additional value reported through
+ * {@link MetricsReporter#reportValue(MeterId, Measurement, long, double)};
+ * read it with {@link #value(int)}.
+ */
+public final class MetricBatch {
+
+    private final MeterId[] ids;
+    private final long[] durations;
+    private final double[] weights;
+    private final Throwable[] exceptions;
+    private final Measurement[] measurements;
+    private final long[] intervals;
+    private int size;
+
+    MetricBatch(int capacity) {
+        this.ids = new MeterId[capacity];
+        this.durations = new long[capacity];
+        this.weights = new double[capacity];
+        this.exceptions = new Throwable[capacity];
+        this.measurements = new Measurement[capacity];
+        this.intervals = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public MeterId id(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    public String metricName(int index) {
+        return id(index).getName();
+    }
+
+    public long durationNanos(int index) {
+        checkIndex(index);
+        return durations[index];
+    }
+
+    /**
+     * What the value at {@code index} measures, or {@code null} if the entry is a call duration.
+     */
+    public Measurement measurement(int index) {
+        checkIndex(index);
+        return measurements[index];
+    }
+
+    /**
+     * The value of a {@link #measurement(int) measurement} entry.
+     */
+    public long value(int index) {
+        checkIndex(index);
+        return durations[index];
+    }
+
+    public Map<String, String> tags(int index) {
+        return id(index).getTags();
+    }
+
+    /**
+     * Number of invocations the measurement stands for, see
+     * {@link MetricsReporter#report(MeterId, long, Throwable, double)}.
+     */
+    public double sampleWeight(int index) {
+        checkIndex(index);
+        return weights[index];
+    }
+
+    /**
+     * Intended time between calls of a duration entry, or 0 if none was given, see
+     * {@link MetricsReporter#report(MeterId, long, Throwable, double, long)}.
+     */
+    public long expectedIntervalNanos(int index) {
+        checkIndex(index);
+        return intervals[index];
+    }
+
+    /**
+     * The exception thrown by the timed invocation, or {@code null} on success.
+     */
+    public Throwable exception(int index) {
+        checkIndex(index);
+        return exceptions[index];
+    }
+
+    int capacity() {
+        return durations.length;
+    }
+
+    void add(MeterId id, long durationNanos, Throwable exception, double sampleWeight) {
+        add(id, null, durationNanos, exception, sampleWeight, 0);
+    }
+
+    void add(MeterId id, Measurement measurement, long value, Throwable exception, double sampleWeight,
+             long expectedIntervalNanos) {
+        ids[size] = id;
+        intervals[size] = expectedIntervalNanos;
+        measurements[size] = measurement;
+        durations[size] = value;
+        weights[size] = sampleWeight;
+        exceptions[size] = exception;
+        size++;
+    }
+
+    void clear() {
+        Arrays.fill(ids, 0, size, null);
+        Arrays.fill(exceptions, 0, size, null);
+        size = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for batch of size " + size);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.Map;
+
+/**
+ * Aggregated timing data for one metric name and tag set, as handed out by
+ * {@link AggregatingMetricsReporter}.
+ *
+ * @param id          the metric name and tags identifying this series
+ * @param count       number of recorded invocations
+ * @param errorCount  number of invocations that threw or completed exceptionally
+ * @param cancelledCount number of asynchronous invocations that were cancelled
+ * @param sumNanos    total recorded time in nanoseconds
+ * @param maxNanos    slowest recorded invocation in nanoseconds
+ * @param percentiles configured percentile (0-100) to value in nanoseconds
+ * @param histogram   the underlying latency distribution
+ * @param measurementTotals sum of each {@link Measurement} reported for this series;
+ *                    absent measurements were never reported
+ * @param correctedHistogram the distribution corrected for coordinated omission, or {@code null}
+ *                    if the series was not reported with an expected interval; its count
+ *                    includes the back-filled calls
+ * @param correctedPercentiles configured percentile (0-100) to corrected value in
+ *                    nanoseconds; empty if there is no corrected distribution
+ */
+public record MetricSnapshot(
+        MeterId id,
+        long count,
+        long errorCount,
+        long cancelledCount,
+        long sumNanos,
+        long maxNanos,
+        Map<Double, Long> percentiles,
+        HistogramSnapshot histogram,
+        Map<Measurement, Long> measurementTotals,
+        HistogramSnapshot correctedHistogram,
+        Map<Double, Long> correctedPercentiles
+) {
+
+    /**
+     * Creates a snapshot without a corrected distribution.
+     */
+    public MetricSnapshot(MeterId id, long count, long errorCount, long cancelledCount, long sumNanos, long maxNanos,
+                          Map<Double, Long> percentiles, HistogramSnapshot histogram,
+                          Map<Measurement, Long> measurementTotals) {
+        this(id, count, errorCount, cancelledCount, sumNanos, maxNanos, percentiles, histogram, measurementTotals,
+                null, Map.of());
+    }
+
+    public String metricName() {
+        return id.getName();
+    }
+
+    public Map<String, String> tags() {
+        return id.getTags();
+    }
+
+    /**
+     * Whether the series also has a distribution corrected for coordinated
+     * omission, see {@link com.dpk.helper.timing.Timed#expectedIntervalNanos()}.
+     */
+    public boolean isCorrected() {
+        return correctedHistogram != null;
+    }
+
+    /**
+     * Sum of {@code measurement} over the recorded invocations, or 0 if it was not reported.
+     */
+    public long total(Measurement measurement) {
+        return measurementTotals.getOrDefault(measurement, 0L);
+    }
+}
@@ -7,6 +7,11 @@ import java.util.Map;
  *
  * <p>Implement this interface to integrate with your preferred metrics
  * backend (Micrometer, StatsD, Prometheus, etc.).
+ *
+ * <p>{@link TimedAspect} calls {@link #report(MeterId, long, Throwable)}, which
+ * by default forwards to the map-based method. Reporters that aggregate can
+ * override it to key their state by the pre-built {@link MeterId} instead of
+ * hashing the tag map on every call.
  */
 public interface MetricsReporter {
 
@@ -19,4 +24,70 @@ public interface MetricsReporter {
      * @param exception    the exception thrown during execution, or {@code null} on success
      */
     void report(String metricName, long durationNanos, Map<String, String> tags, Throwable exception);
+
+    /**
+     * Reports a timing measurement identified by a {@link MeterId}.
+     *
+     * <p>The default implementation forwards to
+     * {@link #report(String, long, Map, Throwable)}.
+     *
+     * @param id            the metric name and tags
+     * @param durationNanos elapsed time in nanoseconds
+     * @param exception     the exception thrown during execution, or {@code null} on success
+     */
+    default void report(MeterId id, long durationNanos, Throwable exception) {
+        report(id.getName(), durationNanos, id.getTags(), exception);
+    }
+
+    /**
+     * Reports a sampled timing measurement. {@code sampleWeight} is the number
+     * of invocations this measurement stands for (1 when every call is timed),
+     * so counting reporters can scale their totals back up.
+     *
+     * <p>The default implementation ignores the weight and forwards to
+     * {@link #report(MeterId, long, Throwable)}.
+     *
+     * @param id            the metric name and tags
+     * @param durationNanos elapsed time in nanoseconds
+     * @param exception     the exception thrown during execution, or {@code null} on success
+     * @param sampleWeight  invocations represented by this measurement, at least 1
+     */
+    default void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight) {
+        report(id, durationNanos, exception);
+    }
+
+    /**
+     * Reports a timing measurement of a method its callers invoke every
+     * {@code expectedIntervalNanos}, see {@link com.dpk.helper.timing.Timed#expectedIntervalNanos()}.
+     * Reporters that keep a distribution can use the interval to correct it
+     * for coordinated omission.
+     *
+     * <p>The default implementation ignores the interval and forwards to
+     * {@link #report(MeterId, long, Throwable, double)}.
+     *
+     * @param id                    the metric name and tags
+     * @param durationNanos         elapsed time in nanoseconds
+     * @param exception             the exception thrown during execution, or {@code null} on success
+     * @param sampleWeight          invocations represented by this measurement, at least 1
+     * @param expectedIntervalNanos intended time between the starts of two calls, positive
+     */
+    default void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight,
+                        long expectedIntervalNanos) {
+        report(id, durationNanos, exception, sampleWeight);
+    }
+
+    /**
+     * Reports an additional per-invocation value, such as CPU time or allocated
+     * bytes, for the call identified by {@code id}. Values are reported before
+     * the call's duration.
+     *
+     * <p>The default implementation ignores the value.
+     *
+     * @param id           the metric name and tags of the timed call
+     * @param measurement  what the value measures
+     * @param value        the measured value, in the unit of {@code measurement}
+     * @param sampleWeight invocations represented by this measurement, at least 1
+     */
+    default void reportValue(MeterId id, Measurement measurement, long value, double sampleWeight) {
+    }
 }
@@ -0,0 +1,408 @@
+package com.dpk.helper.timing.aop;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Serves the data of an {@link AggregatingMetricsReporter} in the OpenMetrics
+ * text format, for Prometheus and compatible scrapers.
+ *
+ * <p>Every series is exported as part of two metric families:
+ * <ul>
+ *   <li>{@code timed_seconds}, a histogram with cumulative {@code le} buckets,
+ *       {@code _count} and {@code _sum}</li>
+ *   <li>{@code timed_outcomes_total}, a counter per outcome
+ *       ({@code success}, {@code failure}, {@code cancelled})</li>
+ * </ul>
+ * Series that keep a distribution corrected for coordinated omission (see
+ * {@link com.dpk.helper.timing.Timed#expectedIntervalNanos()}) also appear in
+ * the {@code timed_corrected_seconds} histogram, whose count includes the
+ * back-filled calls.
+ * The metric name is carried in a {@code metric} label, followed by the
+ * series' tags. Bucket counts come from the aggregator's finer log-linear
+ * buckets, so a bucket may include values up to one sub-bucket above its
+ * {@code le} bound.
+ *
+ * <p>A scrape reads the live counters directly and renders into a byte
+ * buffer that is reused across scrapes; label text is encoded once per series.
+ * Recording threads never wait for a scrape. Scrapes are serialized, and
+ * their cost is linear in the number of series.
+ */
+public class OpenMetricsExporter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenMetricsExporter.class);
+
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    /** Default bucket bounds in seconds, from 1 ms to 10 s. */
+    public static final double[] DEFAULT_BUCKETS = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0
+    };
+
+    private static final byte[] HISTOGRAM_HEADER = ascii(
+            "# TYPE timed_seconds histogram\n"
+            + "# UNIT timed_seconds seconds\n"
+            + "# HELP timed_seconds Duration of @Timed method invocations.\n");
+    private static final byte[] CORRECTED_HEADER = ascii(
+            "# TYPE timed_corrected_seconds histogram\n"
+            + "# UNIT timed_corrected_seconds seconds\n"
+            + "# HELP timed_corrected_seconds Duration of fixed-rate @Timed method invocations, "
+            + "corrected for coordinated omission.\n");
+    private static final byte[] OUTCOMES_HEADER = ascii(
+            "# TYPE timed_outcomes counter\n"
+            + "# HELP timed_outcomes Completed @Timed method invocations by outcome.\n");
+    private static final byte[] EOF = ascii("# EOF\n");
+
+    private final AggregatingMetricsReporter aggregator;
+    private final long[] bucketBoundsNanos;
+    private final byte[][] bucketLabels;
+    private final ConcurrentMap<MeterId, byte[]> labels = new ConcurrentHashMap<>();
+    private final HttpServer server;
+
+    // Scrape state, guarded by this
+    private byte[] buffer = new byte[64 * 1024];
+    private int size;
+    private long[] counts = new long[0];
+    private boolean correctedHeaderWritten;
+
+    /**
+     * Creates an exporter without an HTTP server; use {@link #writeTo(OutputStream)}.
+     */
+    public OpenMetricsExporter(AggregatingMetricsReporter aggregator) {
+        this(aggregator, DEFAULT_BUCKETS, (HttpServer) null);
+    }
+
+    /**
+     * Serves {@code /metrics} on {@code address} with the default buckets.
+     */
+    public OpenMetricsExporter(AggregatingMetricsReporter aggregator, InetSocketAddress address) throws IOException {
+        this(aggregator, DEFAULT_BUCKETS, address);
+    }
+
+    /**
+     * @param aggregator   the data to export
+     * @param bucketBounds histogram {@code le} bounds in seconds, ascending; {@code +Inf} is added
+     * @param address      where to serve {@code /metrics}, or {@code null} for no server
+     */
+    public OpenMetricsExporter(AggregatingMetricsReporter aggregator, double[] bucketBounds,
+                               InetSocketAddress address) throws IOException {
+        this(aggregator, checkBounds(bucketBounds), address == null ? null : HttpServer.create(address, 0));
+    }
+
+    private OpenMetricsExporter(AggregatingMetricsReporter aggregator, double[] bucketBounds, HttpServer server) {
+        this.aggregator = aggregator;
+        this.bucketBoundsNanos = new long[bucketBounds.length];
+        this.bucketLabels = new byte[bucketBounds.length + 1][];
+        for (int i = 0; i < bucketBounds.length; i++) {
+            bucketBoundsNanos[i] = Math.round(bucketBounds[i] * 1_000_000_000L);
+            bucketLabels[i] = ascii("le=\"" + bucketBounds[i] + "\"} ");
+        }
+        bucketLabels[bucketBounds.length] = ascii("le=\"+Inf\"} ");
+
+        this.server = server;
+        if (server != null) {
+            server.createContext("/metrics", this::handle);
+            server.start();
+            log.info("Serving timing metrics on http://{}:{}/metrics",
+                    server.getAddress().getHostString(), server.getAddress().getPort());
+        }
+    }
+
+    /**
+     * The address the server is bound to, or {@code null} if there is no server.
+     */
+    public InetSocketAddress getAddress() {
+        return server == null ? null : server.getAddress();
+    }
+
+    /**
+     * Renders the current data and writes it to {@code out}.
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        render();
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * Renders the current data as a string.
+     */
+    public synchronized String scrape() {
+        render();
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stops the HTTP server, if any.
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            synchronized (this) {
+                render();
+                exchange.sendResponseHeaders(200, size);
+                exchange.getResponseBody().write(buffer, 0, size);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to serve timing metrics scrape", e);
+            throw e;
+        }
+    }
+
+    private void render() {
+        size = 0;
+        write(HISTOGRAM_HEADER);
+        aggregator.forEachSeries((id, histogram, errorCount, cancelledCount) ->
+                renderHistogram("timed_seconds", id, histogram));
+        correctedHeaderWritten = false;
+        aggregator.forEachCorrectedSeries(this::renderCorrected);
+        write(OUTCOMES_HEADER);
+        aggregator.forEachSeries(this::renderOutcomes);
+        write(EOF);
+    }
+
+    private void renderCorrected(MeterId id, LatencyHistogram histogram) {
+        if (!correctedHeaderWritten) {
+            write(CORRECTED_HEADER);
+            correctedHeaderWritten = true;
+        }
+        renderHistogram("timed_corrected_seconds", id, histogram);
+    }
+
+    private void renderHistogram(String family, MeterId id, LatencyHistogram histogram) {
+        byte[] seriesLabels = labelsFor(id);
+        int bucketCount = histogram.getBucketCount();
+        if (counts.length < bucketCount) {
+            counts = new long[bucketCount];
+        }
+        Arrays.fill(counts, 0, bucketCount, 0);
+        histogram.addCountsTo(counts);
+        long sum = histogram.getSum();
+
+        int precisionBits = histogram.getPrecisionBits();
+        long cumulative = 0;
+        int next = 0;
+        for (int b = 0; b < bucketBoundsNanos.length; b++) {
+            int last = Math.min(LatencyHistogram.bucketIndex(bucketBoundsNanos[b], precisionBits), bucketCount - 1);
+            for (; next <= last; next++) {
+                cumulative += counts[next];
+            }
+            writeBucket(family, seriesLabels, bucketLabels[b], cumulative);
+        }
+        for (; next < bucketCount; next++) {
+            cumulative += counts[next];
+        }
+        writeBucket(family, seriesLabels, bucketLabels[bucketBoundsNanos.length], cumulative);
+
+        write(family);
+        write("_count{");
+        write(seriesLabels);
+        write("} ");
+        writeLong(cumulative);
+        write('\n');
+        write(family);
+        write("_sum{");
+        write(seriesLabels);
+        write("} ");
+        writeSeconds(sum);
+        write('\n');
+    }
+
+    private void renderOutcomes(MeterId id, LatencyHistogram histogram, long errorCount, long cancelledCount) {
+        byte[] seriesLabels = labelsFor(id);
+        int bucketCount = histogram.getBucketCount();
+        if (counts.length < bucketCount) {
+            counts = new long[bucketCount];
+        }
+        Arrays.fill(counts, 0, bucketCount, 0);
+        histogram.addCountsTo(counts);
+        long total = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            total += counts[i];
+        }
+        writeOutcome(seriesLabels, "success", Math.max(0, total - errorCount - cancelledCount));
+        writeOutcome(seriesLabels, "failure", errorCount);
+        writeOutcome(seriesLabels, "cancelled", cancelledCount);
+    }
+
+    private void writeBucket(String family, byte[] seriesLabels, byte[] le, long cumulative) {
+        write(family);
+        write("_bucket{");
+        write(seriesLabels);
+        write(',');
+        write(le);
+        writeLong(cumulative);
+        write('\n');
+    }
+
+    private void writeOutcome(byte[] seriesLabels, String outcome, long value) {
+        write("timed_outcomes_total{");
+        write(seriesLabels);
+        write(",outcome=\"");
+        write(outcome);
+        write("\"} ");
+        writeLong(value);
+        write('\n');
+    }
+
+    private byte[] labelsFor(MeterId id) {
+        byte[] encoded = labels.get(id);
+        if (encoded == null) {
+            encoded = labels.computeIfAbsent(id, OpenMetricsExporter::encodeLabels);
+        }
+        return encoded;
+    }
+
+    private static double[] checkBounds(double[] bucketBounds) {
+        for (int i = 0; i < bucketBounds.length; i++) {
+            if (bucketBounds[i] <= 0 || (i > 0 && bucketBounds[i] <= bucketBounds[i - 1])) {
+                throw new IllegalArgumentException("Bucket bounds must be positive and ascending: "
+                        + Arrays.toString(bucketBounds));
+            }
+        }
+        return bucketBounds.clone();
+    }
+
+    /**
+     * Encodes the labels of one series. Tag keys that map to the same label
+     * name, such as {@code a.b} and {@code a-b}, get a numeric suffix so
+     * every label name is unique; duplicates would make the scrape invalid.
+     */
+    // Visible for testing
+    static byte[] encodeLabels(MeterId id) {
+        StringBuilder sb = new StringBuilder("metric=\"");
+        escape(id.getName(), sb);
+        sb.append('"');
+        Set<String> used = new HashSet<>(List.of("metric", "le", "outcome"));
+        for (Map.Entry<String, String> tag : id.getTags().entrySet()) {
+            sb.append(',');
+            String name = labelName(tag.getKey());
+            if (!used.add(name)) {
+                String unique = name;
+                for (int suffix = 2; !used.add(unique); suffix++) {
+                    unique = name + "_" + suffix;
+                }
+                log.warn("Tag [{}] of [{}] clashes with another tag as label {}; exported as {}",
+                        tag.getKey(), id.getName(), name, unique);
+                name = unique;
+            }
+            sb.append(name).append("=\"");
+            escape(tag.getValue(), sb);
+            sb.append('"');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Maps a tag key to a valid label name that cannot clash with the labels this exporter adds.
+     */
+    static String labelName(String key) {
+        StringBuilder sb = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_'
+                    || (i > 0 && c >= '0' && c <= '9');
+            sb.append(valid ? c : '_');
+        }
+        String name = sb.toString();
+        if (name.isEmpty() || name.equals("metric") || name.equals("le") || name.equals("outcome")
+                || name.startsWith("__")) {
+            return "tag_" + name;
+        }
+        return name;
+    }
+
+    private static void escape(String value, StringBuilder sb) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '"' -> sb.append("\\\"");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    private void writeSeconds(long nanos) {
+        writeLong(nanos / 1_000_000_000L);
+        write('.');
+        long fraction = nanos % 1_000_000_000L;
+        for (long divisor = 100_000_000L; divisor > 0; divisor /= 10) {
+            write((char) ('0' + (fraction / divisor) % 10));
+        }
+    }
+
+    /**
+     * Writes a non-negative value in decimal.
+     */
+    private void writeLong(long value) {
+        if (value == 0) {
+            write('0');
+            return;
+        }
+        ensureCapacity(20);
+        int start = size;
+        while (value > 0) {
+            buffer[size++] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+    }
+
+    private void write(char c) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) c;
+    }
+
+    private void write(String ascii) {
+        ensureCapacity(ascii.length());
+        for (int i = 0; i < ascii.length(); i++) {
+            buffer[size++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,29 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * How a timed invocation ended, as derived from the exception passed to
+ * {@link MetricsReporter}.
+ */
+public enum Outcome {
+
+    /** Completed normally. */
+    SUCCESS,
+
+    /** Threw, or completed exceptionally. */
+    FAILURE,
+
+    /** An asynchronous result was cancelled before it completed. */
+    CANCELLED;
+
+    /**
+     * Classifies a reported exception; {@code null} means success.
+     */
+    public static Outcome of(Throwable exception) {
+        if (exception == null) {
+            return SUCCESS;
+        }
+        return exception instanceof CancellationException ? CANCELLED : FAILURE;
+    }
+}
@@ -0,0 +1,203 @@
+package com.dpk.helper.timing.aop;
+
+import com.dpk.helper.timing.Sampling;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether an invocation is timed, per {@link Sampling}.
+ *
+ * <p>{@link #sample()} returns the weight of a sampled invocation (how many
+ * invocations it stands for), or {@code 0} if the invocation should not be
+ * timed. Decisions use thread-local state or lock-free counters only.
+ */
+abstract class Sampler {
+
+    private static final Logger log = LoggerFactory.getLogger(Sampler.class);
+
+    static final Sampler ALWAYS = new Sampler() {
+        @Override
+        double sample() {
+            return 1.0;
+        }
+    };
+
+    static final Sampler NEVER = new Sampler() {
+        @Override
+        double sample() {
+            return 0.0;
+        }
+    };
+
+    abstract double sample();
+
+    /**
+     * Converts a sample weight into a whole number of invocations. Fractional
+     * weights are rounded stochastically, so totals stay unbiased on average.
+     */
+    static long toCount(double sampleWeight) {
+        long count = (long) sampleWeight;
+        double fraction = sampleWeight - count;
+        if (fraction > 0 && ThreadLocalRandom.current().nextDouble() < fraction) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Creates the sampler for {@code sampling}. A probability of 0 never
+     * samples. Invalid settings are logged and never sample either, rather
+     * than failing every call of the method.
+     */
+    static Sampler of(Sampling sampling, String metricName) {
+        return switch (sampling.mode()) {
+            case ALWAYS -> ALWAYS;
+            case PROBABILITY -> probability(sampling.probability(), metricName);
+            case ONE_IN_N -> sampling.oneIn() <= 1 ? ALWAYS : new OneInNSampler(sampling.oneIn());
+            case RATE_LIMITED -> {
+                if (sampling.maxPerSecond() < 1) {
+                    log.warn("Sampling disabled for [{}]: maxPerSecond {} is not positive",
+                            metricName, sampling.maxPerSecond());
+                    yield NEVER;
+                }
+                yield new RateLimitedSampler(sampling.maxPerSecond());
+            }
+        };
+    }
+
+    private static Sampler probability(double probability, String metricName) {
+        if (probability >= 1.0) {
+            return ALWAYS;
+        }
+        if (probability > 0.0) {
+            return new ProbabilitySampler(probability);
+        }
+        if (probability != 0.0) {
+            log.warn("Sampling disabled for [{}]: probability {} is not between 0 and 1", metricName, probability);
+        }
+        return NEVER;
+    }
+
+    static final class ProbabilitySampler extends Sampler {
+
+        private final double probability;
+        private final double weight;
+
+        ProbabilitySampler(double probability) {
+            if (probability <= 0.0) {
+                throw new IllegalArgumentException("Sampling probability must be positive: " + probability);
+            }
+            this.probability = probability;
+            this.weight = 1.0 / probability;
+        }
+
+        @Override
+        double sample() {
+            return ThreadLocalRandom.current().nextDouble() < probability ? weight : 0.0;
+        }
+    }
+
+    /**
+     * Counts down per thread, so there is no shared counter to contend on.
+     * Each thread starts at a random offset to avoid sampling everyone's
+     * first call.
+     */
+    static final class OneInNSampler extends Sampler {
+
+        private final int n;
+        private final ThreadLocal<int[]> countdown;
+
+        OneInNSampler(int n) {
+            this.n = n;
+            this.countdown = ThreadLocal.withInitial(() -> new int[] {ThreadLocalRandom.current().nextInt(n) + 1});
+        }
+
+        @Override
+        double sample() {
+            int[] remaining = countdown.get();
+            if (--remaining[0] > 0) {
+                return 0.0;
+            }
+            remaining[0] = n;
+            return n;
+        }
+    }
+
+    /**
+     * Samples with a probability derived from the previous window's call rate
+     * so that roughly {@code maxPerSecond} invocations are timed per second,
+     * and enforces that budget as a hard cap.
+     *
+     * <p>Calls cut by the cap are not lost from the counts: their weight is
+     * deferred and added to the next admitted call, so totals stay unbiased
+     * under bursts.
+     */
+    static final class RateLimitedSampler extends Sampler {
+
+        private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+        private static final long ZERO_BITS = Double.doubleToRawLongBits(0.0);
+
+        private final int maxPerSecond;
+        private final LongAdder seen = new LongAdder();
+        private final AtomicLong sampledInWindow = new AtomicLong();
+        private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+        private volatile double probability = 1.0;
+        // Weight of capped calls not yet carried by an admitted call, as double bits
+        private final AtomicLong deferredWeight = new AtomicLong(ZERO_BITS);
+
+        RateLimitedSampler(int maxPerSecond) {
+            if (maxPerSecond < 1) {
+                throw new IllegalArgumentException("maxPerSecond must be positive: " + maxPerSecond);
+            }
+            this.maxPerSecond = maxPerSecond;
+        }
+
+        @Override
+        double sample() {
+            seen.increment();
+            double p = probability;
+            if (p < 1.0 && ThreadLocalRandom.current().nextDouble() >= p) {
+                return 0.0;
+            }
+            rollWindow(System.nanoTime());
+            if (sampledInWindow.incrementAndGet() > maxPerSecond) {
+                defer(1.0 / p);
+                return 0.0;
+            }
+            return 1.0 / p + takeDeferred();
+        }
+
+        private void defer(double weight) {
+            long bits;
+            do {
+                bits = deferredWeight.get();
+            } while (!deferredWeight.compareAndSet(bits,
+                    Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + weight)));
+        }
+
+        private double takeDeferred() {
+            // Plain read first: the swap is only paid after a burst was capped
+            if (deferredWeight.get() == ZERO_BITS) {
+                return 0.0;
+            }
+            return Double.longBitsToDouble(deferredWeight.getAndSet(ZERO_BITS));
+        }
+
+        private void rollWindow(long now) {
+            long start = windowStart.get();
+            long elapsed = now - start;
+            if (elapsed < WINDOW_NANOS || !windowStart.compareAndSet(start, now)) {
+                return;
+            }
+            // Windows only roll on sampled calls, so normalise by actual elapsed time
+            double callsPerSecond = seen.sumThenReset() * (double) WINDOW_NANOS / elapsed;
+            sampledInWindow.set(0);
+            probability = callsPerSecond <= maxPerSecond ? 1.0 : maxPerSecond / callsPerSecond;
+        }
+    }
+}
@@ -3,25 +3,217 @@ package com.dpk.helper.timing.aop;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Default {@link MetricsReporter} that logs timing information via SLF4J.
+ *
+ * <p>By default every timed invocation produces one log line. In summary
+ * mode ({@link #Slf4jMetricsReporter(Duration, Duration)}) measurements are
+ * aggregated in memory and one line per metric and tag set is logged per
+ * window from a background thread. Calls slower than an optional threshold
+ * are still logged individually.
  */
-public class Slf4jMetricsReporter implements MetricsReporter {
+public class Slf4jMetricsReporter implements MetricsReporter, AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(Slf4jMetricsReporter.class);
 
+    private static final double[] SUMMARY_PERCENTILES = {50.0, 99.0};
+
+    private final AggregatingMetricsReporter aggregator;
+    private final long slowCallThresholdNanos;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Logs one line per timed invocation.
+     */
+    public Slf4jMetricsReporter() {
+        this.aggregator = null;
+        this.slowCallThresholdNanos = 0;
+        this.scheduler = null;
+    }
+
+    /**
+     * Logs one summary line per metric and tag set every {@code summaryWindow}.
+     */
+    public Slf4jMetricsReporter(Duration summaryWindow) {
+        this(summaryWindow, Duration.ZERO);
+    }
+
+    /**
+     * Logs one summary line per metric and tag set every {@code summaryWindow},
+     * plus one line for each call that takes at least {@code slowCallThreshold}.
+     * A zero threshold disables per-call logging.
+     */
+    public Slf4jMetricsReporter(Duration summaryWindow, Duration slowCallThreshold) {
+        if (summaryWindow.isZero() || summaryWindow.isNegative()) {
+            throw new IllegalArgumentException("summaryWindow must be positive: " + summaryWindow);
+        }
+        this.aggregator = new AggregatingMetricsReporter(SUMMARY_PERCENTILES);
+        this.slowCallThresholdNanos = slowCallThreshold.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "timing-summary-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long windowNanos = summaryWindow.toNanos();
+        this.scheduler.scheduleAtFixedRate(this::logSummary, windowNanos, windowNanos, TimeUnit.NANOSECONDS);
+    }
+
     @Override
     public void report(String metricName, long durationNanos, Map<String, String> tags, Throwable exception) {
-        String durationMs = String.format("%.2f", durationNanos / 1_000_000.0);
+        if (aggregator == null) {
+            logCall(metricName, durationNanos, tags, exception);
+            return;
+        }
+        report(MeterId.of(metricName, tags), durationNanos, exception, 1.0);
+    }
 
-        if (exception != null) {
-            log.warn("TIMED [{}] failed in {}ms tags={} exception={}",
-                    metricName, durationMs, tags, exception.getClass().getName());
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception) {
+        report(id, durationNanos, exception, 1.0);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight) {
+        report(id, durationNanos, exception, sampleWeight, 0);
+    }
+
+    /**
+     * In summary mode, a positive {@code expectedIntervalNanos} adds corrected
+     * percentiles to the series' summary line.
+     */
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight,
+                       long expectedIntervalNanos) {
+        if (aggregator == null) {
+            logCall(id.getName(), durationNanos, id.getTags(), exception);
+            return;
+        }
+        if (expectedIntervalNanos > 0) {
+            aggregator.report(id, durationNanos, exception, sampleWeight, expectedIntervalNanos);
         } else {
+            aggregator.report(id, durationNanos, exception, sampleWeight);
+        }
+        if (slowCallThresholdNanos > 0 && durationNanos >= slowCallThresholdNanos && log.isWarnEnabled()) {
+            log.warn("TIMED [{}] slow call took {}ms tags={}{}",
+                    id.getName(), formatMs(durationNanos), id.getTags(),
+                    exception != null ? " exception=" + exception.getClass().getName() : "");
+        }
+    }
+
+    @Override
+    public void reportValue(MeterId id, Measurement measurement, long value, double sampleWeight) {
+        if (aggregator != null) {
+            aggregator.reportValue(id, measurement, value, sampleWeight);
+        } else if (log.isInfoEnabled()) {
+            log.info("TIMED [{}] {}={} tags={}", id.getName(), measurement.getKey(),
+                    formatValue(measurement, value), id.getTags());
+        }
+    }
+
+    /**
+     * Logs the final window and stops the summary thread. Does nothing in per-call mode.
+     */
+    @Override
+    public void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logSummary();
+    }
+
+    private void logCall(String metricName, long durationNanos, Map<String, String> tags, Throwable exception) {
+        if (exception != null) {
+            if (log.isWarnEnabled()) {
+                log.warn("TIMED [{}] failed in {}ms tags={} exception={}",
+                        metricName, formatMs(durationNanos), tags, exception.getClass().getName());
+            }
+        } else if (log.isInfoEnabled()) {
             log.info("TIMED [{}] completed in {}ms tags={}",
-                    metricName, durationMs, tags);
+                    metricName, formatMs(durationNanos), tags);
+        }
+    }
+
+    private void logSummary() {
+        try {
+            for (MetricSnapshot snapshot : aggregator.intervalSnapshot()) {
+                if (snapshot.count() > 0) {
+                    log.info(formatSummary(snapshot));
+                } else if (snapshot.measurementTotals().values().stream().anyMatch(total -> total != 0)) {
+                    log.info(formatCounts(snapshot));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to log timing summary", e);
         }
     }
+
+    String formatSummary(MetricSnapshot snapshot) {
+        HistogramSnapshot h = snapshot.histogram();
+        return "TIMED [" + snapshot.metricName() + "] count=" + snapshot.count()
+                + " errors=" + snapshot.errorCount()
+                + (snapshot.cancelledCount() > 0 ? " cancelled=" + snapshot.cancelledCount() : "")
+                + " min=" + formatMs(h.getMin()) + "ms"
+                + " mean=" + formatMs((long) h.getMean()) + "ms"
+                + " max=" + formatMs(h.getMax()) + "ms"
+                + " p50=" + formatMs(snapshot.percentiles().get(50.0)) + "ms"
+                + " p99=" + formatMs(snapshot.percentiles().get(99.0)) + "ms"
+                + formatCorrected(snapshot)
+                + formatMeasurementMeans(snapshot)
+                + " tags=" + snapshot.tags();
+    }
+
+    /**
+     * Percentiles corrected for coordinated omission, for series that have them.
+     */
+    private static String formatCorrected(MetricSnapshot snapshot) {
+        if (!snapshot.isCorrected()) {
+            return "";
+        }
+        return " corrected.p50=" + formatMs(snapshot.correctedPercentiles().get(50.0)) + "ms"
+                + " corrected.p99=" + formatMs(snapshot.correctedPercentiles().get(99.0)) + "ms"
+                + " corrected.max=" + formatMs(snapshot.correctedHistogram().getMax()) + "ms";
+    }
+
+    /**
+     * Summary of a series that only received values, such as call counts from
+     * {@link CountedAspect}.
+     */
+    String formatCounts(MetricSnapshot snapshot) {
+        StringBuilder sb = new StringBuilder("TIMED [").append(snapshot.metricName()).append(']');
+        snapshot.measurementTotals().forEach((measurement, total) -> sb.append(' ')
+                .append(measurement.getKey()).append('=').append(formatValue(measurement, total)));
+        return sb.append(" tags=").append(snapshot.tags()).toString();
+    }
+
+    private static String formatMeasurementMeans(MetricSnapshot snapshot) {
+        if (snapshot.measurementTotals().isEmpty() || snapshot.count() == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        // Call counts are interval totals, not per-call values
+        snapshot.measurementTotals().forEach((measurement, total) -> sb.append(' ')
+                .append(measurement.getKey()).append('=')
+                .append(formatValue(measurement, measurement.isCallCount() ? total : total / snapshot.count())));
+        return sb.toString();
+    }
+
+    private static String formatValue(Measurement measurement, long value) {
+        return measurement.isDuration() ? formatMs(value) + "ms" : Long.toString(value);
+    }
+
+    private static String formatMs(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
 }
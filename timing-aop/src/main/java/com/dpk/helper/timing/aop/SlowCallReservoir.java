@@ -0,0 +1,239 @@
+package com.dpk.helper.timing.aop;
+
+import org.aspectj.lang.JoinPoint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the slowest calls of each timed method in the current window, as
+ * concrete examples of what a high percentile is made of. Register one with
+ * {@link TimedAspect#setSlowCallReservoir(SlowCallReservoir)}.
+ *
+ * <p>Each metric site (name and static tags) keeps its {@code capacity}
+ * slowest calls. Once that many are held, a call must be slower than the
+ * fastest of them to get in. That comparison is one volatile read, so most
+ * calls never lock or allocate. Only a call that gets in pays for the
+ * timestamp, the thread name and the rendering of
+ * {@link com.dpk.helper.timing.Timed#exemplarArgs()}.
+ *
+ * <p>Windows are per site and start with the first call after the previous
+ * window expired; calls from an expired window are dropped.
+ */
+public class SlowCallReservoir {
+
+    public static final int DEFAULT_CAPACITY = 10;
+    public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+
+    // Longest rendered argument value kept; longer values are cut off
+    static final int MAX_ARG_LENGTH = 256;
+
+    private final int capacity;
+    private final long windowNanos;
+    private final ConcurrentMap<MeterId, SiteReservoir> sites = new ConcurrentHashMap<>();
+
+    public SlowCallReservoir() {
+        this(DEFAULT_CAPACITY, DEFAULT_WINDOW);
+    }
+
+    public SlowCallReservoir(int capacity, Duration window) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        this.capacity = capacity;
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Offers a finished call. Its arguments are only rendered if it is kept.
+     *
+     * @param id            the call's id, including dynamic tags
+     * @param durationNanos how long the call took
+     * @param endNanos      {@link System#nanoTime()} when it finished
+     * @param exception     what it threw, or {@code null}
+     * @param descriptor    renders the argument summary
+     * @param joinPoint     the call's target and arguments
+     */
+    void offer(MeterId id, long durationNanos, long endNanos, Throwable exception,
+               TimedMethodDescriptor descriptor, JoinPoint joinPoint) {
+        SiteReservoir site = site(id.getSite());
+        if (!site.admits(durationNanos, endNanos)) {
+            return;
+        }
+        Map<String, String> rendered = truncate(descriptor.renderExemplarArgs(joinPoint.getTarget(),
+                joinPoint.getArgs()));
+        SlowCall call = new SlowCall(id.getName(), id.getTags(), durationNanos, Instant.now(),
+                Thread.currentThread().getName(), rendered,
+                exception == null ? null : exception.getClass().getName());
+        site.add(call, endNanos);
+    }
+
+    /**
+     * Returns the calls held for every site, slowest first within each site.
+     */
+    public List<SlowCall> snapshot() {
+        long nowNanos = System.nanoTime();
+        List<SlowCall> result = new ArrayList<>();
+        for (SiteReservoir site : sites.values()) {
+            result.addAll(site.slowestFirst(nowNanos));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the calls held for {@code metricName}, over all its static tag
+     * sets, slowest first.
+     */
+    public List<SlowCall> snapshot(String metricName) {
+        long nowNanos = System.nanoTime();
+        List<SlowCall> result = new ArrayList<>();
+        for (Map.Entry<MeterId, SiteReservoir> site : sites.entrySet()) {
+            if (site.getKey().getName().equals(metricName)) {
+                result.addAll(site.getValue().slowestFirst(nowNanos));
+            }
+        }
+        result.sort(Comparator.comparingLong(SlowCall::durationNanos).reversed());
+        return result;
+    }
+
+    /**
+     * Writes every call held, one per line.
+     */
+    public void dump(Appendable out) {
+        try {
+            for (SlowCall call : snapshot()) {
+                out.append(call.toString()).append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drops every call held.
+     */
+    public void reset() {
+        sites.clear();
+    }
+
+    private SiteReservoir site(MeterId site) {
+        SiteReservoir reservoir = sites.get(site);
+        if (reservoir == null) {
+            reservoir = sites.computeIfAbsent(site, s -> new SiteReservoir(capacity, windowNanos));
+        }
+        return reservoir;
+    }
+
+    private static Map<String, String> truncate(Map<String, String> args) {
+        if (args.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> truncated = new LinkedHashMap<>();
+        for (Map.Entry<String, String> arg : args.entrySet()) {
+            String value = arg.getValue();
+            truncated.put(arg.getKey(),
+                    value.length() > MAX_ARG_LENGTH ? value.substring(0, MAX_ARG_LENGTH) + "..." : value);
+        }
+        return Collections.unmodifiableMap(truncated);
+    }
+
+    /**
+     * One kept call.
+     *
+     * @param metric        metric name
+     * @param tags          static and dynamic tags
+     * @param durationNanos how long the call took
+     * @param timestamp     when it finished
+     * @param thread        name of the thread it finished on
+     * @param args          the rendered {@link com.dpk.helper.timing.Timed#exemplarArgs()}
+     * @param exception     class name of what it threw, or {@code null}
+     */
+    public record SlowCall(String metric, Map<String, String> tags, long durationNanos, Instant timestamp,
+                           String thread, Map<String, String> args, String exception) {
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(metric);
+            if (!tags.isEmpty()) {
+                sb.append(tags);
+            }
+            sb.append(' ').append(String.format(Locale.ROOT, "%.3f", durationNanos / 1_000_000.0)).append("ms")
+                    .append(" at ").append(timestamp)
+                    .append(" thread=").append(thread);
+            if (!args.isEmpty()) {
+                sb.append(" args=").append(args);
+            }
+            if (exception != null) {
+                sb.append(" threw ").append(exception);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * The slowest calls of one site in its current window, kept in a min-heap
+     * so the fastest of them is the one to evict.
+     */
+    private static final class SiteReservoir {
+
+        private final int capacity;
+        private final long windowNanos;
+        private final PriorityQueue<SlowCall> calls =
+                new PriorityQueue<>(Comparator.comparingLong(SlowCall::durationNanos));
+        // Duration a call must exceed to get in; -1 while the heap is not full
+        private volatile long thresholdNanos = -1;
+        private volatile long windowEndNanos;
+
+        SiteReservoir(int capacity, long windowNanos) {
+            this.capacity = capacity;
+            this.windowNanos = windowNanos;
+            this.windowEndNanos = System.nanoTime() + windowNanos;
+        }
+
+        /**
+         * Whether a call might get in, without locking.
+         */
+        boolean admits(long durationNanos, long endNanos) {
+            return durationNanos > thresholdNanos || endNanos - windowEndNanos >= 0;
+        }
+
+        synchronized void add(SlowCall call, long endNanos) {
+            if (endNanos - windowEndNanos >= 0) {
+                calls.clear();
+                windowEndNanos = endNanos + windowNanos;
+            } else if (calls.size() == capacity && call.durationNanos() <= calls.peek().durationNanos()) {
+                // Overtaken by a slower call since admits() was checked
+                return;
+            }
+            calls.add(call);
+            if (calls.size() > capacity) {
+                calls.poll();
+            }
+            thresholdNanos = calls.size() == capacity ? calls.peek().durationNanos() : -1;
+        }
+
+        synchronized List<SlowCall> slowestFirst(long nowNanos) {
+            if (nowNanos - windowEndNanos >= 0) {
+                return List.of();
+            }
+            List<SlowCall> result = new ArrayList<>(calls);
+            result.sort(Comparator.comparingLong(SlowCall::durationNanos).reversed());
+            return result;
+        }
+    }
+}
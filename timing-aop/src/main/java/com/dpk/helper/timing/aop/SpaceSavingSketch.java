@@ -0,0 +1,119 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded top-K summary of a stream of weighted items, using the
+ * Space-Saving algorithm (Metwally, Agrawal and El Abbadi, 2005).
+ *
+ * <p>At most {@code capacity} items are tracked. An untracked item replaces
+ * the tracked item with the smallest weight and inherits that weight as its
+ * error, so every reported weight is an upper bound that overestimates by at
+ * most {@link Entry#error()}. Any item whose true weight exceeds
+ * {@code total / capacity} is guaranteed to be tracked.
+ *
+ * <p>Adding to an item that is already tracked is lock-free. Untracked items
+ * take a short lock and scan the entries for the one to replace, so keep
+ * {@code capacity} small (tens, not thousands). A concurrent addition to the
+ * item being replaced may be lost, so under contention a weight can also
+ * fall slightly short of its upper bound.
+ */
+public final class SpaceSavingSketch {
+
+    private final int capacity;
+    private final ConcurrentMap<String, Counter> counters;
+    private final LongAdder total = new LongAdder();
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new ConcurrentHashMap<>(capacity * 2);
+    }
+
+    /**
+     * Adds {@code weight} to {@code item}.
+     */
+    public void offer(String item, long weight) {
+        total.add(weight);
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.weight.add(weight);
+            return;
+        }
+        replace(item, weight);
+    }
+
+    private synchronized void replace(String item, long weight) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.weight.add(weight);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(item, new Counter(item, weight, 0));
+            return;
+        }
+        Counter min = null;
+        long minWeight = Long.MAX_VALUE;
+        for (Counter c : counters.values()) {
+            long w = c.weight.sum();
+            if (w < minWeight) {
+                min = c;
+                minWeight = w;
+            }
+        }
+        counters.remove(min.item);
+        counters.put(item, new Counter(item, minWeight + weight, minWeight));
+    }
+
+    /**
+     * Returns the tracked items, heaviest first.
+     */
+    public List<Entry> top() {
+        List<Entry> entries = new ArrayList<>(counters.size());
+        for (Counter c : counters.values()) {
+            entries.add(new Entry(c.item, c.weight.sum(), c.error));
+        }
+        entries.sort(Comparator.comparingLong(Entry::weight).reversed());
+        return entries;
+    }
+
+    /**
+     * Sum of all weights offered so far.
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * One tracked item.
+     *
+     * @param item   the item
+     * @param weight estimated total weight; never less than the true weight
+     * @param error  maximum overestimate, so {@code weight - error} is a lower bound
+     */
+    public record Entry(String item, long weight, long error) {}
+
+    private static final class Counter {
+        final String item;
+        final LongAdder weight = new LongAdder();
+        final long error;
+
+        Counter(String item, long weight, long error) {
+            this.item = item;
+            this.weight.add(weight);
+            this.error = error;
+        }
+    }
+}
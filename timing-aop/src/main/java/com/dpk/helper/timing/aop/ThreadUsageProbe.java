@@ -0,0 +1,185 @@
+package com.dpk.helper.timing.aop;
+
+import com.dpk.helper.timing.ThreadMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Captures the {@link ThreadMetric}s requested by one {@code @Timed} method.
+ *
+ * <p>{@link #begin()} reads the calling thread's counters into a small array
+ * and {@link #end(long[], MeterId, double, MetricsReporter)} reports the
+ * deltas. Counters are read in an order that keeps the probe's own
+ * allocations (the array and any {@link ThreadInfo}) out of the allocated
+ * bytes figure.
+ *
+ * <p>The JVM keeps these counters per platform thread, so on a virtual thread
+ * they would describe whichever carrier happens to run it. {@link #begin()}
+ * returns {@code null} there and nothing is reported. Counters the JVM does
+ * not support are dropped when the probe is created.
+ */
+final class ThreadUsageProbe {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadUsageProbe.class);
+
+    static final ThreadUsageProbe NONE = new ThreadUsageProbe(false, false, false, false);
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final int CPU = 0;
+    private static final int ALLOCATED = 1;
+    private static final int BLOCKED = 2;
+    private static final int WAITED = 3;
+
+    private final boolean cpuTime;
+    private final boolean allocatedBytes;
+    private final boolean blockedTime;
+    private final boolean waitedTime;
+
+    private ThreadUsageProbe(boolean cpuTime, boolean allocatedBytes, boolean blockedTime, boolean waitedTime) {
+        this.cpuTime = cpuTime;
+        this.allocatedBytes = allocatedBytes;
+        this.blockedTime = blockedTime;
+        this.waitedTime = waitedTime;
+    }
+
+    static ThreadUsageProbe of(ThreadMetric[] metrics, String metricName) {
+        if (metrics.length == 0) {
+            return NONE;
+        }
+        boolean cpu = false;
+        boolean allocated = false;
+        boolean blocked = false;
+        boolean waited = false;
+        for (ThreadMetric metric : metrics) {
+            switch (metric) {
+                case CPU_TIME -> cpu = true;
+                case ALLOCATED_BYTES -> allocated = true;
+                case BLOCKED_TIME -> blocked = true;
+                case WAITED_TIME -> waited = true;
+            }
+        }
+
+        if (cpu && !cpuTimeAvailable()) {
+            log.warn("Thread CPU time is not available in this JVM; not measuring it for [{}]", metricName);
+            cpu = false;
+        }
+        if (allocated && !allocatedBytesAvailable()) {
+            log.warn("Thread allocated bytes are not available in this JVM; not measuring them for [{}]",
+                    metricName);
+            allocated = false;
+        }
+        if ((blocked || waited) && !contentionMonitoringAvailable()) {
+            log.warn("Thread contention monitoring is not available in this JVM; "
+                    + "not measuring blocked or waited time for [{}]", metricName);
+            blocked = false;
+            waited = false;
+        }
+
+        if (!cpu && !allocated && !blocked && !waited) {
+            return NONE;
+        }
+        return new ThreadUsageProbe(cpu, allocated, blocked, waited);
+    }
+
+    boolean isEnabled() {
+        return this != NONE;
+    }
+
+    /**
+     * Reads the current thread's counters, or returns {@code null} if they
+     * cannot be attributed to this call.
+     */
+    long[] begin() {
+        Thread thread = Thread.currentThread();
+        if (thread.isVirtual()) {
+            return null;
+        }
+        long[] start = new long[4];
+        if (blockedTime || waitedTime) {
+            ThreadInfo info = THREADS.getThreadInfo(thread.threadId(), 0);
+            if (info != null) {
+                start[BLOCKED] = info.getBlockedTime();
+                start[WAITED] = info.getWaitedTime();
+            }
+        }
+        if (cpuTime) {
+            start[CPU] = THREADS.getCurrentThreadCpuTime();
+        }
+        if (allocatedBytes) {
+            start[ALLOCATED] = allocatedBytes(thread);
+        }
+        return start;
+    }
+
+    /**
+     * Reports the change in each counter since {@link #begin()}. Counters
+     * the JVM reported as unavailable (negative) are skipped.
+     */
+    void end(long[] start, MeterId id, double sampleWeight, MetricsReporter reporter) {
+        if (start == null) {
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        long allocatedEnd = allocatedBytes ? allocatedBytes(thread) : -1;
+        long cpuEnd = cpuTime ? THREADS.getCurrentThreadCpuTime() : -1;
+        long blockedEnd = -1;
+        long waitedEnd = -1;
+        if (blockedTime || waitedTime) {
+            ThreadInfo info = THREADS.getThreadInfo(thread.threadId(), 0);
+            if (info != null) {
+                blockedEnd = info.getBlockedTime();
+                waitedEnd = info.getWaitedTime();
+            }
+        }
+
+        report(reporter, id, Measurement.CPU_TIME_NANOS, start[CPU], cpuEnd, sampleWeight);
+        report(reporter, id, Measurement.ALLOCATED_BYTES, start[ALLOCATED], allocatedEnd, sampleWeight);
+        if (blockedTime) {
+            // ThreadInfo times are in milliseconds
+            report(reporter, id, Measurement.BLOCKED_NANOS,
+                    start[BLOCKED] * 1_000_000, blockedEnd * 1_000_000, sampleWeight);
+        }
+        if (waitedTime) {
+            report(reporter, id, Measurement.WAITED_NANOS,
+                    start[WAITED] * 1_000_000, waitedEnd * 1_000_000, sampleWeight);
+        }
+    }
+
+    private static void report(MetricsReporter reporter, MeterId id, Measurement measurement,
+                               long start, long end, double sampleWeight) {
+        if (start < 0 || end < 0) {
+            return;
+        }
+        reporter.reportValue(id, measurement, Math.max(0, end - start), sampleWeight);
+    }
+
+    private static long allocatedBytes(Thread thread) {
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(thread.threadId());
+    }
+
+    private static boolean cpuTimeAvailable() {
+        return THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    }
+
+    private static boolean allocatedBytesAvailable() {
+        return THREADS instanceof com.sun.management.ThreadMXBean sunThreads
+                && sunThreads.isThreadAllocatedMemorySupported()
+                && sunThreads.isThreadAllocatedMemoryEnabled();
+    }
+
+    private static boolean contentionMonitoringAvailable() {
+        if (!THREADS.isThreadContentionMonitoringSupported()) {
+            return false;
+        }
+        if (!THREADS.isThreadContentionMonitoringEnabled()) {
+            log.info("Enabling JVM thread contention monitoring for @Timed blocked/waited time");
+            THREADS.setThreadContentionMonitoringEnabled(true);
+        }
+        return true;
+    }
+}
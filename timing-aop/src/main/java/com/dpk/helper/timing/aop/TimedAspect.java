@@ -1,6 +1,7 @@
 package com.dpk.helper.timing.aop;
 
-import com.dpk.helper.timing.Tag;
+import com.dpk.helper.diagnostics.AspectOverhead;
+import com.dpk.helper.diagnostics.OverheadRecorder;
 import com.dpk.helper.timing.Timed;
 import com.dpk.helper.timing.TimedClass;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -10,18 +11,59 @@ import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
 
 import java.lang.reflect.Method;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
 /**
  * AspectJ aspect that intercepts methods annotated with {@link Timed}
  * or classes annotated with {@link TimedClass}, measures execution time,
  * and reports via a {@link MetricsReporter}.
+ *
+ * <p>Metric names, static tags and dynamic tag expressions are resolved once
+ * per {@link Method} and cached, so steady-state calls do no reflection or
+ * SpEL parsing.
+ *
+ * <p>With {@link com.dpk.helper.timing.Sampling} configured, unsampled calls
+ * go straight to the target method without reading the clock or resolving tags.
+ *
+ * <p>Methods returning a {@link CompletionStage} (including {@code CompletableFuture})
+ * are timed until the stage completes, and methods declared to return a
+ * {@link Flow.Publisher} until the subscription terminates. Reporting then
+ * happens on the completing thread; cancellation is reported with a
+ * {@link java.util.concurrent.CancellationException} (see {@link Outcome}).
+ *
+ * <p>With {@link Timed#lazyResult()}, methods declared to return a
+ * {@link Stream}, {@link Iterator} or {@link Iterable} are timed until the
+ * caller exhausts or closes the result, and also report
+ * {@link Measurement#ELEMENT_COUNT} and {@link Measurement#FIRST_ELEMENT_NANOS}.
+ *
+ * <p>{@link Timed#threadMetrics()} adds CPU time, allocated bytes and blocked
+ * or waited time of the calling thread, reported through
+ * {@link MetricsReporter#reportValue(MeterId, Measurement, long, double)}
+ * before the duration.
+ *
+ * <p>With {@link #setJfrEventsEnabled(boolean)}, each invocation is also
+ * recorded as a {@link TimedEvent} in Java Flight Recorder.
+ *
+ * <p>With {@link #setInFlightTracker(InFlightTracker)}, every call (sampled or
+ * not) is also counted while it executes.
+ *
+ * <p>With {@link #setGcPauseTracker(GcPauseTracker)}, calls that overlap a GC
+ * pause also report {@link Measurement#GC_PAUSE_NANOS}, just before the
+ * duration; subtracting it gives the pause-adjusted latency.
+ *
+ * <p>With {@link #setWallClockProfiler(WallClockProfiler)}, stacks of threads
+ * inside timed calls are sampled and attributed to the innermost call's metric.
+ *
+ * <p>With {@link #setSlowCallReservoir(SlowCallReservoir)}, the slowest calls
+ * of each method are kept with their arguments, see {@link Timed#exemplarArgs()}.
  */
 @Aspect
 public class TimedAspect {
@@ -29,7 +71,15 @@ public class TimedAspect {
     private static final Logger log = LoggerFactory.getLogger(TimedAspect.class);
 
     private final MetricsReporter reporter;
-    private final ExpressionParser spelParser = new SpelExpressionParser();
+    private final ConcurrentMap<Method, TimedMethodDescriptor> timedDescriptors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Method, TimedMethodDescriptor> timedClassDescriptors = new ConcurrentHashMap<>();
+    private CallTreeProfiler callTreeProfiler;
+    private boolean jfrEventsEnabled;
+    private InFlightTracker inFlightTracker;
+    private GcPauseTracker gcPauseTracker;
+    private WallClockProfiler wallClockProfiler;
+    private SlowCallReservoir slowCallReservoir;
+    private AspectOverhead overhead;
 
     public TimedAspect(MetricsReporter reporter) {
         this.reporter = reporter;
@@ -39,6 +89,66 @@ public class TimedAspect {
         this(new Slf4jMetricsReporter());
     }
 
+    /**
+     * Enables call-tree profiling of nested timed calls. Pass {@code null} to disable.
+     * Configure before the aspect starts intercepting calls.
+     */
+    public void setCallTreeProfiler(CallTreeProfiler callTreeProfiler) {
+        this.callTreeProfiler = callTreeProfiler;
+    }
+
+    /**
+     * Emits a {@link TimedEvent} per timed invocation while a Flight Recorder
+     * recording has the event enabled. Configure before the aspect starts
+     * intercepting calls.
+     */
+    public void setJfrEventsEnabled(boolean jfrEventsEnabled) {
+        this.jfrEventsEnabled = jfrEventsEnabled;
+    }
+
+    /**
+     * Counts executing calls per metric in {@code inFlightTracker}. Pass
+     * {@code null} to disable. Configure before the aspect starts
+     * intercepting calls.
+     */
+    public void setInFlightTracker(InFlightTracker inFlightTracker) {
+        this.inFlightTracker = inFlightTracker;
+    }
+
+    /**
+     * Attributes overlapping GC pauses to timed calls. Pass {@code null} to
+     * disable. Configure before the aspect starts intercepting calls.
+     */
+    public void setGcPauseTracker(GcPauseTracker gcPauseTracker) {
+        this.gcPauseTracker = gcPauseTracker;
+    }
+
+    /**
+     * Samples stacks of threads inside timed calls. Pass {@code null} to
+     * disable. Configure before the aspect starts intercepting calls.
+     */
+    public void setWallClockProfiler(WallClockProfiler wallClockProfiler) {
+        this.wallClockProfiler = wallClockProfiler;
+    }
+
+    /**
+     * Keeps the slowest calls of each method in {@code slowCallReservoir}.
+     * Pass {@code null} to disable. Configure before the aspect starts
+     * intercepting calls.
+     */
+    public void setSlowCallReservoir(SlowCallReservoir slowCallReservoir) {
+        this.slowCallReservoir = slowCallReservoir;
+    }
+
+    /**
+     * Measures the time this aspect adds to each call, outside the timed
+     * method, in {@code overheadRecorder}. Pass {@code null} to disable.
+     * Configure before the aspect starts intercepting calls.
+     */
+    public void setOverheadRecorder(OverheadRecorder overheadRecorder) {
+        this.overhead = overheadRecorder == null ? null : overheadRecorder.forAspect("TimedAspect");
+    }
+
     @Pointcut("@annotation(com.dpk.helper.timing.Timed)")
     public void timedMethod() {}
 
@@ -50,11 +160,27 @@ public class TimedAspect {
      */
     @Around("timedMethod() && @annotation(timed)")
     public Object timeMethod(ProceedingJoinPoint pjp, Timed timed) throws Throwable {
-        String metricName = resolveMetricName(timed.value(), pjp);
-        Map<String, String> tags = collectStaticTags(timed.tags());
-        resolveDynamicTags(timed.dynamicTags(), pjp, tags);
+        AspectOverhead overhead = this.overhead;
+        if (overhead != null) {
+            return overhead.measure(pjp, measured -> doTimeMethod(measured, timed));
+        }
+        return doTimeMethod(pjp, timed);
+    }
 
-        return executeAndReport(pjp, metricName, tags, timed.reportExceptions());
+    private Object doTimeMethod(ProceedingJoinPoint pjp, Timed timed) throws Throwable {
+        TimedMethodDescriptor descriptor = timedDescriptor(pjp, timed);
+        InFlightGauge gauge = inFlightGauge(descriptor);
+        if (gauge == null) {
+            return timeMethodCall(pjp, descriptor);
+        }
+        gauge.increment();
+        Object result = null;
+        try {
+            result = timeMethodCall(pjp, descriptor);
+            return result;
+        } finally {
+            leave(gauge, descriptor, result);
+        }
     }
 
     /**
@@ -64,95 +190,262 @@ public class TimedAspect {
      */
     @Around("timedClass() && !timedMethod() && @within(timedClass)")
     public Object timeClassMethod(ProceedingJoinPoint pjp, TimedClass timedClass) throws Throwable {
-        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        AspectOverhead overhead = this.overhead;
+        if (overhead != null) {
+            return overhead.measure(pjp, measured -> doTimeClassMethod(measured, timedClass));
+        }
+        return doTimeClassMethod(pjp, timedClass);
+    }
 
-        // Only instrument public methods
-        if (!java.lang.reflect.Modifier.isPublic(method.getModifiers())) {
+    private Object doTimeClassMethod(ProceedingJoinPoint pjp, TimedClass timedClass) throws Throwable {
+        TimedMethodDescriptor descriptor = timedClassDescriptor(pjp, timedClass);
+
+        if (!descriptor.isInstrumented()) {
             return pjp.proceed();
         }
+        InFlightGauge gauge = inFlightGauge(descriptor);
+        if (gauge == null) {
+            return timeClassMethodCall(pjp, descriptor);
+        }
+        gauge.increment();
+        Object result = null;
+        try {
+            result = timeClassMethodCall(pjp, descriptor);
+            return result;
+        } finally {
+            leave(gauge, descriptor, result);
+        }
+    }
 
-        String prefix = timedClass.prefix();
-        String methodName = method.getName();
-        String metricName = prefix.isEmpty() ? methodName : prefix + "." + methodName;
+    private Object timeMethodCall(ProceedingJoinPoint pjp, TimedMethodDescriptor descriptor) throws Throwable {
+        double weight = descriptor.sample();
+        if (weight == 0.0) {
+            return pjp.proceed();
+        }
+        MeterId id = descriptor.resolveId(pjp.getTarget(), pjp.getArgs());
 
-        Map<String, String> tags = collectStaticTags(timedClass.tags());
+        return executeAndReport(pjp, descriptor, id, weight);
+    }
+
+    private Object timeClassMethodCall(ProceedingJoinPoint pjp, TimedMethodDescriptor descriptor)
+            throws Throwable {
+        double weight = descriptor.sample();
+        if (weight == 0.0) {
+            return pjp.proceed();
+        }
 
-        return executeAndReport(pjp, metricName, tags, true);
+        return executeAndReport(pjp, descriptor, descriptor.getMeterId(), weight);
+    }
+
+    private InFlightGauge inFlightGauge(TimedMethodDescriptor descriptor) {
+        InFlightTracker tracker = inFlightTracker;
+        return tracker == null ? null : tracker.gauge(descriptor.getMeterId());
+    }
+
+    /**
+     * Ends the in-flight span of a call, or defers that until an asynchronous
+     * result completes. {@code result} is {@code null} if the call threw.
+     */
+    private static void leave(InFlightGauge gauge, TimedMethodDescriptor descriptor, Object result) {
+        if (descriptor.isAsyncResult() && result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, exception) -> gauge.decrement());
+        } else {
+            gauge.decrement();
+        }
     }
 
-    private Object executeAndReport(ProceedingJoinPoint pjp, String metricName,
-                                     Map<String, String> tags, boolean reportExceptions) throws Throwable {
+    private Object executeAndReport(ProceedingJoinPoint pjp, TimedMethodDescriptor descriptor,
+                                     MeterId id, double weight) throws Throwable {
+        CallTreeProfiler profiler = callTreeProfiler;
+        WallClockProfiler sampler = wallClockProfiler;
+        // Held until reporting only if a slow call may need its arguments
+        ProceedingJoinPoint exemplarSource = slowCallReservoir != null ? pjp : null;
+        ThreadUsageProbe usageProbe = descriptor.getUsageProbe();
+        long[] usageStart = usageProbe.isEnabled() ? usageProbe.begin() : null;
+        TimedEvent event = jfrEventsEnabled ? TimedEvent.beginIfEnabled() : null;
         long startNanos = System.nanoTime();
-        Throwable caught = null;
+        if (profiler != null) {
+            profiler.enter(id.getName(), startNanos);
+        }
+        WallClockProfiler.ThreadSlot slot = null;
+        String enclosingMetric = null;
+        if (sampler != null) {
+            slot = sampler.slot();
+            enclosingMetric = slot.enter(id.getName());
+        }
 
+        Object result;
         try {
-            return pjp.proceed();
+            result = pjp.proceed();
         } catch (Throwable t) {
-            caught = t;
+            long endNanos = System.nanoTime();
+            if (slot != null) {
+                slot.exit(enclosingMetric);
+            }
+            if (profiler != null) {
+                profiler.exit(endNanos);
+            }
+            reportUsage(descriptor, usageStart, id, t, weight);
+            report(descriptor, id, startNanos, endNanos, t, weight, event, exemplarSource);
             throw t;
-        } finally {
-            long durationNanos = System.nanoTime() - startNanos;
-            if (caught == null || reportExceptions) {
-                try {
-                    reporter.report(metricName, durationNanos, tags, caught);
-                } catch (Exception e) {
-                    log.warn("Failed to report timing metric [{}]", metricName, e);
-                }
+        }
+
+        long endNanos = System.nanoTime();
+        if (slot != null) {
+            slot.exit(enclosingMetric);
+        }
+        if (profiler != null) {
+            profiler.exit(endNanos);
+        }
+        reportUsage(descriptor, usageStart, id, null, weight);
+        if ((descriptor.isAsyncResult() || descriptor.isLazyResult()) && result != null) {
+            Object tracked = trackCompletion(result, descriptor, id, startNanos, weight, event, exemplarSource);
+            if (tracked != null) {
+                return tracked;
             }
         }
+        report(descriptor, id, startNanos, endNanos, null, weight, event, exemplarSource);
+        return result;
+    }
+
+    /**
+     * Defers reporting until an asynchronous result terminates. Returns the
+     * object to hand back to the caller, or {@code null} if {@code result}
+     * is not something we can observe without blocking.
+     */
+    private Object trackCompletion(Object result, TimedMethodDescriptor descriptor, MeterId id,
+                                   long startNanos, double weight, TimedEvent event,
+                                   ProceedingJoinPoint exemplarSource) {
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, exception) ->
+                    report(descriptor, id, startNanos, System.nanoTime(), unwrap(exception), weight, event,
+                            exemplarSource));
+            return result;
+        }
+        if (result instanceof Flow.Publisher<?> publisher && descriptor.isPublisherResult()) {
+            return new TimedPublisher<>(publisher, (endNanos, exception) ->
+                    report(descriptor, id, startNanos, endNanos, exception, weight, event, exemplarSource));
+        }
+        if (descriptor.isLazyResult()) {
+            return trackConsumption(result, descriptor, id, startNanos, weight, event, exemplarSource);
+        }
+        return null;
     }
 
-    private String resolveMetricName(String explicitName, ProceedingJoinPoint pjp) {
-        if (!explicitName.isEmpty()) {
-            return explicitName;
+    /**
+     * Wraps a lazily consumed result so reporting happens once the caller
+     * has consumed it, or returns {@code null} for parallel streams, which
+     * are reported like any other result.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object trackConsumption(Object result, TimedMethodDescriptor descriptor, MeterId id,
+                                    long startNanos, double weight, TimedEvent event,
+                                    ProceedingJoinPoint exemplarSource) {
+        TimedElements.Completion completion = (endNanos, exception, elements, firstElementNanos) ->
+                reportConsumed(descriptor, id, startNanos, endNanos, exception, elements, firstElementNanos,
+                        weight, event, exemplarSource);
+        if (result instanceof Stream stream) {
+            return stream.isParallel() ? null : TimedElements.stream(stream, completion);
         }
-        MethodSignature sig = (MethodSignature) pjp.getSignature();
-        return sig.getDeclaringType().getSimpleName() + "." + sig.getMethod().getName();
+        if (result instanceof Iterator iterator) {
+            return TimedElements.iterator(iterator, completion);
+        }
+        if (result instanceof Iterable iterable) {
+            return TimedElements.iterable(iterable, completion);
+        }
+        return null;
     }
 
-    private Map<String, String> collectStaticTags(Tag[] tags) {
-        Map<String, String> tagMap = new LinkedHashMap<>();
-        for (Tag tag : tags) {
-            tagMap.put(tag.key(), tag.value());
+    private void reportConsumed(TimedMethodDescriptor descriptor, MeterId id, long startNanos, long endNanos,
+                                Throwable exception, long elements, long firstElementNanos, double weight,
+                                TimedEvent event, ProceedingJoinPoint exemplarSource) {
+        if (exception == null || descriptor.isReportExceptions()) {
+            try {
+                reporter.reportValue(id, Measurement.ELEMENT_COUNT, elements, weight);
+                if (elements > 0) {
+                    reporter.reportValue(id, Measurement.FIRST_ELEMENT_NANOS, firstElementNanos - startNanos, weight);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to report consumed elements for [{}]", id.getName(), e);
+            }
         }
-        return tagMap;
+        report(descriptor, id, startNanos, endNanos, exception, weight, event, exemplarSource);
     }
 
-    void resolveDynamicTags(String[] dynamicTags, ProceedingJoinPoint pjp, Map<String, String> tags) {
-        if (dynamicTags.length == 0) {
+    /**
+     * Reports a finished call. {@code exemplarSource} is the call's join point
+     * if a {@link SlowCallReservoir} is configured, otherwise {@code null}.
+     */
+    private void report(TimedMethodDescriptor descriptor, MeterId id, long startNanos, long endNanos,
+                        Throwable exception, double weight, TimedEvent event,
+                        ProceedingJoinPoint exemplarSource) {
+        GcPauseTracker pauses = gcPauseTracker;
+        long pausedNanos = pauses == null ? 0 : pauses.pausedNanos(startNanos, endNanos);
+        if (event != null) {
+            event.complete(id, exception, pausedNanos);
+        }
+        if (exception != null && !descriptor.isReportExceptions()) {
             return;
         }
+        try {
+            if (pausedNanos > 0) {
+                reporter.reportValue(id, Measurement.GC_PAUSE_NANOS, pausedNanos, weight);
+            }
+            long expectedIntervalNanos = descriptor.getExpectedIntervalNanos();
+            if (expectedIntervalNanos > 0) {
+                reporter.report(id, endNanos - startNanos, exception, weight, expectedIntervalNanos);
+            } else {
+                reporter.report(id, endNanos - startNanos, exception, weight);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to report timing metric [{}]", id.getName(), e);
+        }
+        SlowCallReservoir slowCalls = slowCallReservoir;
+        if (slowCalls != null && exemplarSource != null) {
+            slowCalls.offer(id, endNanos - startNanos, endNanos, exception, descriptor, exemplarSource);
+        }
+    }
 
-        StandardEvaluationContext context = new StandardEvaluationContext();
-        context.setVariable("args", pjp.getArgs());
-        context.setVariable("target", pjp.getTarget());
+    /**
+     * Reports thread resource usage of the synchronous part of the call.
+     */
+    private void reportUsage(TimedMethodDescriptor descriptor, long[] usageStart, MeterId id,
+                             Throwable exception, double weight) {
+        if (usageStart == null || (exception != null && !descriptor.isReportExceptions())) {
+            return;
+        }
+        try {
+            descriptor.getUsageProbe().end(usageStart, id, weight, reporter);
+        } catch (Exception e) {
+            log.warn("Failed to report thread usage for [{}]", id.getName(), e);
+        }
+    }
 
-        // Also set named parameters if available
-        MethodSignature sig = (MethodSignature) pjp.getSignature();
-        String[] paramNames = sig.getParameterNames();
-        if (paramNames != null) {
-            Object[] args = pjp.getArgs();
-            for (int i = 0; i < paramNames.length; i++) {
-                context.setVariable(paramNames[i], args[i]);
-            }
+    private static Throwable unwrap(Throwable exception) {
+        if (exception instanceof CompletionException && exception.getCause() != null) {
+            return exception.getCause();
         }
+        return exception;
+    }
 
-        for (String dynamicTag : dynamicTags) {
-            int eqIdx = dynamicTag.indexOf('=');
-            if (eqIdx <= 0) {
-                log.warn("Invalid dynamic tag format '{}', expected 'key=expression'", dynamicTag);
-                continue;
-            }
-            String key = dynamicTag.substring(0, eqIdx).trim();
-            String expression = dynamicTag.substring(eqIdx + 1).trim();
+    private TimedMethodDescriptor timedDescriptor(ProceedingJoinPoint pjp, Timed timed) {
+        MethodSignature sig = (MethodSignature) pjp.getSignature();
+        Method method = sig.getMethod();
+        TimedMethodDescriptor descriptor = timedDescriptors.get(method);
+        if (descriptor == null) {
+            descriptor = timedDescriptors.computeIfAbsent(method,
+                    m -> TimedMethodDescriptor.forTimed(m, sig.getDeclaringType(), timed));
+        }
+        return descriptor;
+    }
 
-            try {
-                Object value = spelParser.parseExpression(expression).getValue(context);
-                tags.put(key, value != null ? value.toString() : "null");
-            } catch (Exception e) {
-                log.warn("Failed to evaluate dynamic tag expression '{}': {}", expression, e.getMessage());
-                tags.put(key, "ERROR");
-            }
+    private TimedMethodDescriptor timedClassDescriptor(ProceedingJoinPoint pjp, TimedClass timedClass) {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        TimedMethodDescriptor descriptor = timedClassDescriptors.get(method);
+        if (descriptor == null) {
+            descriptor = timedClassDescriptors.computeIfAbsent(method,
+                    m -> TimedMethodDescriptor.forTimedClass(m, timedClass));
         }
+        return descriptor;
     }
 }
@@ -0,0 +1,218 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Wraps lazily consumed {@link Stream}, {@link Iterator} and {@link Iterable}
+ * results of a timed method so the measurement ends when the caller has
+ * consumed them rather than when the method returns.
+ *
+ * <p>Each wrapper reports once: on exhaustion, on {@link Stream#close()}, or
+ * when the source throws. It counts elements in a plain field and stamps the
+ * first one, so consuming elements allocates nothing. Like the iterators they
+ * wrap, the wrappers are meant for one thread at a time.
+ */
+final class TimedElements {
+
+    /**
+     * Called once per consumption with the end timestamp, the exception
+     * thrown by the source if any, the number of elements consumed and the
+     * {@link System#nanoTime()} of the first one (0 if there was none).
+     */
+    interface Completion {
+        void complete(long endNanos, Throwable exception, long elements, long firstElementNanos);
+    }
+
+    private TimedElements() {
+    }
+
+    /**
+     * Returns a stream that reports when exhausted or closed. Closing it also
+     * closes {@code stream}.
+     */
+    static <T> Stream<T> stream(Stream<T> stream, Completion completion) {
+        TimedSpliterator<T> spliterator = new TimedSpliterator<>(stream.spliterator(), completion);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(spliterator::close)
+                .onClose(stream::close);
+    }
+
+    static <T> Iterator<T> iterator(Iterator<T> iterator, Completion completion) {
+        return new TimedIterator<>(iterator, completion);
+    }
+
+    /**
+     * Returns an iterable whose first iterator reports, measured from the
+     * original invocation. Later iterators are returned unwrapped, so
+     * iterating the result again does not count as another call.
+     */
+    static <T> Iterable<T> iterable(Iterable<T> iterable, Completion completion) {
+        AtomicBoolean iterated = new AtomicBoolean();
+        return () -> {
+            Iterator<T> iterator = iterable.iterator();
+            return iterated.compareAndSet(false, true) ? new TimedIterator<>(iterator, completion) : iterator;
+        };
+    }
+
+    private abstract static class Tracker {
+
+        private final Completion completion;
+        private long elements;
+        private long firstElementNanos;
+        private boolean done;
+
+        Tracker(Completion completion) {
+            this.completion = completion;
+        }
+
+        final void element() {
+            if (elements++ == 0) {
+                firstElementNanos = System.nanoTime();
+            }
+        }
+
+        final void finish(Throwable exception) {
+            if (!done) {
+                done = true;
+                completion.complete(System.nanoTime(), exception, elements, firstElementNanos);
+            }
+        }
+
+        final void close() {
+            finish(null);
+        }
+    }
+
+    private static final class TimedIterator<T> extends Tracker implements Iterator<T> {
+
+        private final Iterator<T> delegate;
+
+        TimedIterator(Iterator<T> delegate, Completion completion) {
+            super(completion);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext;
+            try {
+                hasNext = delegate.hasNext();
+            } catch (RuntimeException | Error e) {
+                finish(e);
+                throw e;
+            }
+            if (!hasNext) {
+                finish(null);
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            T next;
+            try {
+                next = delegate.next();
+            } catch (RuntimeException | Error e) {
+                finish(e);
+                throw e;
+            }
+            element();
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            delegate.remove();
+        }
+    }
+
+    /**
+     * Passes itself to the source as the element consumer, so counting needs
+     * no wrapper per element. Never splits, which is why parallel streams
+     * are not wrapped.
+     */
+    private static final class TimedSpliterator<T> extends Tracker implements Spliterator<T>, Consumer<T> {
+
+        private final Spliterator<T> delegate;
+        private Consumer<? super T> action;
+        private boolean actionFailed;
+
+        TimedSpliterator(Spliterator<T> delegate, Completion completion) {
+            super(completion);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            this.action = action;
+            boolean advanced;
+            try {
+                advanced = delegate.tryAdvance(this);
+            } catch (RuntimeException | Error e) {
+                // The caller's own action failing is not a failure of the source
+                finish(actionFailed ? null : e);
+                throw e;
+            } finally {
+                this.action = null;
+            }
+            if (!advanced) {
+                finish(null);
+            }
+            return advanced;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            this.action = action;
+            try {
+                delegate.forEachRemaining(this);
+            } catch (RuntimeException | Error e) {
+                // The caller's own action failing is not a failure of the source
+                finish(actionFailed ? null : e);
+                throw e;
+            } finally {
+                this.action = null;
+            }
+            finish(null);
+        }
+
+        @Override
+        public void accept(T element) {
+            element();
+            try {
+                action.accept(element);
+            } catch (RuntimeException | Error e) {
+                actionFailed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return delegate.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            // Without SIZED, count() and the like traverse the elements
+            // instead of answering from the size, so exhaustion is seen
+            return delegate.characteristics() & ~(SIZED | SUBSIZED);
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return delegate.getComparator();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.dpk.helper.timing.aop;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder event for one timed invocation, emitted by
+ * {@link TimedAspect} when {@link TimedAspect#setJfrEventsEnabled(boolean)} is on.
+ *
+ * <p>The event is enabled with a 0 ms threshold by default. Recordings can
+ * override both under the event name {@value #NAME} in a {@code .jfc} file,
+ * like any JDK event. Fields are only filled in for events that will be
+ * committed, so with no recording running the cost is an enabled check.
+ */
+@Name(TimedEvent.NAME)
+@Label("Timed Method")
+@Category({"Application", "Timing"})
+@Description("Invocation of a method instrumented with @Timed or @TimedClass")
+@StackTrace(false)
+@Threshold("0 ms")
+public final class TimedEvent extends Event {
+
+    public static final String NAME = "com.dpk.helper.timing.Timed";
+
+    @Label("Metric")
+    String metricName;
+
+    @Label("Tags")
+    String tags;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Exception")
+    String exception;
+
+    @Label("GC Pause")
+    @Description("Time the JVM spent in GC pauses during the call, if a GcPauseTracker is registered")
+    @Timespan(Timespan.NANOSECONDS)
+    long gcPause;
+
+    TimedEvent() {
+    }
+
+    /**
+     * Returns a started event, or {@code null} if no recording wants this event.
+     */
+    static TimedEvent beginIfEnabled() {
+        TimedEvent event = new TimedEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and commits it if it passes the recording's threshold.
+     */
+    void complete(MeterId id, Throwable thrown, long gcPauseNanos) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        metricName = id.getName();
+        tags = id.getTags().toString();
+        outcome = Outcome.of(thrown).name();
+        exception = thrown == null ? null : thrown.getClass().getName();
+        gcPause = gcPauseNanos;
+        commit();
+    }
+}
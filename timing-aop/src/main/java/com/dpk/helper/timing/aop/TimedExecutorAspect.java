@@ -0,0 +1,68 @@
+package com.dpk.helper.timing.aop;
+
+import com.dpk.helper.diagnostics.AspectOverhead;
+import com.dpk.helper.diagnostics.OverheadRecorder;
+import com.dpk.helper.timing.TimedExecutor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * AspectJ aspect that replaces the executor returned by a
+ * {@link TimedExecutor} method with a {@link TimedExecutorService}, so every
+ * task run on it reports queue wait and run time.
+ *
+ * <p>Works with Spring AOP proxies. Annotated fields need AspectJ weaving and
+ * {@link TimedExecutorFieldAspect}.
+ */
+@Aspect
+public class TimedExecutorAspect {
+
+    private final MetricsReporter reporter;
+    private final ConcurrentMap<Method, TimedExecutorSite> sites = new ConcurrentHashMap<>();
+    private AspectOverhead overhead;
+
+    public TimedExecutorAspect(MetricsReporter reporter) {
+        this.reporter = reporter;
+    }
+
+    public TimedExecutorAspect() {
+        this(new Slf4jMetricsReporter());
+    }
+
+    /**
+     * Measures the time this aspect adds to each call in
+     * {@code overheadRecorder}. Pass {@code null} to disable. Configure
+     * before the aspect starts intercepting calls.
+     */
+    public void setOverheadRecorder(OverheadRecorder overheadRecorder) {
+        this.overhead = overheadRecorder == null ? null : overheadRecorder.forAspect("TimedExecutorAspect");
+    }
+
+    @Around("execution(* *(..)) && @annotation(timedExecutor)")
+    public Object timeExecutor(ProceedingJoinPoint pjp, TimedExecutor timedExecutor) throws Throwable {
+        AspectOverhead overhead = this.overhead;
+        if (overhead != null) {
+            return overhead.measure(pjp, measured -> doTimeExecutor(measured, timedExecutor));
+        }
+        return doTimeExecutor(pjp, timedExecutor);
+    }
+
+    private Object doTimeExecutor(ProceedingJoinPoint pjp, TimedExecutor timedExecutor) throws Throwable {
+        Object executor = pjp.proceed();
+        MethodSignature sig = (MethodSignature) pjp.getSignature();
+        Method method = sig.getMethod();
+        TimedExecutorSite site = sites.get(method);
+        if (site == null) {
+            site = sites.computeIfAbsent(method, m -> TimedExecutorSite.of(
+                    sig.getDeclaringType().getSimpleName() + "." + m.getName(), timedExecutor,
+                    m.getReturnType(), reporter));
+        }
+        return site.wrap(executor);
+    }
+}
@@ -0,0 +1,53 @@
+package com.dpk.helper.timing.aop;
+
+import com.dpk.helper.timing.TimedExecutor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.FieldSignature;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * AspectJ aspect that makes reads of a {@link TimedExecutor} field return a
+ * {@link TimedExecutorService} around the stored executor.
+ *
+ * <p>Field access cannot be intercepted by Spring AOP proxies, so this aspect
+ * only works with compile-time or load-time weaving, and must not be
+ * registered as a Spring bean with {@code @EnableAspectJAutoProxy}. AspectJ
+ * creates the instance; configure it before the first field read:
+ *
+ * <pre>{@code
+ * Aspects.aspectOf(TimedExecutorFieldAspect.class).setMetricsReporter(reporter);
+ * }</pre>
+ */
+@Aspect
+public class TimedExecutorFieldAspect {
+
+    private final ConcurrentMap<Field, TimedExecutorSite> sites = new ConcurrentHashMap<>();
+    private volatile MetricsReporter reporter = new Slf4jMetricsReporter();
+
+    /**
+     * Sets the reporter for fields read from now on. Wrappers already handed
+     * out keep reporting to the previous one.
+     */
+    public void setMetricsReporter(MetricsReporter reporter) {
+        this.reporter = reporter;
+        sites.clear();
+    }
+
+    @Around("get(@com.dpk.helper.timing.TimedExecutor * *) && @annotation(timedExecutor)")
+    public Object timeExecutorField(ProceedingJoinPoint pjp, TimedExecutor timedExecutor) throws Throwable {
+        Object executor = pjp.proceed();
+        Field field = ((FieldSignature) pjp.getSignature()).getField();
+        TimedExecutorSite site = sites.get(field);
+        if (site == null) {
+            site = sites.computeIfAbsent(field, f -> TimedExecutorSite.of(
+                    f.getDeclaringClass().getSimpleName() + "." + f.getName(), timedExecutor,
+                    f.getType(), reporter));
+        }
+        return site.wrap(executor);
+    }
+}
@@ -0,0 +1,122 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExecutorService} that times every task it hands to a delegate.
+ * Created by {@link TimedExecutorAspect} for {@link com.dpk.helper.timing.TimedExecutor}
+ * sites, or directly for executors built in code.
+ *
+ * <p>For each task, {@code <name>.wait} reports the time from submission to
+ * start, preceded by {@link Measurement#QUEUE_DEPTH}: the tasks that were
+ * still waiting when it was submitted. {@code <name>.run} reports the time
+ * from start to finish, with the task's exception if it failed. Tasks
+ * submitted with {@code submit} or {@code invokeAll} report the exception
+ * held by their future.
+ *
+ * <p>Each task costs one wrapper holding its submission timestamp, plus a
+ * read of the pool's queue size for a {@code ThreadPoolExecutor} delegate or
+ * two updates of a shared pending counter otherwise. Any delegate works, including
+ * {@code Executors.newVirtualThreadPerTaskExecutor()}, where the wait is the
+ * time until the virtual thread first runs.
+ */
+public class TimedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final ExecutorTaskTimer timer;
+
+    public TimedExecutorService(ExecutorService delegate, String metricName, Map<String, String> tags,
+                                MetricsReporter reporter) {
+        this(delegate, new ExecutorTaskTimer(metricName, tags, reporter));
+    }
+
+    TimedExecutorService(ExecutorService delegate, ExecutorTaskTimer timer) {
+        this.delegate = delegate;
+        this.timer = timer;
+    }
+
+    /**
+     * Wraps a plain {@link Executor}. Returns a {@link TimedExecutorService}
+     * if {@code delegate} is an {@link ExecutorService}.
+     */
+    public static Executor wrap(Executor delegate, String metricName, Map<String, String> tags,
+                                MetricsReporter reporter) {
+        return wrap(delegate, new ExecutorTaskTimer(metricName, tags, reporter));
+    }
+
+    static Executor wrap(Executor delegate, ExecutorTaskTimer timer) {
+        if (delegate instanceof ExecutorService service) {
+            return new TimedExecutorService(service, timer);
+        }
+        return command -> timer.execute(delegate, command);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        timer.execute(delegate, command);
+    }
+
+    /**
+     * Tasks waiting to start. For a {@link java.util.concurrent.ThreadPoolExecutor}
+     * delegate, this is the size of its queue, including tasks submitted
+     * directly to the pool. Otherwise it counts tasks submitted through this
+     * wrapper, or others sharing its metric, that have not started yet; that
+     * count drifts upward if the delegate discards tasks without running them.
+     */
+    public long getQueueDepth() {
+        return timer.getPending(delegate);
+    }
+
+    public ExecutorService getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    /**
+     * Returns the original tasks that never started.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> neverRun = delegate.shutdownNow();
+        List<Runnable> unwrapped = new ArrayList<>(neverRun.size());
+        for (Runnable task : neverRun) {
+            unwrapped.add(timer.abandon(task));
+        }
+        return unwrapped;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return "TimedExecutorService[" + delegate + "]";
+    }
+}
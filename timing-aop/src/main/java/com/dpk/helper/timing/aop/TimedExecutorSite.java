@@ -0,0 +1,68 @@
+package com.dpk.helper.timing.aop;
+
+import com.dpk.helper.timing.Tag;
+import com.dpk.helper.timing.TimedExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * One {@link TimedExecutor} method or field, resolved on first access. Keeps
+ * the wrapper of the last executor seen, so a getter or field that keeps
+ * returning the same executor also returns the same wrapper.
+ */
+final class TimedExecutorSite {
+
+    private static final Logger log = LoggerFactory.getLogger(TimedExecutorSite.class);
+
+    private final ExecutorTaskTimer timer;
+    private volatile Wrapped last;
+
+    private TimedExecutorSite(ExecutorTaskTimer timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * @param declaredType the method's return type or the field's type; only
+     *                     {@link Executor} and {@link ExecutorService} can be
+     *                     replaced by a wrapper
+     */
+    static TimedExecutorSite of(String defaultName, TimedExecutor timedExecutor, Class<?> declaredType,
+                                MetricsReporter reporter) {
+        String metricName = timedExecutor.value().isEmpty() ? defaultName : timedExecutor.value();
+        if (declaredType != Executor.class && declaredType != ExecutorService.class) {
+            log.warn("@TimedExecutor ignored for [{}]: declared type {} is not Executor or ExecutorService",
+                    metricName, declaredType.getName());
+            return new TimedExecutorSite(null);
+        }
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (Tag tag : timedExecutor.tags()) {
+            tags.put(tag.key(), tag.value());
+        }
+        return new TimedExecutorSite(new ExecutorTaskTimer(metricName, tags, reporter));
+    }
+
+    /**
+     * Returns the wrapper to hand out in place of {@code executor}.
+     */
+    Object wrap(Object executor) {
+        if (timer == null || !(executor instanceof Executor delegate)) {
+            return executor;
+        }
+        Wrapped wrapped = last;
+        if (wrapped != null && wrapped.delegate == delegate) {
+            return wrapped.wrapper;
+        }
+        // Racing first reads may each create a wrapper; they share the timer
+        Executor wrapper = TimedExecutorService.wrap(delegate, timer);
+        last = new Wrapped(delegate, wrapper);
+        return wrapper;
+    }
+
+    private record Wrapped(Executor delegate, Executor wrapper) {
+    }
+}
@@ -0,0 +1,334 @@
+package com.dpk.helper.timing.aop;
+
+import com.dpk.helper.timing.Tag;
+import com.dpk.helper.timing.Timed;
+import com.dpk.helper.timing.TimedClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Everything {@link TimedAspect} needs to know about an instrumented method,
+ * resolved once on first invocation and reused for every call after that:
+ * the site {@link MeterId} (metric name and static tags) and the parsed
+ * dynamic tag expressions.
+ */
+final class TimedMethodDescriptor {
+
+    private static final Logger log = LoggerFactory.getLogger(TimedMethodDescriptor.class);
+
+    /**
+     * Shared marker for {@code @TimedClass} methods that must not be instrumented.
+     */
+    static final TimedMethodDescriptor NOT_INSTRUMENTED =
+            new TimedMethodDescriptor(false, "", Map.of(), new DynamicTag[0], new DynamicTag[0], new String[0],
+                    false, Sampler.ALWAYS, ThreadUsageProbe.NONE, void.class, false, 0);
+
+    private static final ThreadLocal<ReusableContext> CONTEXTS = ThreadLocal.withInitial(ReusableContext::new);
+
+    private final boolean instrumented;
+    private final MeterId meterId;
+    private final DynamicTag[] dynamicTags;
+    private final DynamicTag[] exemplarArgs;
+    private final String[] parameterNames;
+    private final boolean reportExceptions;
+    private final Sampler sampler;
+    private final ThreadUsageProbe usageProbe;
+    private final boolean asyncResult;
+    private final boolean publisherResult;
+    private final boolean lazyResult;
+    private final long expectedIntervalNanos;
+
+    private TimedMethodDescriptor(boolean instrumented, String metricName, Map<String, String> staticTags,
+                                  DynamicTag[] dynamicTags, DynamicTag[] exemplarArgs, String[] parameterNames,
+                                  boolean reportExceptions,
+                                  Sampler sampler, ThreadUsageProbe usageProbe, Class<?> returnType,
+                                  boolean lazyResult, long expectedIntervalNanos) {
+        this.instrumented = instrumented;
+        this.meterId = MeterId.of(metricName, staticTags,
+                Arrays.stream(dynamicTags).map(DynamicTag::key).toArray(String[]::new));
+        this.dynamicTags = dynamicTags;
+        this.exemplarArgs = exemplarArgs;
+        this.parameterNames = parameterNames;
+        this.reportExceptions = reportExceptions;
+        this.sampler = sampler;
+        this.usageProbe = usageProbe;
+        // A plain Future cannot be observed without blocking, but the
+        // instance behind it often is a CompletableFuture
+        this.publisherResult = returnType == Flow.Publisher.class;
+        this.asyncResult = publisherResult
+                || CompletionStage.class.isAssignableFrom(returnType)
+                || Future.class.isAssignableFrom(returnType);
+        // Only the exact declared types can be replaced by a wrapper
+        this.lazyResult = lazyResult
+                && (returnType == Stream.class || returnType == Iterator.class || returnType == Iterable.class);
+        if (lazyResult && !this.lazyResult) {
+            log.warn("lazyResult ignored for [{}]: return type {} is not Stream, Iterator or Iterable",
+                    metricName, returnType.getName());
+        }
+        if (expectedIntervalNanos < 0) {
+            log.warn("expectedIntervalNanos ignored for [{}]: {} is negative", metricName, expectedIntervalNanos);
+        }
+        this.expectedIntervalNanos = Math.max(0, expectedIntervalNanos);
+    }
+
+    static TimedMethodDescriptor forTimed(Method method, Class<?> declaringType, Timed timed) {
+        String metricName = timed.value().isEmpty()
+                ? declaringType.getSimpleName() + "." + method.getName()
+                : timed.value();
+
+        DynamicTag[] dynamicTags = timed.dynamicTags().length == 0
+                ? new DynamicTag[0]
+                : parseDynamicTags(timed.dynamicTags(), method);
+        DynamicTag[] exemplarArgs = timed.exemplarArgs().length == 0
+                ? new DynamicTag[0]
+                : parseDynamicTags(timed.exemplarArgs(), method);
+
+        return new TimedMethodDescriptor(true, metricName.intern(), collectStaticTags(timed.tags()),
+                dynamicTags, exemplarArgs, parameterNames(method), timed.reportExceptions(),
+                Sampler.of(timed.sampling(), metricName),
+                ThreadUsageProbe.of(timed.threadMetrics(), metricName), method.getReturnType(), timed.lazyResult(),
+                timed.expectedIntervalNanos());
+    }
+
+    static TimedMethodDescriptor forTimedClass(Method method, TimedClass timedClass) {
+        // Only instrument public methods
+        if (!Modifier.isPublic(method.getModifiers())) {
+            return NOT_INSTRUMENTED;
+        }
+
+        String prefix = timedClass.prefix();
+        String metricName = prefix.isEmpty() ? method.getName() : prefix + "." + method.getName();
+
+        return new TimedMethodDescriptor(true, metricName.intern(), collectStaticTags(timedClass.tags()),
+                new DynamicTag[0], new DynamicTag[0], new String[0], true,
+                Sampler.of(timedClass.sampling(), metricName),
+                ThreadUsageProbe.NONE, method.getReturnType(), false, 0);
+    }
+
+    boolean isInstrumented() {
+        return instrumented;
+    }
+
+    String getMetricName() {
+        return meterId.getName();
+    }
+
+    /**
+     * The site id shared by every call of this method.
+     */
+    MeterId getMeterId() {
+        return meterId;
+    }
+
+    boolean isReportExceptions() {
+        return reportExceptions;
+    }
+
+    /**
+     * The per-thread resource counters to capture, {@link ThreadUsageProbe#NONE} if none.
+     */
+    ThreadUsageProbe getUsageProbe() {
+        return usageProbe;
+    }
+
+    /**
+     * Whether the method returns a type whose completion may be tracked.
+     */
+    boolean isAsyncResult() {
+        return asyncResult;
+    }
+
+    /**
+     * Whether the method is declared to return {@link Flow.Publisher}, so a
+     * wrapping publisher can be returned in its place.
+     */
+    boolean isPublisherResult() {
+        return publisherResult;
+    }
+
+    /**
+     * Whether the result is a {@link Stream}, {@link Iterator} or
+     * {@link Iterable} to be timed until it is consumed.
+     */
+    boolean isLazyResult() {
+        return lazyResult;
+    }
+
+    /**
+     * The interval at which callers intend to invoke the method, or 0 if
+     * latencies are not to be corrected for coordinated omission.
+     */
+    long getExpectedIntervalNanos() {
+        return expectedIntervalNanos;
+    }
+
+    /**
+     * Returns the weight of this invocation if it should be timed, or 0 if not.
+     */
+    double sample() {
+        return sampler.sample();
+    }
+
+    /**
+     * Returns the id for one invocation. Methods without dynamic tags always
+     * return the same site id; otherwise the dynamic tag expressions are
+     * evaluated and attached to it.
+     */
+    MeterId resolveId(Object target, Object[] args) {
+        if (dynamicTags.length == 0) {
+            return meterId;
+        }
+
+        return meterId.withDynamicValues(evaluate(dynamicTags, target, args));
+    }
+
+    /**
+     * Renders the {@link Timed#exemplarArgs()} summary of one invocation, in
+     * declaration order. Empty if none are configured.
+     */
+    Map<String, String> renderExemplarArgs(Object target, Object[] args) {
+        if (exemplarArgs.length == 0) {
+            return Map.of();
+        }
+        String[] values = evaluate(exemplarArgs, target, args);
+        Map<String, String> rendered = new LinkedHashMap<>();
+        for (int i = 0; i < exemplarArgs.length; i++) {
+            rendered.put(exemplarArgs[i].key(), values[i]);
+        }
+        return rendered;
+    }
+
+    private String[] evaluate(DynamicTag[] expressions, Object target, Object[] args) {
+        String[] values = new String[expressions.length];
+
+        ReusableContext reusable = CONTEXTS.get();
+        // A dynamic tag expression may itself call a timed method; the nested
+        // call then gets its own context instead of clobbering ours.
+        boolean borrowed = !reusable.inUse;
+        StandardEvaluationContext context = borrowed ? reusable.context : new StandardEvaluationContext();
+        reusable.inUse = true;
+
+        try {
+            context.setVariable("args", args);
+            context.setVariable("target", target);
+            for (int i = 0; i < parameterNames.length && i < args.length; i++) {
+                context.setVariable(parameterNames[i], args[i]);
+            }
+
+            for (int i = 0; i < expressions.length; i++) {
+                values[i] = expressions[i].evaluate(context);
+            }
+        } finally {
+            if (borrowed) {
+                // Setting a variable to null removes it, so no argument outlives the call
+                context.setVariable("args", null);
+                context.setVariable("target", null);
+                for (String parameterName : parameterNames) {
+                    context.setVariable(parameterName, null);
+                }
+                reusable.inUse = false;
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, String> collectStaticTags(Tag[] tags) {
+        if (tags.length == 0) {
+            return Map.of();
+        }
+        Map<String, String> tagMap = new LinkedHashMap<>();
+        for (Tag tag : tags) {
+            tagMap.put(tag.key(), tag.value());
+        }
+        return tagMap;
+    }
+
+    private static DynamicTag[] parseDynamicTags(String[] dynamicTags, Method method) {
+        // MIXED compiles an expression to bytecode once its types are stable
+        // and quietly falls back to interpretation if compilation is not possible.
+        ExpressionParser parser = new SpelExpressionParser(
+                new SpelParserConfiguration(SpelCompilerMode.MIXED, method.getDeclaringClass().getClassLoader()));
+
+        // A repeated key keeps its first position and its last expression
+        Map<String, DynamicTag> byKey = new LinkedHashMap<>();
+        Arrays.stream(dynamicTags)
+                .map(dynamicTag -> parseDynamicTag(dynamicTag, parser))
+                .filter(Objects::nonNull)
+                .forEach(dynamicTag -> byKey.put(dynamicTag.key(), dynamicTag));
+        return byKey.values().toArray(new DynamicTag[0]);
+    }
+
+    private static DynamicTag parseDynamicTag(String dynamicTag, ExpressionParser parser) {
+        int eqIdx = dynamicTag.indexOf('=');
+        if (eqIdx <= 0) {
+            log.warn("Invalid dynamic tag format '{}', expected 'key=expression'", dynamicTag);
+            return null;
+        }
+        String key = dynamicTag.substring(0, eqIdx).trim();
+        String expression = dynamicTag.substring(eqIdx + 1).trim();
+
+        try {
+            return new DynamicTag(key, expression, parser.parseExpression(expression));
+        } catch (Exception e) {
+            log.warn("Failed to parse dynamic tag expression '{}': {}", expression, e.getMessage());
+            return new DynamicTag(key, expression, null);
+        }
+    }
+
+    private static String[] parameterNames(Method method) {
+        Parameter[] parameters = method.getParameters();
+        if (parameters.length == 0 || !parameters[0].isNamePresent()) {
+            // Compiled without -parameters: only #args is available
+            return new String[0];
+        }
+        String[] names = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            names[i] = parameters[i].getName();
+        }
+        return names;
+    }
+
+    /**
+     * A single {@code key=expression} pair with its pre-parsed expression,
+     * or a {@code null} expression if parsing failed.
+     */
+    record DynamicTag(String key, String expressionString, Expression expression) {
+
+        String evaluate(StandardEvaluationContext context) {
+            if (expression == null) {
+                return "ERROR";
+            }
+            try {
+                Object value = expression.getValue(context);
+                return value != null ? value.toString() : "null";
+            } catch (Exception e) {
+                log.warn("Failed to evaluate dynamic tag expression '{}': {}", expressionString, e.getMessage());
+                return "ERROR";
+            }
+        }
+    }
+
+    private static final class ReusableContext {
+        final StandardEvaluationContext context = new StandardEvaluationContext();
+        boolean inUse;
+    }
+}
@@ -0,0 +1,88 @@
+package com.dpk.helper.timing.aop;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wraps a {@link Flow.Publisher} returned from a timed method so the
+ * measurement ends when a subscription terminates rather than when the
+ * publisher is created.
+ *
+ * <p>Each subscription reports once, measured from the original invocation:
+ * {@code onComplete} as success, {@code onError} as failure, and
+ * {@code cancel()} as {@link Outcome#CANCELLED}.
+ */
+final class TimedPublisher<T> implements Flow.Publisher<T> {
+
+    /**
+     * Called once per subscription with the end timestamp and the terminal exception, if any.
+     */
+    interface Completion {
+        void complete(long endNanos, Throwable exception);
+    }
+
+    private final Flow.Publisher<T> delegate;
+    private final Completion completion;
+
+    TimedPublisher(Flow.Publisher<T> delegate, Completion completion) {
+        this.delegate = delegate;
+        this.completion = completion;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        delegate.subscribe(new TimedSubscriber<>(subscriber, completion));
+    }
+
+    private static final class TimedSubscriber<T> implements Flow.Subscriber<T> {
+
+        private final Flow.Subscriber<? super T> delegate;
+        private final Completion completion;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        TimedSubscriber(Flow.Subscriber<? super T> delegate, Completion completion) {
+            this.delegate = delegate;
+            this.completion = completion;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    finish(new CancellationException("Subscription cancelled"));
+                    subscription.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(T item) {
+            delegate.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            finish(throwable);
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            finish(null);
+            delegate.onComplete();
+        }
+
+        private void finish(Throwable exception) {
+            if (done.compareAndSet(false, true)) {
+                completion.complete(System.nanoTime(), exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.dpk.helper.timing.aop;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the stacks of threads executing timed methods, and aggregates the
+ * samples per metric, so a slow metric can be broken down by the code it
+ * spends its time in.
+ *
+ * <p>Enable it with {@link TimedAspect#setWallClockProfiler(WallClockProfiler)}.
+ * Each thread publishes the metric of its innermost active timed call in a
+ * slot of its own; entering and leaving a call is one field write each. A
+ * background thread wakes up every {@code interval}, and takes a stack trace
+ * of each thread whose slot is set. Waiting counts as much as running, so
+ * calls blocked on I/O or locks show up where they block.
+ *
+ * <p>A sample keeps the frames from the timed method down, without the
+ * aspect and proxy frames above it, and at most {@code maxFrames} of them.
+ * Each metric keeps at most {@code maxStacksPerMetric} distinct stacks; later
+ * ones are counted under {@value #TRUNCATED}.
+ *
+ * <p>{@link #writeCollapsedStacks(Appendable)} exports the samples in the
+ * collapsed-stack format read by flame graph tools: one
+ * {@code metric;frame;frame count} line per stack, outermost frame first.
+ */
+public class WallClockProfiler implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WallClockProfiler.class);
+
+    static final String TRUNCATED = "[truncated]";
+
+    public static final Duration DEFAULT_INTERVAL = Duration.ofMillis(20);
+    public static final int DEFAULT_MAX_STACKS_PER_METRIC = 1_000;
+    public static final int DEFAULT_MAX_FRAMES = 128;
+
+    // Frames between the aspect and the timed method: AOP proxies, reflection
+    // and the overhead recorder's join point wrapper
+    private static final String[] PLUMBING_PREFIXES = {
+            "org.springframework.aop.", "org.springframework.cglib.", "org.aspectj.",
+            "java.lang.reflect.", "jdk.internal.reflect.", "com.dpk.helper.diagnostics."
+    };
+
+    private final int maxStacksPerMetric;
+    private final int maxFrames;
+    private final Set<ThreadSlot> slots = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<ThreadSlot> slot = ThreadLocal.withInitial(this::register);
+    private final ConcurrentMap<String, ConcurrentMap<String, Long>> samples = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public WallClockProfiler() {
+        this(DEFAULT_INTERVAL, DEFAULT_MAX_STACKS_PER_METRIC, DEFAULT_MAX_FRAMES);
+    }
+
+    public WallClockProfiler(Duration interval) {
+        this(interval, DEFAULT_MAX_STACKS_PER_METRIC, DEFAULT_MAX_FRAMES);
+    }
+
+    public WallClockProfiler(Duration interval, int maxStacksPerMetric, int maxFrames) {
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        if (maxStacksPerMetric < 1 || maxFrames < 1) {
+            throw new IllegalArgumentException("maxStacksPerMetric and maxFrames must be positive");
+        }
+        this.maxStacksPerMetric = maxStacksPerMetric;
+        this.maxFrames = maxFrames;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "timing-wallclock-profiler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = interval.toNanos();
+        this.scheduler.scheduleAtFixedRate(this::sampleSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the current thread's slot, registering it on first use.
+     */
+    ThreadSlot slot() {
+        return slot.get();
+    }
+
+    /**
+     * Takes one sample of every thread inside a timed method.
+     */
+    void sample() {
+        for (Iterator<ThreadSlot> it = slots.iterator(); it.hasNext(); ) {
+            ThreadSlot threadSlot = it.next();
+            if (!threadSlot.thread.isAlive()) {
+                it.remove();
+                continue;
+            }
+            String metric = threadSlot.active();
+            if (metric == null) {
+                continue;
+            }
+            StackTraceElement[] stack = threadSlot.thread.getStackTrace();
+            // Discard the stack if the thread left the call while it was taken
+            if (stack.length > 0 && threadSlot.active() == metric) {
+                record(metric, collapse(stack));
+            }
+        }
+    }
+
+    private void sampleSafely() {
+        try {
+            sample();
+        } catch (RuntimeException e) {
+            log.warn("Wall-clock sampling failed", e);
+        }
+    }
+
+    /**
+     * Writes every sampled stack with its sample count, one per line.
+     */
+    public void writeCollapsedStacks(Appendable out) {
+        try {
+            for (StackSample sample : snapshot()) {
+                out.append(sample.metric());
+                if (!sample.stack().isEmpty()) {
+                    out.append(';').append(sample.stack());
+                }
+                out.append(' ').append(Long.toString(sample.samples())).append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the collapsed-stack export as a string.
+     */
+    public String toCollapsedStacks() {
+        StringBuilder sb = new StringBuilder();
+        writeCollapsedStacks(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Returns the sample counts per metric and stack.
+     */
+    public List<StackSample> snapshot() {
+        List<StackSample> result = new ArrayList<>();
+        for (Map.Entry<String, ConcurrentMap<String, Long>> metric : samples.entrySet()) {
+            for (Map.Entry<String, Long> stack : metric.getValue().entrySet()) {
+                result.add(new StackSample(metric.getKey(), stack.getKey(), stack.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Discards all samples taken so far.
+     */
+    public void reset() {
+        samples.clear();
+    }
+
+    /**
+     * Stops sampling. Samples taken so far remain available.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private ThreadSlot register() {
+        ThreadSlot threadSlot = new ThreadSlot(Thread.currentThread());
+        slots.add(threadSlot);
+        return threadSlot;
+    }
+
+    private void record(String metric, String stack) {
+        ConcurrentMap<String, Long> stacks = samples.computeIfAbsent(metric, m -> new ConcurrentHashMap<>());
+        if (!stacks.containsKey(stack) && stacks.size() >= maxStacksPerMetric) {
+            stack = TRUNCATED;
+        }
+        // Only the sampling thread writes, so merge never contends
+        stacks.merge(stack, 1L, Long::sum);
+    }
+
+    /**
+     * Joins the frames below the innermost {@link TimedAspect} frame,
+     * outermost first. Keeps the whole stack if the aspect is not on it.
+     */
+    String collapse(StackTraceElement[] stack) {
+        int end = stack.length;
+        String aspectClass = TimedAspect.class.getName();
+        for (int i = 0; i < stack.length; i++) {
+            if (stack[i].getClassName().equals(aspectClass)) {
+                end = i;
+                break;
+            }
+        }
+        while (end > 0 && isPlumbing(stack[end - 1].getClassName())) {
+            end--;
+        }
+        int start = Math.max(0, end - maxFrames);
+        StringBuilder sb = new StringBuilder();
+        for (int i = end - 1; i >= start; i--) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(stack[i].getClassName()).append('.').append(stack[i].getMethodName());
+        }
+        return sb.toString();
+    }
+
+    private static boolean isPlumbing(String className) {
+        for (String prefix : PLUMBING_PREFIXES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sample count of one stack.
+     *
+     * @param metric  the metric of the innermost timed call when the samples were taken
+     * @param stack   frames from the timed method down, {@code ;}-separated
+     * @param samples number of samples with this stack
+     */
+    public record StackSample(String metric, String stack, long samples) {}
+
+    /**
+     * Per-thread slot holding the metric of the thread's innermost active timed call.
+     */
+    static final class ThreadSlot {
+
+        private static final VarHandle ACTIVE;
+
+        static {
+            try {
+                ACTIVE = MethodHandles.lookup().findVarHandle(ThreadSlot.class, "active", String.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final Thread thread;
+        // Written by the owning thread only, with release semantics so the
+        // sampler sees it without a full fence on the hot path
+        private String active;
+
+        ThreadSlot(Thread thread) {
+            this.thread = thread;
+        }
+
+        /**
+         * Publishes {@code metric} and returns the metric of the enclosing call, if any.
+         */
+        String enter(String metric) {
+            String previous = active;
+            ACTIVE.setRelease(this, metric);
+            return previous;
+        }
+
+        /**
+         * Restores the metric returned by the matching {@link #enter(String)}.
+         */
+        void exit(String previous) {
+            ACTIVE.setRelease(this, previous);
+        }
+
+        String active() {
+            return (String) ACTIVE.getAcquire(this);
+        }
+    }
+}
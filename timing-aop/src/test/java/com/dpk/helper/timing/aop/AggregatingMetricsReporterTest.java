@@ -0,0 +1,132 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AggregatingMetricsReporterTest {
+
+    @Test
+    void report_aggregatesPerMetricAndTagSet() {
+        AggregatingMetricsReporter reporter = new AggregatingMetricsReporter();
+
+        reporter.report("orders.fetch", 1_000, Map.of("env", "prod"), null);
+        reporter.report("orders.fetch", 3_000, Map.of("env", "prod"), new IllegalStateException());
+        reporter.report("orders.fetch", 2_000, Map.of("env", "test"), null);
+
+        List<MetricSnapshot> snapshots = reporter.snapshot();
+        assertThat(snapshots).hasSize(2);
+
+        MetricSnapshot prod = find(snapshots, "prod");
+        assertThat(prod.count()).isEqualTo(2);
+        assertThat(prod.errorCount()).isEqualTo(1);
+        assertThat(prod.sumNanos()).isEqualTo(4_000);
+        assertThat(prod.maxNanos()).isEqualTo(3_000);
+        assertThat(prod.percentiles()).containsOnlyKeys(50.0, 90.0, 99.0, 99.9);
+    }
+
+    @Test
+    void report_copiesMutableTagMaps() {
+        AggregatingMetricsReporter reporter = new AggregatingMetricsReporter();
+        Map<String, String> tags = new HashMap<>();
+        tags.put("env", "prod");
+
+        reporter.report("m", 1, tags, null);
+        tags.put("env", "changed");
+
+        assertThat(reporter.snapshot().get(0).tags()).containsEntry("env", "prod");
+    }
+
+    @Test
+    void intervalSnapshot_resetsBetweenCalls() {
+        AggregatingMetricsReporter reporter = new AggregatingMetricsReporter(50.0);
+        reporter.report("m", 1_000, Map.of(), new RuntimeException());
+
+        MetricSnapshot first = reporter.intervalSnapshot().get(0);
+        assertThat(first.count()).isEqualTo(1);
+        assertThat(first.errorCount()).isEqualTo(1);
+        assertThat(first.percentiles()).containsOnlyKeys(50.0);
+
+        MetricSnapshot second = reporter.intervalSnapshot().get(0);
+        assertThat(second.count()).isZero();
+        assertThat(second.errorCount()).isZero();
+        assertThat(reporter.snapshot().get(0).count()).isEqualTo(1);
+    }
+
+    @Test
+    void report_isSafeUnderConcurrentRecording() throws InterruptedException {
+        AggregatingMetricsReporter reporter = new AggregatingMetricsReporter();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    reporter.report("m", i, Map.of("k", "v"), null);
+                }
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(reporter.snapshot().get(0).count()).isEqualTo(80_000);
+    }
+
+    @Test
+    void cancellations_countedSeparatelyFromErrors() {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        MeterId id = MeterId.of("async", Map.of());
+        aggregator.report(id, 1_000, null);
+        aggregator.report(id, 1_000, new IllegalStateException());
+        aggregator.report(id, 1_000, new CancellationException());
+
+        MetricSnapshot snapshot = aggregator.snapshot().get(0);
+        assertThat(snapshot.count()).isEqualTo(3);
+        assertThat(snapshot.errorCount()).isEqualTo(1);
+        assertThat(snapshot.cancelledCount()).isEqualTo(1);
+    }
+
+    @Test
+    void expectedInterval_reportsCorrectedNextToMeasuredDistribution() {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter(50.0, 99.0);
+        MeterId id = MeterId.of("tick", Map.of());
+        for (int i = 0; i < 99; i++) {
+            aggregator.report(id, 1_000_000, null, 1.0, 10_000_000);
+        }
+        // One stall holds back the 99 calls due during it
+        aggregator.report(id, 1_000_000_000, null, 1.0, 10_000_000);
+
+        MetricSnapshot snapshot = aggregator.snapshot().get(0);
+        assertThat(snapshot.count()).isEqualTo(100);
+        assertThat(snapshot.percentiles().get(99.0)).isLessThan(2_000_000);
+        assertThat(snapshot.isCorrected()).isTrue();
+        assertThat(snapshot.correctedHistogram().getCount()).isEqualTo(199);
+        assertThat(snapshot.correctedPercentiles().get(50.0)).isGreaterThan(10_000_000);
+        assertThat(snapshot.correctedPercentiles().get(99.0)).isGreaterThan(900_000_000);
+
+        MetricSnapshot interval = aggregator.intervalSnapshot().get(0);
+        assertThat(interval.correctedHistogram().getCount()).isEqualTo(199);
+        assertThat(aggregator.intervalSnapshot().get(0).correctedHistogram().getCount()).isZero();
+    }
+
+    @Test
+    void seriesWithoutExpectedInterval_haveNoCorrectedDistribution() {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        aggregator.report(MeterId.of("m", Map.of()), 1_000_000_000, null, 1.0);
+
+        MetricSnapshot snapshot = aggregator.snapshot().get(0);
+        assertThat(snapshot.isCorrected()).isFalse();
+        assertThat(snapshot.correctedHistogram()).isNull();
+        assertThat(snapshot.correctedPercentiles()).isEmpty();
+    }
+
+    private static MetricSnapshot find(List<MetricSnapshot> snapshots, String env) {
+        return snapshots.stream().filter(s -> env.equals(s.tags().get("env"))).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,100 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncMetricsReporterTest {
+
+    @Test
+    void report_deliversMeasurementsToDelegateInOrder() {
+        List<String> names = new CopyOnWriteArrayList<>();
+        AsyncMetricsReporter reporter = new AsyncMetricsReporter(batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                names.add(batch.metricName(i) + ":" + batch.durationNanos(i));
+            }
+        });
+
+        for (int i = 0; i < 1_000; i++) {
+            reporter.report("m", i, Map.of(), null);
+        }
+        reporter.close();
+
+        assertThat(names).hasSize(1_000).startsWith("m:0", "m:1").endsWith("m:999");
+        assertThat(reporter.getEnqueuedCount()).isEqualTo(1_000);
+        assertThat(reporter.getDrainedCount()).isEqualTo(1_000);
+        assertThat(reporter.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void dropPolicy_discardsWhenFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncMetricsReporter reporter = new AsyncMetricsReporter(batch -> await(release),
+                8, 1, AsyncMetricsReporter.OverflowPolicy.DROP);
+
+        for (int i = 0; i < 100; i++) {
+            reporter.report("m", i, Map.of(), null);
+        }
+        release.countDown();
+        reporter.close();
+
+        assertThat(reporter.getDroppedCount()).isPositive();
+        assertThat(reporter.getEnqueuedCount() + reporter.getDroppedCount()).isEqualTo(100);
+        assertThat(reporter.getDrainedCount()).isEqualTo(reporter.getEnqueuedCount());
+    }
+
+    @Test
+    void blockPolicy_neverDrops() throws InterruptedException {
+        AtomicInteger received = new AtomicInteger();
+        AsyncMetricsReporter reporter = new AsyncMetricsReporter(batch -> received.addAndGet(batch.size()),
+                16, 4, AsyncMetricsReporter.OverflowPolicy.BLOCK);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    reporter.report("m", i, Map.of(), null);
+                }
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        reporter.close();
+
+        assertThat(received.get()).isEqualTo(20_000);
+        assertThat(reporter.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void failingDelegate_doesNotStopDraining() {
+        AtomicInteger calls = new AtomicInteger();
+        AsyncMetricsReporter reporter = new AsyncMetricsReporter(batch -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("backend down");
+        }, 64, 1, AsyncMetricsReporter.OverflowPolicy.BLOCK);
+
+        reporter.report("a", 1, Map.of(), null);
+        reporter.report("b", 2, Map.of(), null);
+        reporter.close();
+
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(reporter.getDrainedCount()).isEqualTo(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringJUnitConfig(TestConfig.class)
+class AsyncResultTimingTest {
+
+    @Autowired
+    private TestService testService;
+
+    @Autowired
+    private InMemoryMetricsReporter reporter;
+
+    @BeforeEach
+    void setUp() {
+        reporter.clear();
+    }
+
+    @Test
+    void completableFuture_reportsWhenCompleted() throws Exception {
+        CompletableFuture<String> future = new CompletableFuture<>();
+
+        CompletableFuture<String> returned = testService.asyncResult(future);
+        assertThat(reporter.getRecords()).isEmpty();
+
+        Thread.sleep(20);
+        future.complete("done");
+
+        assertThat(returned.get()).isEqualTo("done");
+        assertThat(reporter.getRecords()).hasSize(1);
+        InMemoryMetricsReporter.TimingRecord record = reporter.getLastRecord();
+        assertThat(record.metricName()).isEqualTo("async.future");
+        assertThat(record.exception()).isNull();
+        assertThat(record.durationNanos()).isGreaterThanOrEqualTo(20_000_000L);
+    }
+
+    @Test
+    void completableFuture_alreadyCompleted_reportsImmediately() {
+        testService.asyncResult(CompletableFuture.completedFuture("done"));
+
+        assertThat(reporter.getRecords()).hasSize(1);
+        assertThat(reporter.getLastRecord().exception()).isNull();
+    }
+
+    @Test
+    void completableFuture_exceptionalCompletion_reportsFailure() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        testService.asyncResult(future);
+
+        future.completeExceptionally(new IllegalStateException("boom"));
+
+        assertThat(reporter.getLastRecord().exception()).isInstanceOf(IllegalStateException.class);
+        assertThat(Outcome.of(reporter.getLastRecord().exception())).isEqualTo(Outcome.FAILURE);
+    }
+
+    @Test
+    void completableFuture_cancelled_reportsCancelledOutcome() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        testService.asyncResult(future);
+
+        future.cancel(true);
+
+        assertThat(reporter.getRecords()).hasSize(1);
+        assertThat(Outcome.of(reporter.getLastRecord().exception())).isEqualTo(Outcome.CANCELLED);
+    }
+
+    @Test
+    void completableFuture_reportExceptionsFalse_skipsFailures() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        testService.asyncResultNoReport(future);
+
+        future.completeExceptionally(new IllegalStateException("boom"));
+
+        assertThat(reporter.getRecords()).isEmpty();
+    }
+
+    @Test
+    void publisher_reportsWhenSubscriptionCompletes() {
+        List<String> received = new ArrayList<>();
+        try (SubmissionPublisher<String> source = new SubmissionPublisher<>(Runnable::run, 16)) {
+            Flow.Publisher<String> returned = testService.publisher(source);
+            assertThat(returned).isNotSameAs(source);
+
+            returned.subscribe(new CollectingSubscriber(received, false));
+            source.submit("a");
+            source.submit("b");
+            assertThat(reporter.getRecords()).isEmpty();
+        }
+
+        assertThat(received).containsExactly("a", "b");
+        assertThat(reporter.getRecords()).hasSize(1);
+        assertThat(reporter.getLastRecord().metricName()).isEqualTo("async.publisher");
+        assertThat(reporter.getLastRecord().exception()).isNull();
+    }
+
+    @Test
+    void publisher_cancelledSubscription_reportsCancelledOutcome() {
+        List<String> received = new ArrayList<>();
+        try (SubmissionPublisher<String> source = new SubmissionPublisher<>(Runnable::run, 16)) {
+            testService.publisher(source).subscribe(new CollectingSubscriber(received, true));
+            source.submit("a");
+            source.submit("b");
+        }
+
+        assertThat(received).containsExactly("a");
+        assertThat(reporter.getRecords()).hasSize(1);
+        assertThat(Outcome.of(reporter.getLastRecord().exception())).isEqualTo(Outcome.CANCELLED);
+    }
+
+    private static final class CollectingSubscriber implements Flow.Subscriber<String> {
+
+        private final List<String> received;
+        private final boolean cancelAfterFirst;
+        private Flow.Subscription subscription;
+
+        CollectingSubscriber(List<String> received, boolean cancelAfterFirst) {
+            this.received = received;
+            this.cancelAfterFirst = cancelAfterFirst;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String item) {
+            received.add(item);
+            if (cancelAfterFirst) {
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CallTreeProfilerTest {
+
+    @Test
+    void nestedCalls_splitTotalAndSelfTime() {
+        CallTreeProfiler profiler = new CallTreeProfiler();
+
+        profiler.enter("OrderService.process", 0);
+        profiler.enter("PaymentClient.charge", 1_000_000);
+        profiler.exit(4_000_000);
+        profiler.enter("InventoryClient.reserve", 5_000_000);
+        profiler.exit(6_000_000);
+        profiler.exit(10_000_000);
+
+        List<CallTreeProfiler.CallPathSnapshot> paths = profiler.snapshot();
+        CallTreeProfiler.CallPathSnapshot process = find(paths, "OrderService.process");
+        assertThat(process.count()).isEqualTo(1);
+        assertThat(process.totalNanos()).isEqualTo(10_000_000);
+        assertThat(process.selfNanos()).isEqualTo(6_000_000);
+
+        CallTreeProfiler.CallPathSnapshot charge = find(paths, "OrderService.process", "PaymentClient.charge");
+        assertThat(charge.totalNanos()).isEqualTo(3_000_000);
+        assertThat(charge.selfNanos()).isEqualTo(3_000_000);
+    }
+
+    @Test
+    void collapsedStacks_reportSelfTimeInMicros() {
+        CallTreeProfiler profiler = new CallTreeProfiler();
+
+        profiler.enter("a", 0);
+        profiler.enter("b", 1_000);
+        profiler.exit(3_000);
+        profiler.exit(5_000);
+
+        assertThat(profiler.toCollapsedStacks()).isEqualTo("a 3\na;b 2\n");
+    }
+
+    @Test
+    void tree_isBoundedByMaxNodes() {
+        CallTreeProfiler profiler = new CallTreeProfiler(2, 8);
+
+        for (String name : new String[] {"a", "b", "c", "d"}) {
+            profiler.enter(name, 0);
+            profiler.exit(1_000);
+        }
+
+        assertThat(profiler.snapshot())
+                .extracting(path -> path.path().get(0))
+                .containsExactlyInAnyOrder("a", "b", CallTreeProfiler.TRUNCATED);
+        assertThat(find(profiler.snapshot(), CallTreeProfiler.TRUNCATED).count()).isEqualTo(2);
+    }
+
+    @Test
+    void framesBeyondMaxDepth_areFoldedIntoDeepestFrame() {
+        CallTreeProfiler profiler = new CallTreeProfiler(100, 1);
+
+        profiler.enter("outer", 0);
+        profiler.enter("inner", 1_000);
+        profiler.exit(2_000);
+        profiler.exit(3_000);
+
+        assertThat(profiler.snapshot()).hasSize(1);
+        assertThat(find(profiler.snapshot(), "outer").selfNanos()).isEqualTo(3_000);
+    }
+
+    private static CallTreeProfiler.CallPathSnapshot find(List<CallTreeProfiler.CallPathSnapshot> paths,
+                                                         String... path) {
+        return paths.stream().filter(p -> p.path().equals(List.of(path))).findFirst().orElseThrow();
+    }
+}
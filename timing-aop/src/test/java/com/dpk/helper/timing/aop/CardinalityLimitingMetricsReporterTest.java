@@ -0,0 +1,124 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CardinalityLimitingMetricsReporterTest {
+
+    private final InMemoryMetricsReporter delegate = new InMemoryMetricsReporter();
+    private final MeterId site = MeterId.of("orders.get", Map.of("env", "prod"), "userId");
+
+    @Test
+    void valuesBeyondLimit_collapseIntoOther() {
+        CardinalityLimitingMetricsReporter reporter = new CardinalityLimitingMetricsReporter(delegate, 2);
+
+        reporter.report(site.withDynamicValues("alice"), 1_000, null);
+        reporter.report(site.withDynamicValues("bob"), 1_000, null);
+        reporter.report(site.withDynamicValues("carol"), 1_000, null);
+        reporter.report(site.withDynamicValues("alice"), 1_000, null);
+
+        assertThat(delegate.getRecords()).extracting(r -> r.tags().get("userId"))
+                .containsExactly("alice", "bob", CardinalityLimitingMetricsReporter.OTHER, "alice");
+        assertThat(delegate.getRecords()).allSatisfy(r -> assertThat(r.tags()).containsEntry("env", "prod"));
+        assertThat(reporter.getDistinctValueCount("userId")).isEqualTo(2);
+        assertThat(reporter.getCollapsedCount("userId")).isEqualTo(1);
+    }
+
+    @Test
+    void collapsedIds_shareOneSeries() {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        CardinalityLimitingMetricsReporter reporter = new CardinalityLimitingMetricsReporter(aggregator, 1);
+
+        for (int i = 0; i < 1_000; i++) {
+            reporter.report(site.withDynamicValues("user-" + i), 1_000, null);
+        }
+
+        assertThat(aggregator.snapshot()).hasSize(2);
+    }
+
+    @Test
+    void perKeyLimits_overrideDefault() {
+        MeterId twoKeys = MeterId.of("search", Map.of(), "tenant", "query");
+        CardinalityLimitingMetricsReporter reporter = new CardinalityLimitingMetricsReporter(
+                delegate, 1, Map.of("tenant", 10), CardinalityLimitingMetricsReporter.DEFAULT_TOP_K);
+
+        reporter.report(twoKeys.withDynamicValues("t1", "a"), 1_000, null);
+        reporter.report(twoKeys.withDynamicValues("t2", "b"), 1_000, null);
+
+        assertThat(delegate.getLastRecord().tags())
+                .containsEntry("tenant", "t2")
+                .containsEntry("query", CardinalityLimitingMetricsReporter.OTHER);
+    }
+
+    @Test
+    void mapBasedReports_areLimitedToo() {
+        CardinalityLimitingMetricsReporter reporter = new CardinalityLimitingMetricsReporter(delegate, 1);
+
+        reporter.report("legacy", 1_000, Map.of("userId", "alice"), null);
+        reporter.report("legacy", 1_000, Map.of("userId", "bob"), null);
+
+        assertThat(delegate.getLastRecord().tags()).containsEntry("userId", CardinalityLimitingMetricsReporter.OTHER);
+    }
+
+    @Test
+    void sketches_trackMostFrequentAndSlowestOriginalValues() {
+        CardinalityLimitingMetricsReporter reporter = new CardinalityLimitingMetricsReporter(
+                delegate, 1, Map.of(), 3);
+
+        for (int i = 0; i < 100; i++) {
+            // More total time than the slow value, but no single slow call
+            reporter.report(site.withDynamicValues("frequent"), 1_000_000, null);
+            reporter.report(site.withDynamicValues("noise-" + i), 1_000, null);
+        }
+        reporter.report(site.withDynamicValues("slow"), 10_000_000, null);
+
+        assertThat(reporter.topValues("userId").get(0).item()).isEqualTo("frequent");
+        assertThat(reporter.slowestValues("userId")).extracting(CardinalityLimitingMetricsReporter.SlowValue::value)
+                .startsWith("slow", "frequent")
+                .hasSize(3);
+        assertThat(reporter.slowestValues("userId").get(0).maxNanos()).isEqualTo(10_000_000);
+        assertThat(reporter.topValues("unknown")).isEmpty();
+    }
+
+    @Test
+    void reportedValues_areLimitedWithoutCountingAgain() {
+        CardinalityLimitingMetricsReporter reporter = new CardinalityLimitingMetricsReporter(delegate, 1);
+        reporter.report(site.withDynamicValues("alice"), 1_000, null);
+
+        MeterId bob = site.withDynamicValues("bob");
+        reporter.reportValue(bob, Measurement.CPU_TIME_NANOS, 500, 1.0);
+        reporter.reportValue(bob, Measurement.ALLOCATED_BYTES, 64, 1.0);
+        reporter.report(bob, 1_000, null);
+
+        assertThat(delegate.getLastRecord().tags()).containsEntry("userId", CardinalityLimitingMetricsReporter.OTHER);
+        assertThat(reporter.getCollapsedCount("userId")).isEqualTo(1);
+        assertThat(reporter.topValues("userId")).extracting(SpaceSavingSketch.Entry::weight).containsOnly(1L);
+    }
+
+    @Test
+    void spaceSavingSketch_boundsErrorAndKeepsHeavyHitters() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.offer("a", 5);
+        sketch.offer("b", 1);
+        sketch.offer("c", 1);
+
+        assertThat(sketch.top()).extracting(SpaceSavingSketch.Entry::item).containsExactly("a", "c");
+        SpaceSavingSketch.Entry c = sketch.top().get(1);
+        assertThat(c.weight()).isEqualTo(2);
+        assertThat(c.error()).isEqualTo(1);
+        assertThat(sketch.getTotal()).isEqualTo(7);
+    }
+
+    @Test
+    void invalidLimit_rejected() {
+        assertThatThrownBy(() -> new CardinalityLimitingMetricsReporter(delegate, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CardinalityLimitingMetricsReporter(delegate, 100, Map.of(), 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("topK");
+    }
+}
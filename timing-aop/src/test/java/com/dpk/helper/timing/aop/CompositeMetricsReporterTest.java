@@ -0,0 +1,131 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompositeMetricsReporterTest {
+
+    private static final MeterId ID = MeterId.of("svc.call", Map.of());
+
+    @Test
+    void report_reachesEveryDelegate() {
+        AggregatingMetricsReporter first = new AggregatingMetricsReporter();
+        AggregatingMetricsReporter second = new AggregatingMetricsReporter();
+        CompositeMetricsReporter composite = new CompositeMetricsReporter(first, second);
+
+        for (int i = 0; i < 100; i++) {
+            composite.report(ID, 1_000, null, 1.0);
+        }
+        composite.reportValue(ID, Measurement.CPU_TIME_NANOS, 500, 1.0);
+        composite.close();
+
+        assertThat(first.snapshot()).singleElement().satisfies(s -> {
+            assertThat(s.count()).isEqualTo(100);
+            assertThat(s.total(Measurement.CPU_TIME_NANOS)).isEqualTo(500);
+        });
+        assertThat(second.snapshot()).singleElement().satisfies(s -> assertThat(s.count()).isEqualTo(100));
+        assertThat(composite.getStats()).extracting(CompositeMetricsReporter.DelegateStats::name)
+                .containsExactly("AggregatingMetricsReporter", "AggregatingMetricsReporter#2");
+        assertThat(composite.getStats()).allSatisfy(s -> assertThat(s.delivered()).isEqualTo(101));
+    }
+
+    @Test
+    void slowDelegate_doesNotHoldUpOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        MetricsReporter stuck = (name, duration, tags, exception) -> await(release);
+        AggregatingMetricsReporter healthy = new AggregatingMetricsReporter();
+        CompositeMetricsReporter composite = new CompositeMetricsReporter(
+                named("stuck", stuck, "healthy", healthy), 16, 5, Duration.ofSeconds(30));
+
+        for (int i = 1; i <= 100; i++) {
+            composite.report(ID, 1_000, null, 1.0);
+            // Each call reaches the healthy delegate while the stuck one's queue stays full
+            awaitDelivered(composite, "healthy", i);
+        }
+
+        CompositeMetricsReporter.DelegateStats stuckStats = stats(composite, "stuck");
+        assertThat(stuckStats.lag()).isPositive();
+        assertThat(stuckStats.dropped()).isPositive();
+        assertThat(stuckStats.lag() + stuckStats.dropped()).isEqualTo(100);
+        release.countDown();
+        composite.close();
+    }
+
+    @Test
+    void failingDelegate_disabledThenReprobed() throws Exception {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        AtomicInteger received = new AtomicInteger();
+        MetricsReporter flaky = (name, duration, tags, exception) -> {
+            if (failing.get()) {
+                throw new IllegalStateException("sink down");
+            }
+            received.incrementAndGet();
+        };
+        CompositeMetricsReporter composite = new CompositeMetricsReporter(
+                named("flaky", flaky), 64, 2, Duration.ofMillis(200));
+
+        for (int i = 0; i < 2; i++) {
+            composite.report(ID, 1_000, null, 1.0);
+            awaitLagZero(composite);
+        }
+        assertThat(stats(composite, "flaky").disabled()).isTrue();
+        assertThat(stats(composite, "flaky").failed()).isEqualTo(2);
+
+        composite.report(ID, 1_000, null, 1.0);
+        assertThat(stats(composite, "flaky").dropped()).isEqualTo(1);
+
+        failing.set(false);
+        TimeUnit.MILLISECONDS.sleep(250);
+        composite.report(ID, 1_000, null, 1.0);
+        awaitLagZero(composite);
+
+        assertThat(received).hasValue(1);
+        assertThat(stats(composite, "flaky").disabled()).isFalse();
+        composite.close();
+    }
+
+    private static Map<String, MetricsReporter> named(Object... nameAndReporter) {
+        Map<String, MetricsReporter> delegates = new LinkedHashMap<>();
+        for (int i = 0; i < nameAndReporter.length; i += 2) {
+            delegates.put((String) nameAndReporter[i], (MetricsReporter) nameAndReporter[i + 1]);
+        }
+        return delegates;
+    }
+
+    private static CompositeMetricsReporter.DelegateStats stats(CompositeMetricsReporter composite, String name) {
+        return composite.getStats().stream().filter(s -> s.name().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static void awaitDelivered(CompositeMetricsReporter composite, String name, long expected)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stats(composite, name).delivered() < expected && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertThat(stats(composite, name).delivered()).isEqualTo(expected);
+    }
+
+    private static void awaitLagZero(CompositeMetricsReporter composite) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (composite.getStats().stream().anyMatch(s -> s.lag() > 0) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringJUnitConfig(TestConfig.class)
+class CountedAspectTest {
+
+    @Autowired
+    private TestService testService;
+
+    @Autowired
+    private CountedAspect countedAspect;
+
+    @Autowired
+    private InMemoryMetricsReporter reporter;
+
+    @BeforeEach
+    void setUp() {
+        countedAspect.flush();
+        reporter.clear();
+    }
+
+    @Test
+    void calls_countedByOutcomeAndReportedOnFlush() {
+        for (int i = 0; i < 5; i++) {
+            testService.counted(false);
+        }
+        assertThatThrownBy(() -> testService.counted(true)).isInstanceOf(IllegalStateException.class);
+        assertThat(reporter.getValues()).isEmpty();
+
+        countedAspect.flush();
+
+        assertThat(reporter.getValues()).containsExactly(
+                new InMemoryMetricsReporter.ValueRecord("counted.calls", Measurement.SUCCESS_COUNT, 5),
+                new InMemoryMetricsReporter.ValueRecord("counted.calls", Measurement.FAILURE_COUNT, 1));
+        assertThat(reporter.getRecords()).isEmpty();
+    }
+
+    @Test
+    void flush_reportsOnlyDeltas() {
+        testService.counted(false);
+        countedAspect.flush();
+        reporter.clear();
+
+        countedAspect.flush();
+        assertThat(reporter.getValues()).isEmpty();
+
+        testService.counted(false);
+        testService.counted(false);
+        countedAspect.flush();
+        assertThat(reporter.getValues()).singleElement().satisfies(v -> assertThat(v.value()).isEqualTo(2));
+    }
+
+    @Test
+    void asyncResult_countedOnCompletion() {
+        CompletableFuture<String> succeeding = new CompletableFuture<>();
+        CompletableFuture<String> cancelled = new CompletableFuture<>();
+        testService.countedAsync(succeeding);
+        testService.countedAsync(cancelled);
+        countedAspect.flush();
+        assertThat(reporter.getValues()).isEmpty();
+
+        succeeding.complete("ok");
+        cancelled.cancel(false);
+        countedAspect.flush();
+
+        assertThat(reporter.getValues()).extracting(InMemoryMetricsReporter.ValueRecord::measurement)
+                .containsExactly(Measurement.SUCCESS_COUNT, Measurement.CANCELLED_COUNT);
+    }
+
+    @Test
+    void reportInterval_mustBePositive() {
+        assertThatThrownBy(() -> new CountedAspect(new AggregatingMetricsReporter(), Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void reportInterval_mayBeShorterThanOneMillisecond() throws Exception {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        try (CountedAspect aspect = new CountedAspect(aggregator, Duration.ofNanos(500_000))) {
+            AspectJProxyFactory factory = new AspectJProxyFactory(new TestService());
+            factory.addAspect(aspect);
+            TestService service = factory.getProxy();
+
+            service.counted(false);
+            Thread.sleep(100);
+
+            // Reported by the scheduled flush, not by close()
+            assertThat(aggregator.snapshot()).singleElement()
+                    .satisfies(s -> assertThat(s.total(Measurement.SUCCESS_COUNT)).isEqualTo(1));
+        }
+    }
+
+    @Test
+    void close_flushesRemainingCounts() {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        CountedAspect aspect = new CountedAspect(aggregator, Duration.ofHours(1));
+        AspectJProxyFactory factory = new AspectJProxyFactory(new TestService());
+        factory.addAspect(aspect);
+        TestService service = factory.getProxy();
+
+        service.counted(false);
+        aspect.close();
+
+        assertThat(aggregator.snapshot()).singleElement().satisfies(s -> {
+            assertThat(s.tags()).isEqualTo(Map.of("layer", "service"));
+            assertThat(s.total(Measurement.SUCCESS_COUNT)).isEqualTo(1);
+        });
+    }
+}
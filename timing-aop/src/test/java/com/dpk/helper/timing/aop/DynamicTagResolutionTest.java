@@ -38,4 +38,22 @@ class DynamicTagResolutionTest {
                 .containsEntry("name", "Alice")
                 .containsEntry("count", "2");
     }
+
+    @Test
+    void dynamicTag_isReevaluatedOnEveryCall() {
+        testService.withDynamicTag("user-1");
+        testService.withDynamicTag("user-2");
+
+        assertThat(reporter.getRecords()).hasSize(2);
+        assertThat(reporter.getRecords().get(0).tags()).containsEntry("userId", "user-1");
+        assertThat(reporter.getRecords().get(1).tags()).containsEntry("userId", "user-2");
+    }
+
+    @Test
+    void dynamicTag_invalidExpressionResolvesToError() {
+        testService.withInvalidDynamicTag("x");
+
+        InMemoryMetricsReporter.TimingRecord record = reporter.getLastRecord();
+        assertThat(record.tags()).containsEntry("bad", "ERROR");
+    }
 }
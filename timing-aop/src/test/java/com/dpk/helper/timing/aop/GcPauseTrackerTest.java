@@ -0,0 +1,116 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringJUnitConfig(TestConfig.class)
+class GcPauseTrackerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Autowired
+    private TestService testService;
+
+    @Autowired
+    private TimedAspect timedAspect;
+
+    @Autowired
+    private InMemoryMetricsReporter reporter;
+
+    private GcPauseTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new GcPauseTracker(4);
+        timedAspect.setGcPauseTracker(tracker);
+        reporter.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        timedAspect.setGcPauseTracker(null);
+        tracker.close();
+    }
+
+    @Test
+    void pausedNanos_sumsOverlapWithCallWindow() {
+        long t = System.nanoTime();
+        tracker.recordPauseNanos(t, t + 10 * MS);
+        tracker.recordPauseNanos(t + 20 * MS, t + 30 * MS);
+
+        assertThat(tracker.pausedNanos(t + 5 * MS, t + 25 * MS)).isEqualTo(10 * MS);
+        assertThat(tracker.pausedNanos(t - 10 * MS, t + 40 * MS)).isEqualTo(20 * MS);
+        assertThat(tracker.pausedNanos(t + 10 * MS, t + 20 * MS)).isZero();
+        assertThat(tracker.pausedNanos(t + 30 * MS, t + 40 * MS)).isZero();
+        assertThat(tracker.getPauseCount()).isEqualTo(2);
+        assertThat(tracker.getTotalPauseNanos()).isEqualTo(20 * MS);
+    }
+
+    @Test
+    void ring_forgetsOldestPauses() {
+        long t = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            tracker.recordPauseNanos(t + i * 10 * MS, t + i * 10 * MS + MS);
+        }
+
+        assertThat(tracker.pausedNanos(t, t + 100 * MS)).isEqualTo(4 * MS);
+    }
+
+    @Test
+    void overlappingCall_reportsGcPauseBeforeDuration() {
+        testService.running(() -> {
+            sleep(20);
+            long now = System.nanoTime();
+            tracker.recordPauseNanos(now - 10 * MS, now);
+        });
+
+        assertThat(reporter.getValues()).singleElement().satisfies(v -> {
+            assertThat(v.metricName()).isEqualTo("gc.attributed");
+            assertThat(v.measurement()).isEqualTo(Measurement.GC_PAUSE_NANOS);
+            assertThat(v.value()).isEqualTo(10 * MS);
+        });
+        assertThat(reporter.getRecords()).singleElement()
+                .satisfies(r -> assertThat(r.durationNanos()).isGreaterThanOrEqualTo(20 * MS));
+    }
+
+    @Test
+    void pauseBeforeItsNotification_isFoundAtCallExit() {
+        // Without listeners, only the synchronous collection count check can see the pause
+        tracker.close();
+
+        testService.running(System::gc);
+
+        assertThat(tracker.getPauseCount()).isPositive();
+    }
+
+    @Test
+    void callWithoutPause_reportsDurationOnly() {
+        testService.running(() -> { });
+
+        assertThat(reporter.getValues()).isEmpty();
+        assertThat(reporter.getRecords()).hasSize(1);
+    }
+
+    @Test
+    void concurrentCollectorBeans_ignored() {
+        assertThat(GcPauseTracker.isConcurrent("G1 Concurrent GC")).isTrue();
+        assertThat(GcPauseTracker.isConcurrent("ZGC Cycles")).isTrue();
+        assertThat(GcPauseTracker.isConcurrent("G1 Young Generation")).isFalse();
+        assertThat(GcPauseTracker.isConcurrent("ZGC Pauses")).isFalse();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
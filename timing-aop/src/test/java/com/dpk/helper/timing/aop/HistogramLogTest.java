@@ -0,0 +1,299 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistogramLogTest {
+
+    private static final MeterId ID = MeterId.of("svc.call", Map.of("region", "eu"));
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void roundTrip_preservesHistogramAndCounters() throws Exception {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        for (int i = 1; i <= 1_000; i++) {
+            aggregator.report(ID, i * 1_000L, i % 10 == 0 ? new RuntimeException() : null);
+        }
+        aggregator.reportValue(ID, Measurement.CPU_TIME_NANOS, 500, 1.0);
+        aggregator.intervalSnapshot();
+        aggregator.report(ID, 5_000, null);
+        List<MetricSnapshot> written = aggregator.snapshot();
+
+        Path file = tempDir.resolve("timing.hlog");
+        try (HistogramLogWriter writer = new HistogramLogWriter(file)) {
+            writer.append(1_000, 61_000, written);
+        }
+
+        List<HistogramLogReader.Interval> intervals = HistogramLogReader.readAll(file);
+        assertThat(intervals).singleElement().satisfies(interval -> {
+            assertThat(interval.startMillis()).isEqualTo(1_000);
+            assertThat(interval.endMillis()).isEqualTo(61_000);
+        });
+        MetricSnapshot original = written.stream().filter(s -> s.id().equals(ID)).findFirst().orElseThrow();
+        MetricSnapshot read = intervals.get(0).series().stream()
+                .filter(s -> s.id().equals(ID)).findFirst().orElseThrow();
+        assertThat(read.count()).isEqualTo(1_001);
+        assertThat(read.errorCount()).isEqualTo(100);
+        assertThat(read.sumNanos()).isEqualTo(original.sumNanos());
+        assertThat(read.histogram().getMin()).isEqualTo(original.histogram().getMin());
+        assertThat(read.histogram().getCounts()).startsWith(trimmed(original.histogram().getCounts()));
+        assertThat(read.total(Measurement.CPU_TIME_NANOS)).isEqualTo(500);
+        assertThat(read.tags()).containsEntry("region", "eu");
+    }
+
+    @Test
+    void roundTrip_preservesCorrectedHistogram() throws Exception {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        MeterId tick = MeterId.of("tick", Map.of());
+        aggregator.report(tick, 50_000_000, null, 1.0, 10_000_000);
+        aggregator.report(ID, 1_000, null);
+        List<MetricSnapshot> written = aggregator.snapshot();
+
+        Path file = tempDir.resolve("timing.hlog");
+        try (HistogramLogWriter writer = new HistogramLogWriter(file)) {
+            writer.append(0, 60_000, written);
+        }
+
+        Map<MeterId, MetricSnapshot> read = HistogramLogTool.combine(HistogramLogReader.readAll(file));
+        HistogramSnapshot original = written.stream().filter(s -> s.id().equals(tick)).findFirst()
+                .orElseThrow().correctedHistogram();
+        assertThat(read.get(tick).count()).isEqualTo(1);
+        assertThat(read.get(tick).correctedHistogram()).satisfies(corrected -> {
+            assertThat(corrected.getCount()).isEqualTo(5);
+            assertThat(corrected.getSum()).isEqualTo(original.getSum());
+            assertThat(corrected.getMin()).isEqualTo(original.getMin());
+        });
+        assertThat(read.get(ID).isCorrected()).isFalse();
+    }
+
+    @Test
+    void merge_keepsCorrectedHistogram() throws Exception {
+        MeterId tick = MeterId.of("tick", Map.of());
+        Path log1 = tempDir.resolve("node1.hlog");
+        Path log2 = tempDir.resolve("node2.hlog");
+        for (Path log : List.of(log1, log2)) {
+            AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+            aggregator.report(tick, 30_000_000, null, 1.0, 10_000_000);
+            try (HistogramLogWriter writer = new HistogramLogWriter(log)) {
+                writer.append(0, 60_000, aggregator.snapshot());
+            }
+        }
+        Path merged = tempDir.resolve("merged.hlog");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        HistogramLogTool.run(new String[]{"merge", "-o", merged.toString(), log1.toString(), log2.toString()},
+                new PrintStream(new ByteArrayOutputStream()));
+        HistogramLogTool.run(new String[]{"print", merged.toString()}, new PrintStream(out));
+
+        MetricSnapshot series = HistogramLogTool.combine(HistogramLogReader.readAll(merged)).get(tick);
+        assertThat(series.count()).isEqualTo(2);
+        assertThat(series.correctedHistogram().getCount()).isEqualTo(6);
+        assertThat(out.toString(StandardCharsets.UTF_8)).contains("  corrected count=6 ");
+    }
+
+    @Test
+    void seriesWithoutCalls_areLeftOut() throws Exception {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        aggregator.report(ID, 1_000, null);
+        aggregator.intervalSnapshot();
+
+        Path file = tempDir.resolve("timing.hlog");
+        try (HistogramLogWriter writer = new HistogramLogWriter(file)) {
+            writer.appendInterval(aggregator);
+        }
+
+        assertThat(HistogramLogReader.readAll(file)).singleElement()
+                .satisfies(interval -> assertThat(interval.series()).isEmpty());
+    }
+
+    @Test
+    void seriesWithOnlyMeasurementTotals_areKept() throws Exception {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        MeterId counted = MeterId.of("cache.lookup", Map.of());
+        aggregator.reportValue(counted, Measurement.SUCCESS_COUNT, 42, 1.0);
+
+        Path file = tempDir.resolve("timing.hlog");
+        try (HistogramLogWriter writer = new HistogramLogWriter(file)) {
+            writer.appendInterval(aggregator);
+        }
+
+        assertThat(HistogramLogReader.readAll(file)).singleElement()
+                .satisfies(interval -> assertThat(interval.series()).singleElement().satisfies(s -> {
+                    assertThat(s.id()).isEqualTo(counted);
+                    assertThat(s.count()).isZero();
+                    assertThat(s.total(Measurement.SUCCESS_COUNT)).isEqualTo(42);
+                }));
+    }
+
+    @Test
+    void reopen_dropsTornBlockAndAppends() throws Exception {
+        Path file = tempDir.resolve("timing.hlog");
+        try (HistogramLogWriter writer = new HistogramLogWriter(file)) {
+            writer.append(0, 1, snapshots(1_000));
+        }
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x48, 0x4C, 0x42, 0x31, 0, 0}), size);
+        }
+        assertThat(HistogramLogReader.readAll(file)).hasSize(1);
+
+        try (HistogramLogWriter writer = new HistogramLogWriter(file)) {
+            writer.append(1, 2, snapshots(2_000));
+        }
+
+        assertThat(HistogramLogReader.readAll(file)).extracting(HistogramLogReader.Interval::startMillis)
+                .containsExactly(0L, 1L);
+    }
+
+    @Test
+    void rotation_keepsConfiguredBackups() throws Exception {
+        Path file = tempDir.resolve("timing.hlog");
+        try (HistogramLogWriter writer = new HistogramLogWriter(file, 200, 2)) {
+            for (int i = 0; i < 10; i++) {
+                writer.append(i, i + 1, snapshots(1_000 + i));
+            }
+        }
+
+        assertThat(Files.exists(tempDir.resolve("timing.hlog.1"))).isTrue();
+        assertThat(Files.exists(tempDir.resolve("timing.hlog.2"))).isTrue();
+        assertThat(Files.exists(tempDir.resolve("timing.hlog.3"))).isFalse();
+        assertThat(Files.size(file)).isLessThanOrEqualTo(200);
+        assertThat(HistogramLogReader.readAll(file)).last()
+                .satisfies(interval -> assertThat(interval.startMillis()).isEqualTo(9));
+    }
+
+    @Test
+    void notALog_rejected() throws Exception {
+        Path file = tempDir.resolve("other.txt");
+        Files.writeString(file, "hello world");
+
+        assertThatThrownBy(() -> HistogramLogReader.open(file)).hasMessageContaining("Not a histogram log");
+        assertThatThrownBy(() -> new HistogramLogWriter(file)).hasMessageContaining("Not a histogram log");
+    }
+
+    @Test
+    void truncatedStreamWithMatchingChecksum_rejected() throws Exception {
+        Path file = tempDir.resolve("timing.hlog");
+        try (HistogramLogWriter writer = new HistogramLogWriter(file)) {
+            writer.append(0, 1, snapshots(1_000));
+        }
+        ByteBuffer block = ByteBuffer.wrap(Files.readAllBytes(file), HistogramLog.FILE_HEADER_SIZE,
+                (int) Files.size(file) - HistogramLog.FILE_HEADER_SIZE).slice();
+        int rawLength = block.getInt(4);
+        byte[] payload = Arrays.copyOfRange(block.array(), block.arrayOffset() + HistogramLog.BLOCK_HEADER_SIZE,
+                block.arrayOffset() + HistogramLog.BLOCK_HEADER_SIZE + block.getInt(8) / 2);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer truncated = ByteBuffer.allocate(HistogramLog.FILE_HEADER_SIZE + HistogramLog.BLOCK_HEADER_SIZE
+                + payload.length);
+        truncated.putInt(HistogramLog.FILE_MAGIC).putInt(HistogramLog.VERSION)
+                .putInt(HistogramLog.BLOCK_MAGIC).putInt(rawLength).putInt(payload.length)
+                .putInt((int) crc.getValue()).put(payload);
+        Files.write(file, truncated.array());
+
+        assertThatThrownBy(() -> HistogramLogReader.readAll(file)).hasMessageContaining("Corrupt histogram log");
+    }
+
+    @Test
+    void merge_combinesNodesLosslessly() throws Exception {
+        AggregatingMetricsReporter node1 = new AggregatingMetricsReporter();
+        AggregatingMetricsReporter node2 = new AggregatingMetricsReporter();
+        Path log1 = tempDir.resolve("node1.hlog");
+        Path log2 = tempDir.resolve("node2.hlog");
+        try (HistogramLogWriter writer1 = new HistogramLogWriter(log1);
+             HistogramLogWriter writer2 = new HistogramLogWriter(log2)) {
+            for (int minute = 0; minute < 4; minute++) {
+                for (int i = 0; i < 100; i++) {
+                    node1.report(ID, 1_000_000 + i * 1_000L, null);
+                    node2.report(ID, 5_000_000 + i * 1_000L, null);
+                }
+                writer1.append(minute * 60_000L, (minute + 1) * 60_000L, node1.intervalSnapshot());
+                writer2.append(minute * 60_000L + 100, (minute + 1) * 60_000L + 100, node2.intervalSnapshot());
+            }
+        }
+        Path merged = tempDir.resolve("merged.hlog");
+
+        HistogramLogTool.run(new String[]{"merge", "--interval", "120", "-o", merged.toString(),
+                log1.toString(), log2.toString()}, new PrintStream(new ByteArrayOutputStream()));
+
+        List<HistogramLogReader.Interval> intervals = HistogramLogReader.readAll(merged);
+        assertThat(intervals).extracting(HistogramLogReader.Interval::startMillis).containsExactly(0L, 120_000L);
+        HistogramSnapshot expected = node1.snapshot().get(0).histogram().merge(node2.snapshot().get(0).histogram());
+        HistogramSnapshot actual = HistogramLogTool.combine(intervals).get(ID).histogram();
+        assertThat(actual.getCount()).isEqualTo(800);
+        for (double percentile : new double[]{10, 50, 90, 99}) {
+            assertThat(actual.getValueAtPercentile(percentile))
+                    .isEqualTo(expected.getValueAtPercentile(percentile));
+        }
+    }
+
+    @Test
+    void slice_keepsOverlappingIntervals() throws Exception {
+        Path file = tempDir.resolve("timing.hlog");
+        try (HistogramLogWriter writer = new HistogramLogWriter(file)) {
+            for (int minute = 0; minute < 5; minute++) {
+                writer.append(minute * 60_000L, (minute + 1) * 60_000L, snapshots(1_000));
+            }
+        }
+        Path slice = tempDir.resolve("slice.hlog");
+
+        HistogramLogTool.run(new String[]{"slice", "--from", "1970-01-01T00:01:30Z", "--to", "180000",
+                "-o", slice.toString(), file.toString()}, new PrintStream(new ByteArrayOutputStream()));
+
+        assertThat(HistogramLogReader.readAll(slice)).extracting(HistogramLogReader.Interval::startMillis)
+                .containsExactly(60_000L, 120_000L);
+    }
+
+    @Test
+    void diff_printsPercentileChanges() throws Exception {
+        Path before = tempDir.resolve("before.hlog");
+        Path after = tempDir.resolve("after.hlog");
+        try (HistogramLogWriter writer = new HistogramLogWriter(before)) {
+            writer.append(0, 60_000, snapshots(1_000_000));
+        }
+        try (HistogramLogWriter writer = new HistogramLogWriter(after)) {
+            writer.append(0, 60_000, snapshots(2_000_000));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        HistogramLogTool.run(new String[]{"diff", before.toString(), after.toString()}, new PrintStream(out));
+
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertThat(text).contains("svc.call{region=eu}");
+        assertThat(text).containsPattern("p50 +1\\.\\d+ms -> +2\\.\\d+ms +\\(\\+\\d+\\.\\d%\\)");
+    }
+
+    private static List<MetricSnapshot> snapshots(long durationNanos) {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        for (int i = 0; i < 10; i++) {
+            aggregator.report(ID, durationNanos, null);
+        }
+        return aggregator.snapshot();
+    }
+
+    private static long[] trimmed(long[] counts) {
+        int length = counts.length;
+        while (length > 0 && counts[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.copyOf(counts, length);
+    }
+}
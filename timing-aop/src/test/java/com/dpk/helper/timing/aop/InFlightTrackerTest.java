@@ -0,0 +1,155 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringJUnitConfig(TestConfig.class)
+class InFlightTrackerTest {
+
+    @Autowired
+    private TestService testService;
+
+    @Autowired
+    private TimedAspect timedAspect;
+
+    private InFlightTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new InFlightTracker();
+        timedAspect.setInFlightTracker(tracker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timedAspect.setInFlightTracker(null);
+        tracker.close();
+    }
+
+    @Test
+    void concurrentCalls_countedWhileExecuting() throws Exception {
+        int callers = 4;
+        CountDownLatch entered = new CountDownLatch(callers);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            Future<?>[] calls = new Future<?>[callers];
+            for (int i = 0; i < callers; i++) {
+                calls[i] = executor.submit(() -> {
+                    testService.awaiting(entered, release);
+                    return null;
+                });
+            }
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(tracker.getInFlight("inflight.blocking")).isEqualTo(callers);
+
+            release.countDown();
+            for (Future<?> call : calls) {
+                call.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(tracker.getInFlight("inflight.blocking")).isZero();
+        assertThat(tracker.snapshot()).singleElement().satisfies(s -> {
+            assertThat(s.id().getName()).isEqualTo("inflight.blocking");
+            assertThat(s.inFlight()).isZero();
+            assertThat(s.peak()).isEqualTo(callers);
+        });
+    }
+
+    @Test
+    void intervalSnapshot_resetsPeakToCurrent() throws Exception {
+        tracker.close();
+        tracker = new InFlightTracker(Duration.ZERO);
+        timedAspect.setInFlightTracker(tracker);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> call = executor.submit(() -> {
+                testService.awaiting(entered, release);
+                return null;
+            });
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(tracker.intervalSnapshot()).singleElement()
+                    .satisfies(s -> assertThat(s.peak()).isEqualTo(1));
+            release.countDown();
+            call.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Still running when the previous interval ended
+        assertThat(tracker.intervalSnapshot()).singleElement()
+                .satisfies(s -> assertThat(s.peak()).isEqualTo(1));
+        assertThat(tracker.intervalSnapshot()).singleElement()
+                .satisfies(s -> assertThat(s.peak()).isZero());
+    }
+
+    @Test
+    void backgroundSampling_recordsPeakBetweenReads() throws Exception {
+        int callers = 3;
+        CountDownLatch entered = new CountDownLatch(callers);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            Future<?>[] calls = new Future<?>[callers];
+            for (int i = 0; i < callers; i++) {
+                calls[i] = executor.submit(() -> {
+                    testService.awaiting(entered, release);
+                    return null;
+                });
+            }
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(InFlightTracker.DEFAULT_SAMPLE_PERIOD.toMillis() * 3);
+
+            release.countDown();
+            for (Future<?> call : calls) {
+                call.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(tracker.snapshot()).singleElement().satisfies(s -> {
+            assertThat(s.inFlight()).isZero();
+            assertThat(s.peak()).isEqualTo(callers);
+        });
+    }
+
+    @Test
+    void failingCall_leavesInFlight() {
+        assertThatThrownBy(() -> testService.failingMethod()).isInstanceOf(IllegalStateException.class);
+
+        assertThat(tracker.getInFlight("TestService.failingMethod")).isZero();
+    }
+
+    @Test
+    void completionStage_inFlightUntilCompleted() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        testService.asyncResult(future);
+
+        assertThat(tracker.getInFlight("async.future")).isEqualTo(1);
+
+        future.complete("done");
+
+        assertThat(tracker.getInFlight("async.future")).isZero();
+    }
+}
@@ -12,10 +12,21 @@ import java.util.Map;
 public class InMemoryMetricsReporter implements MetricsReporter {
 
     private final List<TimingRecord> records = new ArrayList<>();
+    private final List<ValueRecord> values = new ArrayList<>();
 
     @Override
     public void report(String metricName, long durationNanos, Map<String, String> tags, Throwable exception) {
-        records.add(new TimingRecord(metricName, durationNanos, Map.copyOf(tags), exception));
+        records.add(new TimingRecord(metricName, durationNanos, Map.copyOf(tags), exception, 1.0));
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight) {
+        records.add(new TimingRecord(id.getName(), durationNanos, Map.copyOf(id.getTags()), exception, sampleWeight));
+    }
+
+    @Override
+    public void reportValue(MeterId id, Measurement measurement, long value, double sampleWeight) {
+        values.add(new ValueRecord(id.getName(), measurement, value));
     }
 
     public List<TimingRecord> getRecords() {
@@ -29,14 +40,22 @@ public class InMemoryMetricsReporter implements MetricsReporter {
         return records.get(records.size() - 1);
     }
 
+    public List<ValueRecord> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
     public void clear() {
         records.clear();
+        values.clear();
     }
 
     public record TimingRecord(
             String metricName,
             long durationNanos,
             Map<String, String> tags,
-            Throwable exception
+            Throwable exception,
+            double sampleWeight
     ) {}
+
+    public record ValueRecord(String metricName, Measurement measurement, long value) {}
 }
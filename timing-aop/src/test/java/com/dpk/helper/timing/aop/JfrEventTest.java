@@ -0,0 +1,86 @@
+package com.dpk.helper.timing.aop;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringJUnitConfig(TestConfig.class)
+class JfrEventTest {
+
+    @Autowired
+    private TestService testService;
+
+    @Autowired
+    private TimedAspect timedAspect;
+
+    @TempDir
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        timedAspect.setJfrEventsEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timedAspect.setJfrEventsEnabled(false);
+    }
+
+    @Test
+    void recording_capturesMetricTagsAndOutcome() throws Exception {
+        List<RecordedEvent> events = record(Duration.ZERO, () -> {
+            testService.withTags();
+            assertThatThrownBy(() -> testService.failingMethod()).isInstanceOf(IllegalStateException.class);
+        });
+
+        assertThat(events).hasSize(2);
+        RecordedEvent success = events.get(0);
+        assertThat(success.getString("metricName")).isEqualTo("TestService.withTags");
+        assertThat(success.getString("tags")).contains("env=test");
+        assertThat(success.getString("outcome")).isEqualTo("SUCCESS");
+        assertThat(success.getThread().getJavaName()).isEqualTo(Thread.currentThread().getName());
+
+        RecordedEvent failure = events.get(1);
+        assertThat(failure.getString("outcome")).isEqualTo("FAILURE");
+        assertThat(failure.getString("exception")).isEqualTo(IllegalStateException.class.getName());
+    }
+
+    @Test
+    void threshold_filtersFastCalls() throws Exception {
+        List<RecordedEvent> events = record(Duration.ofSeconds(10), () -> testService.defaultName());
+
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void noRecording_createsNoEvent() {
+        assertThat(TimedEvent.beginIfEnabled()).isNull();
+    }
+
+    private List<RecordedEvent> record(Duration threshold, Runnable action) throws Exception {
+        Path file = tempDir.resolve("timed.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(TimedEvent.NAME).withThreshold(threshold);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals(TimedEvent.NAME))
+                .toList();
+    }
+}
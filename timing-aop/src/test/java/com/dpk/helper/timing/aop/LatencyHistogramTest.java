@@ -0,0 +1,104 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketBounds_coverEveryValueWithoutGaps() {
+        for (int precision = 2; precision <= 8; precision++) {
+            int previous = -1;
+            for (long value = 0; value < 50_000; value++) {
+                int index = LatencyHistogram.bucketIndex(value, precision);
+                assertThat(index).isBetween(previous, previous + 1);
+                assertThat(value).isBetween(LatencyHistogram.bucketLowerBound(index, precision),
+                        LatencyHistogram.bucketUpperBound(index, precision));
+                previous = index;
+            }
+        }
+    }
+
+    @Test
+    void percentiles_areWithinConfiguredPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(10_000);
+        assertThat(snapshot.getMin()).isEqualTo(1_000);
+        assertThat(snapshot.getMax()).isEqualTo(10_000_000);
+        assertThat((double) snapshot.getValueAtPercentile(50)).isCloseTo(5_000_000, within(5_000_000 * 0.04));
+        assertThat((double) snapshot.getValueAtPercentile(99)).isCloseTo(9_900_000, within(9_900_000 * 0.04));
+        assertThat(snapshot.getValueAtPercentile(100)).isEqualTo(10_000_000);
+    }
+
+    @Test
+    void intervalSnapshot_returnsOnlyNewValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.record(200);
+        assertThat(histogram.intervalSnapshot().getCount()).isEqualTo(2);
+
+        histogram.record(300);
+        HistogramSnapshot interval = histogram.intervalSnapshot();
+        assertThat(interval.getCount()).isEqualTo(1);
+        assertThat(interval.getSum()).isEqualTo(300);
+        assertThat(interval.getMax()).isEqualTo(300);
+
+        assertThat(histogram.intervalSnapshot().getCount()).isZero();
+        assertThat(histogram.snapshot().getCount()).isEqualTo(3);
+    }
+
+    @Test
+    void merge_combinesCountsLosslessly() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        a.record(1_000_000);
+        b.record(5);
+        b.record(2_000_000);
+
+        HistogramSnapshot merged = a.snapshot().merge(b.snapshot());
+
+        assertThat(merged.getCount()).isEqualTo(4);
+        assertThat(merged.getSum()).isEqualTo(3_000_015);
+        assertThat(merged.getMin()).isEqualTo(5);
+        assertThat(merged.getMax()).isEqualTo(2_000_000);
+    }
+
+    @Test
+    void recordWithExpectedInterval_backfillsHeldBackCalls() {
+        LatencyHistogram corrected = new LatencyHistogram();
+        LatencyHistogram expected = new LatencyHistogram();
+
+        corrected.recordWithExpectedInterval(1_000_000_000, 2, 3_000_000);
+        expected.record(1_000_000_000, 2);
+        for (long missing = 1_000_000_000 - 3_000_000; missing >= 3_000_000; missing -= 3_000_000) {
+            expected.record(missing, 2);
+        }
+
+        HistogramSnapshot actual = corrected.snapshot();
+        HistogramSnapshot naive = expected.snapshot();
+        assertThat(actual.getCount()).isEqualTo(2 * 333);
+        assertThat(actual.getCounts()).isEqualTo(naive.getCounts());
+        assertThat(actual.getSum()).isEqualTo(naive.getSum());
+        assertThat(actual.getMin()).isEqualTo(4_000_000);
+        assertThat(actual.getMax()).isEqualTo(1_000_000_000);
+    }
+
+    @Test
+    void recordWithExpectedInterval_recordsFastCallsOnce() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.recordWithExpectedInterval(2_000, 1, 5_000);
+        histogram.recordWithExpectedInterval(5_000, 1, 5_000);
+
+        assertThat(histogram.snapshot().getCount()).isEqualTo(2);
+        assertThat(histogram.snapshot().getSum()).isEqualTo(7_000);
+    }
+}
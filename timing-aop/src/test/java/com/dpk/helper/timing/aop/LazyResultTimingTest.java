@@ -0,0 +1,122 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringJUnitConfig(TestConfig.class)
+class LazyResultTimingTest {
+
+    @Autowired
+    private TestService testService;
+
+    @Autowired
+    private InMemoryMetricsReporter reporter;
+
+    @BeforeEach
+    void setUp() {
+        reporter.clear();
+    }
+
+    @Test
+    void stream_reportsWhenExhausted() throws Exception {
+        Stream<Integer> stream = testService.lazyStream(5);
+        assertThat(reporter.getRecords()).isEmpty();
+
+        Thread.sleep(20);
+        assertThat(stream.filter(i -> i % 2 == 0).toList()).containsExactly(0, 2, 4);
+
+        assertThat(reporter.getLastRecord().metricName()).isEqualTo("lazy.stream");
+        assertThat(reporter.getLastRecord().durationNanos()).isGreaterThanOrEqualTo(20_000_000L);
+        assertThat(value(Measurement.ELEMENT_COUNT)).isEqualTo(5);
+        assertThat(value(Measurement.FIRST_ELEMENT_NANOS)).isGreaterThanOrEqualTo(20_000_000L);
+    }
+
+    @Test
+    void stream_count_traversesElements() {
+        assertThat(testService.lazyStream(3).count()).isEqualTo(3);
+
+        assertThat(reporter.getRecords()).hasSize(1);
+        assertThat(value(Measurement.ELEMENT_COUNT)).isEqualTo(3);
+    }
+
+    @Test
+    void stream_closedEarly_reportsConsumedElements() {
+        try (Stream<Integer> stream = testService.lazyStream(1_000)) {
+            assertThat(stream.limit(2).toList()).hasSize(2);
+        }
+
+        assertThat(reporter.getRecords()).singleElement()
+                .satisfies(r -> assertThat(r.exception()).isNull());
+        assertThat(value(Measurement.ELEMENT_COUNT)).isEqualTo(2);
+    }
+
+    @Test
+    void stream_callerActionFailure_isNotAFailure() {
+        Stream<Integer> stream = testService.lazyStream(3);
+
+        assertThatThrownBy(() -> stream.forEach(i -> {
+            throw new IllegalStateException("consumer");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(reporter.getLastRecord().exception()).isNull();
+    }
+
+    @Test
+    void iterator_reportsWhenHasNextReturnsFalse() {
+        Iterator<Integer> iterator = testService.lazyIterator(List.of(1, 2));
+        iterator.next();
+        iterator.next();
+        assertThat(reporter.getRecords()).isEmpty();
+
+        assertThat(iterator.hasNext()).isFalse();
+
+        assertThat(reporter.getRecords()).hasSize(1);
+        assertThat(value(Measurement.ELEMENT_COUNT)).isEqualTo(2);
+    }
+
+    @Test
+    void iterable_reportsFirstIterationOnly() {
+        Iterable<Integer> iterable = testService.lazyIterable(List.of(1, 2, 3));
+        List<Integer> seen = new ArrayList<>();
+        iterable.forEach(seen::add);
+        iterable.forEach(seen::add);
+
+        assertThat(seen).hasSize(6);
+        assertThat(reporter.getRecords()).hasSize(1);
+        assertThat(value(Measurement.ELEMENT_COUNT)).isEqualTo(3);
+    }
+
+    @Test
+    void emptyResult_reportsNoFirstElement() {
+        assertThat(testService.lazyIterator(List.of()).hasNext()).isFalse();
+
+        assertThat(value(Measurement.ELEMENT_COUNT)).isZero();
+        assertThat(reporter.getValues()).noneMatch(v -> v.measurement() == Measurement.FIRST_ELEMENT_NANOS);
+    }
+
+    @Test
+    void otherReturnType_reportedOnReturn() {
+        testService.lazyList(List.of(1, 2));
+
+        assertThat(reporter.getRecords()).hasSize(1);
+        assertThat(reporter.getValues()).isEmpty();
+    }
+
+    private long value(Measurement measurement) {
+        return reporter.getValues().stream()
+                .filter(v -> v.measurement() == measurement)
+                .reduce((first, second) -> second)
+                .orElseThrow()
+                .value();
+    }
+}
@@ -0,0 +1,133 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedMetricsReporterTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void reader_seesCountersAndHistogramWrittenByReporter() throws IOException {
+        Path file = tempDir.resolve("metrics.bin");
+        try (MappedMetricsReporter reporter = new MappedMetricsReporter(file);
+             MappedMetricsReader reader = MappedMetricsReader.open(file)) {
+            MeterId id = MeterId.of("orders.get", Map.of("env", "prod"));
+            reporter.report(id, 1_000_000, null);
+            reporter.report(id, 3_000_000, new IllegalStateException());
+            reporter.report(id, 2_000_000, new CancellationException());
+            reporter.flush();
+
+            List<MappedMetricsReader.MappedMetric> metrics = reader.read();
+
+            assertThat(metrics).singleElement().satisfies(m -> {
+                assertThat(m.key()).isEqualTo("orders.get{env=prod}");
+                assertThat(m.count()).isEqualTo(3);
+                assertThat(m.errorCount()).isEqualTo(1);
+                assertThat(m.cancelledCount()).isEqualTo(1);
+                assertThat(m.histogram().getCount()).isEqualTo(3);
+                assertThat(m.histogram().getSum()).isEqualTo(6_000_000);
+                assertThat(m.histogram().getMax()).isEqualTo(3_000_000);
+            });
+        }
+    }
+
+    @Test
+    void reads_areConsistentWhileWritersAreActive() throws Exception {
+        Path file = tempDir.resolve("metrics.bin");
+        MeterId id = MeterId.of("hot", Map.of());
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        try (MappedMetricsReporter reporter = new MappedMetricsReporter(file);
+             MappedMetricsReader reader = MappedMetricsReader.open(file)) {
+            reporter.report(id, 1_000, null);
+            for (int t = 0; t < 4; t++) {
+                writers.submit(() -> {
+                    while (running.get()) {
+                        reporter.report(id, 1_000, null);
+                    }
+                });
+            }
+
+            for (int i = 0; i < 1_000; i++) {
+                for (MappedMetricsReader.MappedMetric m : reader.read()) {
+                    assertThat(Arrays.stream(m.histogram().getCounts()).sum()).isEqualTo(m.count());
+                    assertThat(m.histogram().getSum()).isEqualTo(m.count() * 1_000);
+                }
+            }
+        } finally {
+            running.set(false);
+            writers.shutdown();
+            writers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void fullFile_countsDroppedSeries() throws IOException {
+        Path file = tempDir.resolve("metrics.bin");
+        try (MappedMetricsReporter reporter = new MappedMetricsReporter(file, 2, 3, 64);
+             MappedMetricsReader reader = MappedMetricsReader.open(file)) {
+            for (int i = 0; i < 5; i++) {
+                reporter.report(MeterId.of("m" + i, Map.of()), 1_000, null);
+            }
+            reporter.flush();
+
+            assertThat(reader.read()).extracting(MappedMetricsReader.MappedMetric::key).containsExactly("m0{}", "m1{}");
+            assertThat(reader.getDroppedSeries()).isEqualTo(3);
+            assertThat(reporter.getUsedSlots()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void longKeys_areTruncatedToCapacity() throws IOException {
+        Path file = tempDir.resolve("metrics.bin");
+        try (MappedMetricsReporter reporter = new MappedMetricsReporter(file, 4, 3, 8);
+             MappedMetricsReader reader = MappedMetricsReader.open(file)) {
+            reporter.report(MeterId.of("a.very.long.metric.name", Map.of()), 1_000, null);
+            reporter.flush();
+
+            assertThat(reader.read().get(0).key()).isEqualTo("a.very.l");
+        }
+    }
+
+    @Test
+    void cli_printsOneLinePerSeries() throws IOException {
+        Path file = tempDir.resolve("metrics.bin");
+        try (MappedMetricsReporter reporter = new MappedMetricsReporter(file);
+             MappedMetricsReader reader = MappedMetricsReader.open(file)) {
+            reporter.report(MeterId.of("printed", Map.of()), 2_000_000, null);
+            reporter.flush();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            MappedMetricsReader.print(reader, new PrintStream(out, true, StandardCharsets.UTF_8));
+
+            assertThat(out.toString(StandardCharsets.UTF_8)).startsWith("printed{} count=1 errors=0 cancelled=0");
+        }
+    }
+
+    @Test
+    void open_rejectsOtherFiles() throws IOException {
+        Path file = Files.write(tempDir.resolve("other.bin"), new byte[128]);
+
+        assertThatThrownBy(() -> MappedMetricsReader.open(file)).isInstanceOf(IOException.class);
+    }
+}
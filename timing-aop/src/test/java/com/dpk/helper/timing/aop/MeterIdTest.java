@@ -0,0 +1,63 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MeterIdTest {
+
+    @Test
+    void childId_equalsIdBuiltFromFullTagMap() {
+        MeterId site = MeterId.of("orders.fetch", Map.of("env", "prod"), "userId");
+        MeterId child = site.withDynamicValues("u-1");
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("env", "prod");
+        tags.put("userId", "u-1");
+        MeterId plain = MeterId.of("orders.fetch", tags);
+
+        assertThat(child).isEqualTo(plain).hasSameHashCodeAs(plain);
+        assertThat(child.getTags()).containsExactly(Map.entry("env", "prod"), Map.entry("userId", "u-1"));
+    }
+
+    @Test
+    void childIds_ofSameSite_compareByDynamicValues() {
+        MeterId site = MeterId.of("m", Map.of(), "a", "b");
+
+        assertThat(site.withDynamicValues("1", "2")).isEqualTo(site.withDynamicValues("1", "2"));
+        assertThat(site.withDynamicValues("1", "2")).isNotEqualTo(site.withDynamicValues("2", "1"));
+        assertThat(site.withDynamicValues("1", "2").getSite()).isSameAs(site);
+    }
+
+    @Test
+    void dynamicKey_overridesStaticTag() {
+        MeterId site = MeterId.of("m", Map.of("env", "prod"), "env");
+        MeterId child = site.withDynamicValues("test");
+
+        assertThat(child.getTags()).containsOnly(Map.entry("env", "test"));
+        assertThat(child).isEqualTo(MeterId.of("m", Map.of("env", "test")))
+                .hasSameHashCodeAs(MeterId.of("m", Map.of("env", "test")));
+    }
+
+    @Test
+    void siteWithoutDynamicKeys_isReturnedAsIs() {
+        MeterId site = MeterId.of("m", Map.of("k", "v"));
+
+        assertThat(site.withDynamicValues()).isSameAs(site);
+        assertThat(site.isSite()).isTrue();
+    }
+
+    @Test
+    void invalidDynamicValues_areRejected() {
+        MeterId site = MeterId.of("m", Map.of(), "a");
+
+        assertThatThrownBy(() -> site.withDynamicValues("1", "2")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> site.withDynamicValues("1").withDynamicValues("2"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> MeterId.of("m", Map.of(), "a", "a")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,116 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenMetricsExporterTest {
+
+    private final AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+
+    @Test
+    void scrape_rendersCumulativeBucketsCountSumAndOutcomes() {
+        MeterId id = MeterId.of("orders.get", Map.of("env", "prod"));
+        aggregator.report(id, 2_000_000, null);
+        aggregator.report(id, 20_000_000, new IllegalStateException());
+        aggregator.report(id, 3_000_000_000L, new CancellationException());
+
+        String text = new OpenMetricsExporter(aggregator).scrape();
+
+        assertThat(text).startsWith("# TYPE timed_seconds histogram\n");
+        assertThat(text).contains(
+                "timed_seconds_bucket{metric=\"orders.get\",env=\"prod\",le=\"0.001\"} 0\n",
+                "timed_seconds_bucket{metric=\"orders.get\",env=\"prod\",le=\"0.0025\"} 1\n",
+                "timed_seconds_bucket{metric=\"orders.get\",env=\"prod\",le=\"0.025\"} 2\n",
+                "timed_seconds_bucket{metric=\"orders.get\",env=\"prod\",le=\"+Inf\"} 3\n",
+                "timed_seconds_count{metric=\"orders.get\",env=\"prod\"} 3\n",
+                "timed_seconds_sum{metric=\"orders.get\",env=\"prod\"} 3.022000000\n",
+                "timed_outcomes_total{metric=\"orders.get\",env=\"prod\",outcome=\"success\"} 1\n",
+                "timed_outcomes_total{metric=\"orders.get\",env=\"prod\",outcome=\"failure\"} 1\n",
+                "timed_outcomes_total{metric=\"orders.get\",env=\"prod\",outcome=\"cancelled\"} 1\n");
+        assertThat(text).endsWith("# EOF\n");
+    }
+
+    @Test
+    void scrape_rendersCorrectedHistogramOnlyForSeriesWithExpectedInterval() {
+        aggregator.report(MeterId.of("tick", Map.of()), 50_000_000, null, 1.0, 10_000_000);
+        aggregator.report(MeterId.of("other", Map.of()), 50_000_000, null, 1.0);
+
+        String text = new OpenMetricsExporter(aggregator).scrape();
+
+        assertThat(text).contains(
+                "# TYPE timed_corrected_seconds histogram\n",
+                "timed_seconds_count{metric=\"tick\"} 1\n",
+                "timed_corrected_seconds_count{metric=\"tick\"} 5\n",
+                "timed_corrected_seconds_sum{metric=\"tick\"} 0.150000000\n",
+                "timed_outcomes_total{metric=\"tick\",outcome=\"success\"} 1\n");
+        assertThat(text).doesNotContain("timed_corrected_seconds_count{metric=\"other\"}");
+    }
+
+    @Test
+    void labels_areSanitizedAndEscaped() {
+        MeterId id = MeterId.of("m", Map.of("le", "x", "user id", "a\"b\\c"));
+
+        String labels = new String(OpenMetricsExporter.encodeLabels(id), StandardCharsets.UTF_8);
+
+        assertThat(labels).contains("tag_le=\"x\"", "user_id=\"a\\\"b\\\\c\"");
+        assertThat(OpenMetricsExporter.labelName("metric")).isEqualTo("tag_metric");
+        assertThat(OpenMetricsExporter.labelName("9lives")).isEqualTo("_lives");
+    }
+
+    @Test
+    void labels_ofCollidingTagKeysAreMadeUnique() {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("a.b", "1");
+        tags.put("a-b", "2");
+        tags.put("metric", "3");
+        tags.put("tag_metric", "4");
+
+        String labels = new String(OpenMetricsExporter.encodeLabels(MeterId.of("m", tags)),
+                StandardCharsets.UTF_8);
+
+        assertThat(labels).isEqualTo(
+                "metric=\"m\",a_b=\"1\",a_b_2=\"2\",tag_metric=\"3\",tag_metric_2=\"4\"");
+    }
+
+    @Test
+    void scrape_reusesBufferAcrossScrapes() {
+        OpenMetricsExporter exporter = new OpenMetricsExporter(aggregator);
+        for (int i = 0; i < 2_000; i++) {
+            aggregator.report(MeterId.of("m" + i, Map.of()), 1_000, null);
+        }
+
+        String first = exporter.scrape();
+        aggregator.report(MeterId.of("m0", Map.of()), 1_000, null);
+        String second = exporter.scrape();
+
+        assertThat(second.length()).isEqualTo(first.length());
+        assertThat(second).contains("timed_seconds_count{metric=\"m0\"} 2\n");
+    }
+
+    @Test
+    void httpServer_servesMetricsEndpoint() throws Exception {
+        aggregator.report(MeterId.of("served", Map.of()), 1_000, null);
+
+        try (OpenMetricsExporter exporter = new OpenMetricsExporter(aggregator,
+                new InetSocketAddress("127.0.0.1", 0))) {
+            URI uri = URI.create("http://127.0.0.1:" + exporter.getAddress().getPort() + "/metrics");
+            HttpResponse<String> response = HttpClient.newHttpClient()
+                    .send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.headers().firstValue("Content-Type")).hasValue(OpenMetricsExporter.CONTENT_TYPE);
+            assertThat(response.body()).contains("timed_seconds_count{metric=\"served\"} 1\n");
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringJUnitConfig(TestConfig.class)
+class SamplingTest {
+
+    @Autowired
+    private TestService testService;
+
+    @Autowired
+    private InMemoryMetricsReporter reporter;
+
+    @BeforeEach
+    void setUp() {
+        reporter.clear();
+    }
+
+    @Test
+    void oneInN_timesEveryNthCallWithWeightN() {
+        for (int i = 0; i < 1_000; i++) {
+            testService.sampledOneInTen();
+        }
+
+        assertThat(reporter.getRecords()).hasSize(100);
+        assertThat(reporter.getRecords()).allSatisfy(record -> {
+            assertThat(record.metricName()).isEqualTo("sampled.oneIn");
+            assertThat(record.sampleWeight()).isEqualTo(10.0);
+        });
+    }
+
+    @Test
+    void rateLimited_capsSampledCallsPerSecond() {
+        for (int i = 0; i < 1_000; i++) {
+            testService.sampledRateLimited();
+        }
+
+        assertThat(reporter.getRecords()).hasSizeBetween(1, 10);
+    }
+
+    @Test
+    void invalidSampling_neverSamplesInsteadOfFailingCalls() {
+        assertThat(testService.sampledInvalid()).isEqualTo("ok");
+        assertThat(testService.sampledInvalid()).isEqualTo("ok");
+
+        assertThat(reporter.getRecords()).isEmpty();
+    }
+
+    @Test
+    void rateLimited_defersWeightOfCappedCalls() throws InterruptedException {
+        Sampler sampler = new Sampler.RateLimitedSampler(10);
+        double total = 0;
+        for (int i = 0; i < 1_000; i++) {
+            total += sampler.sample();
+        }
+        assertThat(total).isEqualTo(10.0);
+
+        // The first call admitted after the window rolls carries the capped ones
+        Thread.sleep(1_100);
+        double weight = sampler.sample();
+        while (weight == 0.0) {
+            weight = sampler.sample();
+        }
+        assertThat(total + weight).isGreaterThanOrEqualTo(1_001.0);
+    }
+
+    @Test
+    void unsampledMethods_reportWeightOne() {
+        testService.defaultName();
+
+        assertThat(reporter.getLastRecord().sampleWeight()).isEqualTo(1.0);
+    }
+
+    @Test
+    void probabilitySampler_weightIsInverseProbability() {
+        Sampler sampler = new Sampler.ProbabilitySampler(0.25);
+        int sampled = 0;
+        for (int i = 0; i < 100_000; i++) {
+            double weight = sampler.sample();
+            if (weight > 0) {
+                assertThat(weight).isEqualTo(4.0);
+                sampled++;
+            }
+        }
+        assertThat(sampled).isBetween(23_000, 27_000);
+    }
+
+    @Test
+    void aggregatingReporter_scalesCountsByWeight() {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        MeterId id = MeterId.of("m", Map.of());
+
+        aggregator.report(id, 1_000, null, 10.0);
+        aggregator.report(id, 2_000, new IllegalStateException(), 10.0);
+
+        MetricSnapshot snapshot = aggregator.snapshot().get(0);
+        assertThat(snapshot.count()).isEqualTo(20);
+        assertThat(snapshot.errorCount()).isEqualTo(10);
+    }
+}
@@ -0,0 +1,92 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Slf4jMetricsReporterTest {
+
+    @Test
+    void formatSummary_includesCountsAndPercentiles() {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter(50.0, 99.0);
+        MeterId id = MeterId.of("orders.fetch", Map.of("env", "prod"));
+        aggregator.report(id, 1_000_000, null);
+        aggregator.report(id, 3_000_000, new IllegalStateException());
+
+        try (Slf4jMetricsReporter reporter = new Slf4jMetricsReporter(Duration.ofHours(1))) {
+            String line = reporter.formatSummary(aggregator.snapshot().get(0));
+
+            assertThat(line)
+                    .startsWith("TIMED [orders.fetch] count=2 errors=1")
+                    .contains("min=1.00ms", "max=3.00ms", "mean=2.00ms", "p50=", "p99=")
+                    .endsWith("tags={env=prod}");
+        }
+    }
+
+    @Test
+    void formatCounts_logsIntervalTotals() {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter(50.0, 99.0);
+        MeterId id = MeterId.of("orders.count", Map.of("env", "prod"));
+        aggregator.reportValue(id, Measurement.SUCCESS_COUNT, 40, 1.0);
+        aggregator.reportValue(id, Measurement.FAILURE_COUNT, 2, 1.0);
+
+        try (Slf4jMetricsReporter reporter = new Slf4jMetricsReporter(Duration.ofHours(1))) {
+            String line = reporter.formatCounts(aggregator.snapshot().get(0));
+
+            assertThat(line).isEqualTo("TIMED [orders.count] calls.success=40 calls.failure=2 tags={env=prod}");
+        }
+    }
+
+    @Test
+    void summaryMode_logsSlowCallsAndFlushesSummaryOnClose() {
+        String output = captureStdErr(() -> {
+            Slf4jMetricsReporter reporter = new Slf4jMetricsReporter(Duration.ofHours(1), Duration.ofMillis(1));
+
+            reporter.report("m", 10, Map.of(), null);
+            reporter.report(MeterId.of("m", Map.of()), 5_000_000, new RuntimeException(), 1.0);
+
+            reporter.close();
+        });
+
+        assertThat(output).contains(
+                "TIMED [m] slow call took 5.00ms tags={} exception=java.lang.RuntimeException",
+                "TIMED [m] count=2 errors=1");
+        assertThat(output).doesNotContain("slow call took 0.00ms");
+    }
+
+    @Test
+    void summaryWindow_mustBePositive() {
+        assertThatThrownBy(() -> new Slf4jMetricsReporter(Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void summaryWindow_mayBeShorterThanOneMillisecond() {
+        try (Slf4jMetricsReporter reporter = new Slf4jMetricsReporter(Duration.ofNanos(500_000))) {
+            reporter.report("m", 10, Map.of(), null);
+        }
+    }
+
+    /**
+     * Captures what slf4j-simple, the test logging backend, writes while
+     * {@code action} runs. It resolves {@code System.err} on every write.
+     */
+    private static String captureStdErr(Runnable action) {
+        PrintStream original = System.err;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            action.run();
+        } finally {
+            System.setErr(original);
+        }
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,107 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowCallReservoirTest {
+
+    private InMemoryMetricsReporter reporter;
+
+    @BeforeEach
+    void setUp() {
+        reporter = new InMemoryMetricsReporter();
+    }
+
+    @Test
+    void keepsSlowestCallsWithTheirArguments() throws Exception {
+        SlowCallReservoir reservoir = new SlowCallReservoir(2, Duration.ofHours(1));
+        TestService service = proxy(reservoir);
+
+        service.exemplar("eu", "o-1", "fast", 0);
+        service.exemplar("eu", "o-2", "slowest", 40);
+        service.exemplar("us", "o-3", "slower", 20);
+        service.exemplar("eu", "o-4", "fast", 0);
+
+        assertThat(reservoir.snapshot("exemplar"))
+                .extracting(call -> call.args().get("order"))
+                .containsExactly("o-2", "o-3");
+        SlowCallReservoir.SlowCall slowest = reservoir.snapshot("exemplar").get(0);
+        assertThat(slowest.durationNanos()).isGreaterThanOrEqualTo(40_000_000L);
+        assertThat(slowest.tags()).containsEntry("region", "eu");
+        assertThat(slowest.args()).containsEntry("note", "slowest");
+        assertThat(slowest.thread()).isEqualTo(Thread.currentThread().getName());
+        assertThat(slowest.exception()).isNull();
+        assertThat(reporter.getRecords()).hasSize(4);
+    }
+
+    @Test
+    void expiredWindow_isDropped() throws Exception {
+        SlowCallReservoir reservoir = new SlowCallReservoir(2, Duration.ofMillis(50));
+        TestService service = proxy(reservoir);
+
+        service.exemplar("eu", "o-1", "", 0);
+        assertThat(reservoir.snapshot()).hasSize(1);
+        Thread.sleep(60);
+
+        assertThat(reservoir.snapshot()).isEmpty();
+        service.exemplar("eu", "o-2", "", 0);
+        assertThat(reservoir.snapshot()).singleElement()
+                .satisfies(call -> assertThat(call.args()).containsEntry("order", "o-2"));
+    }
+
+    @Test
+    void longArgument_isTruncated() throws Exception {
+        SlowCallReservoir reservoir = new SlowCallReservoir();
+        TestService service = proxy(reservoir);
+
+        service.exemplar("eu", "o-1", "x".repeat(1_000), 0);
+
+        assertThat(reservoir.snapshot().get(0).args().get("note"))
+                .hasSize(SlowCallReservoir.MAX_ARG_LENGTH + 3)
+                .endsWith("...");
+    }
+
+    @Test
+    void dump_writesOneLinePerCall() throws Exception {
+        SlowCallReservoir reservoir = new SlowCallReservoir();
+        TestService service = proxy(reservoir);
+
+        service.exemplar("eu", "o-1", "n", 0);
+        StringBuilder out = new StringBuilder();
+        reservoir.dump(out);
+
+        assertThat(out.toString())
+                .startsWith("exemplar{region=eu} ")
+                .contains(" thread=" + Thread.currentThread().getName())
+                .endsWith(" args={order=o-1, note=n}\n");
+    }
+
+    @Test
+    void withoutReservoir_nothingIsCaptured() throws Exception {
+        SlowCallReservoir reservoir = new SlowCallReservoir();
+        TimedAspect aspect = new TimedAspect(reporter);
+        aspect.setSlowCallReservoir(reservoir);
+        aspect.setSlowCallReservoir(null);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new TestService());
+        factory.addAspect(aspect);
+        TestService service = factory.getProxy();
+
+        service.exemplar("eu", "o-1", "", 0);
+
+        assertThat(reservoir.snapshot()).isEmpty();
+        assertThat(reporter.getRecords()).hasSize(1);
+    }
+
+    private TestService proxy(SlowCallReservoir reservoir) {
+        TimedAspect aspect = new TimedAspect(reporter);
+        aspect.setSlowCallReservoir(reservoir);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new TestService());
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+}
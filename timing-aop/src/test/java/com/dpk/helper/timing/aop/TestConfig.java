@@ -4,6 +4,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 
+import java.time.Duration;
+
 @Configuration
 @EnableAspectJAutoProxy
 public class TestConfig {
@@ -18,6 +20,16 @@ public class TestConfig {
         return new TimedAspect(reporter);
     }
 
+    @Bean
+    public TimedExecutorAspect timedExecutorAspect(InMemoryMetricsReporter reporter) {
+        return new TimedExecutorAspect(reporter);
+    }
+
+    @Bean
+    public CountedAspect countedAspect(InMemoryMetricsReporter reporter) {
+        return new CountedAspect(reporter, Duration.ofHours(1));
+    }
+
     @Bean
     public TestService testService() {
         return new TestService();
@@ -1,7 +1,22 @@
 package com.dpk.helper.timing.aop;
 
+import com.dpk.helper.timing.Counted;
+import com.dpk.helper.timing.Sampling;
+import com.dpk.helper.timing.SamplingMode;
 import com.dpk.helper.timing.Tag;
+import com.dpk.helper.timing.ThreadMetric;
 import com.dpk.helper.timing.Timed;
+import com.dpk.helper.timing.TimedExecutor;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * A simple service used for testing {@code @Timed} method-level annotation.
@@ -33,6 +48,11 @@ public class TestService {
         return name + ":" + count;
     }
 
+    @Timed(dynamicTags = {"bad=#args[0].("})
+    public String withInvalidDynamicTag(String value) {
+        return value;
+    }
+
     @Timed(reportExceptions = true)
     public String failingMethod() {
         throw new IllegalStateException("boom");
@@ -42,4 +62,111 @@ public class TestService {
     public String failingNoReport() {
         throw new IllegalStateException("boom");
     }
+
+    @Timed(value = "sampled.oneIn", sampling = @Sampling(mode = SamplingMode.ONE_IN_N, oneIn = 10))
+    public String sampledOneInTen() {
+        return "ok";
+    }
+
+    @Timed(value = "sampled.rate", sampling = @Sampling(mode = SamplingMode.RATE_LIMITED, maxPerSecond = 5))
+    public String sampledRateLimited() {
+        return "ok";
+    }
+
+    @Timed(value = "sampled.invalid", sampling = @Sampling(mode = SamplingMode.PROBABILITY, probability = -0.5))
+    public String sampledInvalid() {
+        return "ok";
+    }
+
+    @Timed("async.future")
+    public CompletableFuture<String> asyncResult(CompletableFuture<String> future) {
+        return future;
+    }
+
+    @Timed(value = "async.future.noExceptions", reportExceptions = false)
+    public CompletableFuture<String> asyncResultNoReport(CompletableFuture<String> future) {
+        return future;
+    }
+
+    @Timed("async.publisher")
+    public Flow.Publisher<String> publisher(Flow.Publisher<String> publisher) {
+        return publisher;
+    }
+
+    @Timed(value = "usage.cpuAndAlloc", threadMetrics = {ThreadMetric.CPU_TIME, ThreadMetric.ALLOCATED_BYTES})
+    public int allocating(int size) {
+        byte[][] chunks = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            chunks[i] = new byte[1024];
+        }
+        return chunks.length;
+    }
+
+    @Timed(value = "usage.waited", threadMetrics = ThreadMetric.WAITED_TIME)
+    public void sleeping(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    @Timed("inflight.blocking")
+    public void awaiting(CountDownLatch entered, CountDownLatch release) throws InterruptedException {
+        entered.countDown();
+        release.await();
+    }
+
+    @Timed("gc.attributed")
+    public void running(Runnable action) {
+        action.run();
+    }
+
+    @Timed(value = "lazy.stream", lazyResult = true)
+    public Stream<Integer> lazyStream(int size) {
+        return IntStream.range(0, size).boxed();
+    }
+
+    @Timed(value = "lazy.iterator", lazyResult = true)
+    public Iterator<Integer> lazyIterator(List<Integer> values) {
+        return values.iterator();
+    }
+
+    @Timed(value = "lazy.iterable", lazyResult = true)
+    public Iterable<Integer> lazyIterable(List<Integer> values) {
+        return values;
+    }
+
+    @Timed(value = "lazy.list", lazyResult = true)
+    public List<Integer> lazyList(List<Integer> values) {
+        return values;
+    }
+
+    @TimedExecutor(value = "executor.orders", tags = @Tag(key = "pool", value = "orders"))
+    public ExecutorService executor(ExecutorService executor) {
+        return executor;
+    }
+
+    @TimedExecutor("executor.scheduled")
+    public ScheduledExecutorService scheduledExecutor(ScheduledExecutorService executor) {
+        return executor;
+    }
+
+    @Counted(value = "counted.calls", tags = @Tag(key = "layer", value = "service"))
+    public void counted(boolean fail) {
+        if (fail) {
+            throw new IllegalStateException("counted failure");
+        }
+    }
+
+    @Counted("counted.async")
+    public CompletableFuture<String> countedAsync(CompletableFuture<String> future) {
+        return future;
+    }
+
+    @Timed(value = "fixedRate", expectedIntervalNanos = 10_000_000)
+    public void fixedRate(long sleepMillis) throws InterruptedException {
+        Thread.sleep(sleepMillis);
+    }
+
+    @Timed(value = "exemplar", dynamicTags = "region=#region", exemplarArgs = {"order=#orderId", "note=#note"})
+    public void exemplar(String region, String orderId, String note, long sleepMillis) throws InterruptedException {
+        Thread.sleep(sleepMillis);
+    }
 }
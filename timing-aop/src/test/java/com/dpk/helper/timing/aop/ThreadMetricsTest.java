@@ -0,0 +1,85 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringJUnitConfig(TestConfig.class)
+class ThreadMetricsTest {
+
+    @Autowired
+    private TestService testService;
+
+    @Autowired
+    private InMemoryMetricsReporter reporter;
+
+    @BeforeEach
+    void setUp() {
+        reporter.clear();
+    }
+
+    @Test
+    void cpuTimeAndAllocatedBytes_reportedBeforeDuration() {
+        testService.allocating(1_000);
+
+        List<InMemoryMetricsReporter.ValueRecord> values = reporter.getValues();
+        assertThat(values).extracting(InMemoryMetricsReporter.ValueRecord::measurement)
+                .containsExactly(Measurement.CPU_TIME_NANOS, Measurement.ALLOCATED_BYTES);
+        assertThat(values).allSatisfy(v -> assertThat(v.metricName()).isEqualTo("usage.cpuAndAlloc"));
+        assertThat(values.get(1).value()).isGreaterThanOrEqualTo(1_000L * 1024);
+        assertThat(reporter.getRecords()).hasSize(1);
+    }
+
+    @Test
+    void waitedTime_includesSleep() throws Exception {
+        testService.sleeping(30);
+
+        assertThat(reporter.getValues()).singleElement().satisfies(v -> {
+            assertThat(v.measurement()).isEqualTo(Measurement.WAITED_NANOS);
+            assertThat(v.value()).isGreaterThanOrEqualTo(20_000_000L);
+        });
+    }
+
+    @Test
+    void methodsWithoutThreadMetrics_reportNoValues() {
+        testService.defaultName();
+
+        assertThat(reporter.getValues()).isEmpty();
+        assertThat(reporter.getRecords()).hasSize(1);
+    }
+
+    @Test
+    void virtualThread_reportsDurationOnly() throws Exception {
+        AtomicInteger result = new AtomicInteger();
+        Thread thread = Thread.ofVirtual().start(() -> result.set(testService.allocating(10)));
+        thread.join();
+
+        assertThat(result).hasValue(10);
+        assertThat(reporter.getValues()).isEmpty();
+        assertThat(reporter.getRecords()).hasSize(1);
+    }
+
+    @Test
+    void aggregatingReporter_sumsValuesPerSeries() {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        MeterId id = MeterId.of("usage", Map.of());
+        aggregator.reportValue(id, Measurement.CPU_TIME_NANOS, 1_000, 1.0);
+        aggregator.reportValue(id, Measurement.CPU_TIME_NANOS, 2_000, 2.0);
+        aggregator.report(id, 10_000, null);
+
+        MetricSnapshot first = aggregator.intervalSnapshot().get(0);
+        assertThat(first.total(Measurement.CPU_TIME_NANOS)).isEqualTo(5_000);
+        assertThat(first.total(Measurement.ALLOCATED_BYTES)).isZero();
+
+        aggregator.reportValue(id, Measurement.CPU_TIME_NANOS, 500, 1.0);
+        assertThat(aggregator.intervalSnapshot().get(0).total(Measurement.CPU_TIME_NANOS)).isEqualTo(500);
+        assertThat(aggregator.snapshot().get(0).total(Measurement.CPU_TIME_NANOS)).isEqualTo(5_500);
+    }
+}
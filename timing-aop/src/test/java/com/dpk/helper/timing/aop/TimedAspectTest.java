@@ -1,7 +1,9 @@
 package com.dpk.helper.timing.aop;
 
+import com.dpk.helper.diagnostics.OverheadRecorder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
@@ -80,4 +82,44 @@ class TimedAspectTest {
         // Duration should be positive and less than 1 second for a trivial method
         assertThat(record.durationNanos()).isBetween(0L, 1_000_000_000L);
     }
+
+    @Test
+    void overheadRecorder_measuresAdvicePerJoinPoint() {
+        OverheadRecorder overhead = new OverheadRecorder();
+        TimedAspect aspect = new TimedAspect(reporter);
+        aspect.setOverheadRecorder(overhead);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new TestService());
+        factory.addAspect(aspect);
+        TestService service = factory.getProxy();
+
+        service.defaultName();
+        service.defaultName();
+
+        assertThat(reporter.getRecords()).hasSize(2);
+        assertThat(overhead.top(5)).singleElement().satisfies(o -> {
+            assertThat(o.aspect()).isEqualTo("TimedAspect");
+            assertThat(o.joinPoint()).isEqualTo("TestService.defaultName");
+            assertThat(o.calls()).isEqualTo(2);
+            assertThat(o.maxNanos()).isPositive().isLessThanOrEqualTo(o.totalNanos());
+        });
+    }
+
+    @Test
+    void expectedInterval_isPassedToReporter() throws InterruptedException {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new TestService());
+        factory.addAspect(new TimedAspect(aggregator));
+        TestService service = factory.getProxy();
+
+        service.fixedRate(50);
+        service.defaultName();
+
+        assertThat(aggregator.snapshot()).filteredOn(MetricSnapshot::isCorrected).singleElement()
+                .satisfies(s -> {
+                    assertThat(s.metricName()).isEqualTo("fixedRate");
+                    assertThat(s.count()).isEqualTo(1);
+                    // 50ms at a 10ms interval held back at least four calls
+                    assertThat(s.correctedHistogram().getCount()).isGreaterThanOrEqualTo(5);
+                });
+    }
 }
@@ -63,4 +63,12 @@ class TimedClassTest {
         // Method-level @Timed has no tags, so class-level tags should NOT be present
         assertThat(record.tags()).isEmpty();
     }
+
+    @Test
+    void timedClass_nonPublicMethodsAreNotInstrumented() {
+        timedClassService.packagePrivateMethod();
+        timedClassService.packagePrivateMethod();
+
+        assertThat(reporter.getRecords()).isEmpty();
+    }
 }
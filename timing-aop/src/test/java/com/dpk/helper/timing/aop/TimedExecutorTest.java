@@ -0,0 +1,184 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringJUnitConfig(TestConfig.class)
+class TimedExecutorTest {
+
+    @Autowired
+    private TestService testService;
+
+    @Autowired
+    private InMemoryMetricsReporter reporter;
+
+    @BeforeEach
+    void setUp() {
+        reporter.clear();
+    }
+
+    @Test
+    void annotatedMethod_returnsSameWrapperForSameExecutor() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+
+        ExecutorService wrapped = testService.executor(pool);
+        assertThat(wrapped).isInstanceOf(TimedExecutorService.class);
+        assertThat(testService.executor(pool)).isSameAs(wrapped);
+
+        wrapped.execute(() -> { });
+        wrapped.shutdown();
+        assertThat(wrapped.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(reporter.getRecords()).extracting(InMemoryMetricsReporter.TimingRecord::metricName)
+                .containsExactly("executor.orders.wait", "executor.orders.run");
+        assertThat(reporter.getRecords()).allSatisfy(r -> assertThat(r.tags()).containsEntry("pool", "orders"));
+        assertThat(reporter.getValues()).singleElement()
+                .satisfies(v -> assertThat(v.measurement()).isEqualTo(Measurement.QUEUE_DEPTH));
+    }
+
+    @Test
+    void unsupportedDeclaredType_returnedUnwrapped() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        assertThat(testService.scheduledExecutor(scheduler)).isSameAs(scheduler);
+        scheduler.shutdown();
+    }
+
+    @Test
+    void queuedTasks_reportWaitAndDepth() throws Exception {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        TimedExecutorService executor = new TimedExecutorService(Executors.newSingleThreadExecutor(),
+                "pool", Map.of(), aggregator);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        started.await();
+        for (int i = 0; i < 3; i++) {
+            executor.execute(() -> { });
+        }
+        assertThat(executor.getQueueDepth()).isEqualTo(3);
+        TimeUnit.MILLISECONDS.sleep(20);
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        MetricSnapshot wait = snapshot(aggregator, "pool.wait");
+        assertThat(wait.count()).isEqualTo(4);
+        assertThat(wait.maxNanos()).isGreaterThanOrEqualTo(20_000_000L);
+        // Depths at submission: 0 for the blocker, then 0, 1 and 2
+        assertThat(wait.total(Measurement.QUEUE_DEPTH)).isEqualTo(3);
+        assertThat(snapshot(aggregator, "pool.run").count()).isEqualTo(4);
+        assertThat(executor.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void threadPoolDelegate_depthFollowsItsQueueWhenTasksAreDiscarded() throws Exception {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(1), new ThreadPoolExecutor.DiscardOldestPolicy());
+        TimedExecutorService executor = new TimedExecutorService(pool, "pool", Map.of(), aggregator);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        started.await();
+        for (int i = 0; i < 3; i++) {
+            executor.execute(() -> { });
+        }
+        // Two of the queued tasks were discarded and will never run
+        assertThat(executor.getQueueDepth()).isEqualTo(1);
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(snapshot(aggregator, "pool.wait").count()).isEqualTo(2);
+        assertThat(executor.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void submittedTaskFailure_reportedFromFuture() throws Exception {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        TimedExecutorService executor = new TimedExecutorService(Executors.newSingleThreadExecutor(),
+                "pool", Map.of(), aggregator);
+
+        Future<?> future = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class);
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(snapshot(aggregator, "pool.run").errorCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shutdownNow_returnsOriginalTasks() throws Exception {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+        TimedExecutorService executor = new TimedExecutorService(Executors.newSingleThreadExecutor(),
+                "pool", Map.of(), aggregator);
+        CountDownLatch started = new CountDownLatch(1);
+        Runnable queued = () -> { };
+
+        executor.execute(() -> {
+            started.countDown();
+            await(new CountDownLatch(1));
+        });
+        executor.execute(queued);
+        started.await();
+        List<Runnable> neverRun = executor.shutdownNow();
+
+        assertThat(neverRun).containsExactly(queued);
+        assertThat(executor.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void virtualThreadExecutor_timesEveryTask() throws Exception {
+        AggregatingMetricsReporter aggregator = new AggregatingMetricsReporter();
+
+        try (TimedExecutorService executor = new TimedExecutorService(Executors.newVirtualThreadPerTaskExecutor(),
+                "virtual", Map.of(), aggregator)) {
+            for (int i = 0; i < 100; i++) {
+                executor.submit(() -> "done");
+            }
+        }
+
+        assertThat(snapshot(aggregator, "virtual.wait").count()).isEqualTo(100);
+        assertThat(snapshot(aggregator, "virtual.run").count()).isEqualTo(100);
+    }
+
+    private static MetricSnapshot snapshot(AggregatingMetricsReporter aggregator, String name) {
+        return aggregator.snapshot().stream().filter(s -> s.id().getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
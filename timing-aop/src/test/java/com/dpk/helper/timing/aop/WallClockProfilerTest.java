@@ -0,0 +1,180 @@
+package com.dpk.helper.timing.aop;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WallClockProfilerTest {
+
+    // Sampled by hand, so the scheduled sampler never runs during a test
+    private final WallClockProfiler profiler = new WallClockProfiler(Duration.ofHours(1));
+
+    @AfterEach
+    void tearDown() {
+        profiler.close();
+    }
+
+    @Test
+    void threadInsideTimedCall_isSampledUnderItsMetric() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread worker = new Thread(() -> {
+            WallClockProfiler.ThreadSlot slot = profiler.slot();
+            String enclosing = slot.enter("orders.place");
+            entered.countDown();
+            await(release);
+            slot.exit(enclosing);
+        });
+        worker.start();
+        entered.await();
+        awaitParked(worker);
+
+        profiler.sample();
+        profiler.sample();
+        release.countDown();
+        worker.join();
+        profiler.sample();
+
+        assertThat(profiler.snapshot()).singleElement().satisfies(s -> {
+            assertThat(s.metric()).isEqualTo("orders.place");
+            assertThat(s.stack()).contains(WallClockProfilerTest.class.getName() + ".await");
+            assertThat(s.samples()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void nestedCall_restoresEnclosingMetric() {
+        WallClockProfiler.ThreadSlot slot = profiler.slot();
+
+        String outer = slot.enter("outer");
+        String inner = slot.enter("inner");
+        assertThat(slot.active()).isEqualTo("inner");
+        slot.exit(inner);
+        assertThat(slot.active()).isEqualTo("outer");
+        slot.exit(outer);
+
+        assertThat(outer).isNull();
+        assertThat(inner).isEqualTo("outer");
+        assertThat(slot.active()).isNull();
+    }
+
+    @Test
+    void collapse_keepsFramesBelowTheAspectOutermostFirst() {
+        StackTraceElement[] stack = {
+                frame("java.lang.Thread", "sleep"),
+                frame("com.example.OrderRepository", "save"),
+                frame("com.example.OrderService", "place"),
+                frame("jdk.internal.reflect.DirectMethodHandleAccessor", "invoke"),
+                frame("org.springframework.aop.framework.ReflectiveMethodInvocation", "proceed"),
+                frame(TimedAspect.class.getName(), "executeAndReport"),
+                frame("com.example.OrderController", "post"),
+        };
+
+        assertThat(profiler.collapse(stack))
+                .isEqualTo("com.example.OrderService.place;com.example.OrderRepository.save;java.lang.Thread.sleep");
+    }
+
+    @Test
+    void collapse_isBoundedByMaxFrames() {
+        try (WallClockProfiler shallow = new WallClockProfiler(Duration.ofHours(1), 10, 2)) {
+            StackTraceElement[] stack = {frame("c", "m"), frame("b", "m"), frame("a", "m")};
+
+            assertThat(shallow.collapse(stack)).isEqualTo("a.m;b.m");
+        }
+    }
+
+    @Test
+    void stacksPerMetric_areBounded() throws Exception {
+        try (WallClockProfiler bounded = new WallClockProfiler(Duration.ofHours(1), 1, 128)) {
+            for (int i = 0; i < 3; i++) {
+                sampleOnce(bounded, i % 2 == 0);
+            }
+
+            assertThat(bounded.snapshot()).extracting(WallClockProfiler.StackSample::stack)
+                    .hasSize(2)
+                    .contains(WallClockProfiler.TRUNCATED);
+        }
+    }
+
+    @Test
+    void timedAspect_publishesActiveMetric() throws Exception {
+        TimedAspect aspect = new TimedAspect(new InMemoryMetricsReporter());
+        aspect.setWallClockProfiler(profiler);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new TestService());
+        factory.addAspect(aspect);
+        TestService service = factory.getProxy();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread worker = new Thread(() -> service.running(() -> {
+            entered.countDown();
+            await(release);
+        }));
+        worker.start();
+        entered.await();
+        awaitParked(worker);
+        profiler.sample();
+        release.countDown();
+        worker.join();
+
+        assertThat(profiler.snapshot()).singleElement().satisfies(s -> {
+            assertThat(s.metric()).isEqualTo("gc.attributed");
+            assertThat(s.stack()).startsWith(TestService.class.getName() + ".running;");
+        });
+        assertThat(profiler.slot().active()).isNull();
+    }
+
+    /**
+     * Samples one thread parked in one of two distinct stacks.
+     */
+    private static void sampleOnce(WallClockProfiler profiler, boolean first) throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable park = first ? () -> parkFirst(entered, release) : () -> parkSecond(entered, release);
+        Thread worker = new Thread(() -> {
+            WallClockProfiler.ThreadSlot slot = profiler.slot();
+            String enclosing = slot.enter("metric");
+            park.run();
+            slot.exit(enclosing);
+        });
+        worker.start();
+        entered.await();
+        awaitParked(worker);
+        profiler.sample();
+        release.countDown();
+        worker.join();
+    }
+
+    private static void parkFirst(CountDownLatch entered, CountDownLatch release) {
+        entered.countDown();
+        await(release);
+    }
+
+    private static void parkSecond(CountDownLatch entered, CountDownLatch release) {
+        entered.countDown();
+        await(release);
+    }
+
+    private static void awaitParked(Thread worker) {
+        while (worker.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static StackTraceElement frame(String className, String methodName) {
+        return new StackTraceElement(className, methodName, null, -1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
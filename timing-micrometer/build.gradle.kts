@@ -0,0 +1,16 @@
+plugins {
+    alias(libs.plugins.jmh)
+}
+
+dependencies {
+    api(project(":timing-aop"))
+    api(libs.micrometer.core)
+    implementation(libs.slf4j.api)
+
+    testRuntimeOnly(libs.slf4j.simple)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
+}
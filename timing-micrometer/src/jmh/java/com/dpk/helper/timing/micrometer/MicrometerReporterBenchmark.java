@@ -0,0 +1,102 @@
+package com.dpk.helper.timing.micrometer;
+
+import com.dpk.helper.timing.aop.MeterId;
+import com.dpk.helper.timing.aop.MetricsReporter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of reporting one duration: a naive adapter that registers
+ * the timer by name and tags on every call, against
+ * {@link MicrometerMetricsReporter}, which caches it per site.
+ *
+ * <p>Each dynamic-tag call derives its id from the site with
+ * {@link MeterId#withDynamicValues(String...)}, as {@code TimedAspect} does.
+ *
+ * <p>Run with {@code ./gradlew :timing-micrometer:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MicrometerReporterBenchmark {
+
+    private static final String[] TENANTS = {"acme", "globex", "initech", "umbrella", "hooli", "stark", "wayne", "wonka"};
+
+    private MetricsReporter naive;
+    private MetricsReporter cached;
+    private MeterId staticSite;
+    private MeterId dynamicSite;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        naive = new NaiveMicrometerReporter(registry);
+        cached = new MicrometerMetricsReporter(registry);
+        staticSite = MeterId.of("orders.place", Map.of("service", "orders", "region", "eu", "tier", "gold"));
+        dynamicSite = MeterId.of("orders.get", Map.of("service", "orders", "region", "eu"), "tenant");
+    }
+
+    @Benchmark
+    public void naiveStaticTags() {
+        naive.report(staticSite, 1_000, null);
+    }
+
+    @Benchmark
+    public void cachedStaticTags() {
+        cached.report(staticSite, 1_000, null);
+    }
+
+    @Benchmark
+    public void naiveDynamicTags() {
+        naive.report(dynamicSite.withDynamicValues(nextTenant()), 1_000, null);
+    }
+
+    @Benchmark
+    public void cachedDynamicTags() {
+        cached.report(dynamicSite.withDynamicValues(nextTenant()), 1_000, null);
+    }
+
+    private String nextTenant() {
+        next = (next + 1) & (TENANTS.length - 1);
+        return TENANTS[next];
+    }
+
+    /**
+     * The adapter from the README before this module existed: builds and
+     * registers the timer on every call.
+     */
+    static final class NaiveMicrometerReporter implements MetricsReporter {
+
+        private final MeterRegistry registry;
+
+        NaiveMicrometerReporter(MeterRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public void report(String metricName, long durationNanos, Map<String, String> tags, Throwable exception) {
+            Timer.Builder builder = Timer.builder(metricName);
+            tags.forEach(builder::tag);
+            builder.tag("exception", exception == null ? "none" : exception.getClass().getSimpleName());
+            builder.register(registry).record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.dpk.helper.timing.micrometer;
+
+import com.dpk.helper.timing.aop.Measurement;
+import com.dpk.helper.timing.aop.MeterId;
+import com.dpk.helper.timing.aop.MetricsReporter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link MetricsReporter} that records into a Micrometer {@link MeterRegistry}.
+ *
+ * <p>Registering a meter by name and tags hashes the name and every tag, so
+ * an adapter that calls {@code Timer.builder(name).tags(...).register(registry)}
+ * per call pays for that on every invocation. This reporter resolves the
+ * meters of each call site once, keyed by the site {@link MeterId} (name and
+ * static tags), whose hash is precomputed. For sites with dynamic tags, a
+ * per-site map keyed by the call's id only compares the dynamic values. The
+ * registry is only consulted the first time a series is seen.
+ *
+ * <p>Durations are recorded in a {@link Timer} named after the metric, tagged
+ * {@code exception} with the simple class name of the exception, or
+ * {@code none} on success, like Micrometer's own {@code @Timed} support.
+ * Values reported through {@link #reportValue} go to a meter named
+ * {@code <metric>.<measurement key>}: a {@link Timer} for durations, a
+ * {@link Counter} for call counts and a {@link DistributionSummary} otherwise.
+ * Percentile histograms and SLOs are left to the registry's
+ * {@code MeterFilter}s.
+ *
+ * <p>A sampled measurement is recorded once, whatever its weight, so the
+ * {@link Timer} of a sampled site counts the timed calls only. The number of
+ * calls they stand for goes to a {@link Counter} named
+ * {@code <metric>.calls}, with the same tags as the timer, incremented by the
+ * sample weight. The counter is registered with the first weight other than
+ * 1 and starts from the timer's count, so unsampled sites do not get one.
+ * Value meters other than call counts also hold one record per timed call.
+ *
+ * <p>Each site caches at most {@code maxSeriesPerSite} dynamic tag
+ * combinations. Further combinations are still recorded, but looked up in the
+ * registry on every call. Limit tag cardinality upstream with
+ * {@link com.dpk.helper.timing.aop.CardinalityLimitingMetricsReporter}.
+ */
+public class MicrometerMetricsReporter implements MetricsReporter {
+
+    private static final Logger log = LoggerFactory.getLogger(MicrometerMetricsReporter.class);
+
+    public static final int DEFAULT_MAX_SERIES_PER_SITE = 1_000;
+
+    static final String EXCEPTION_TAG = "exception";
+    static final String NO_EXCEPTION = "none";
+
+    private static final Measurement[] MEASUREMENTS = Measurement.values();
+
+    private final MeterRegistry registry;
+    private final int maxSeriesPerSite;
+    private final ConcurrentMap<MeterId, Site> sites = new ConcurrentHashMap<>();
+
+    public MicrometerMetricsReporter(MeterRegistry registry) {
+        this(registry, DEFAULT_MAX_SERIES_PER_SITE);
+    }
+
+    public MicrometerMetricsReporter(MeterRegistry registry, int maxSeriesPerSite) {
+        if (maxSeriesPerSite < 0) {
+            throw new IllegalArgumentException("maxSeriesPerSite must not be negative: " + maxSeriesPerSite);
+        }
+        this.registry = registry;
+        this.maxSeriesPerSite = maxSeriesPerSite;
+    }
+
+    /**
+     * Records without caching, since there is no site to key the meters by.
+     * {@link com.dpk.helper.timing.aop.TimedAspect} always reports through
+     * {@link #report(MeterId, long, Throwable, double)}.
+     */
+    @Override
+    public void report(String metricName, long durationNanos, Map<String, String> tags, Throwable exception) {
+        Tags micrometerTags = toTags(tags).and(EXCEPTION_TAG, exceptionName(exception));
+        Timer.builder(metricName).tags(micrometerTags).register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception) {
+        report(id, durationNanos, exception, 1.0);
+    }
+
+    @Override
+    public void report(MeterId id, long durationNanos, Throwable exception, double sampleWeight) {
+        Series series = series(id);
+        Outcome outcome = exception == null ? series.success() : series.failure(exception);
+        outcome.record(durationNanos, sampleWeight);
+    }
+
+    @Override
+    public void reportValue(MeterId id, Measurement measurement, long value, double sampleWeight) {
+        Meter meter = series(id).value(measurement);
+        if (meter instanceof Counter counter) {
+            counter.increment(value * sampleWeight);
+        } else if (meter instanceof Timer timer) {
+            timer.record(value, TimeUnit.NANOSECONDS);
+        } else {
+            ((DistributionSummary) meter).record(value);
+        }
+    }
+
+    private Series series(MeterId id) {
+        MeterId siteId = id.getSite();
+        Site site = sites.get(siteId);
+        if (site == null) {
+            site = sites.computeIfAbsent(siteId, Site::new);
+        }
+        return id.isSite() ? site.siteSeries() : site.dynamicSeries(id);
+    }
+
+    private static Tags toTags(Map<String, String> tags) {
+        Tags result = Tags.empty();
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            result = result.and(tag.getKey(), tag.getValue());
+        }
+        return result;
+    }
+
+    private static String exceptionName(Throwable exception) {
+        if (exception == null) {
+            return NO_EXCEPTION;
+        }
+        String name = exception.getClass().getSimpleName();
+        return name.isEmpty() ? exception.getClass().getName() : name;
+    }
+
+    /**
+     * Meters of one call site: the series of the site id itself, and one per
+     * dynamic tag combination seen.
+     */
+    private final class Site {
+
+        private final MeterId id;
+        private final ConcurrentMap<MeterId, Series> dynamic = new ConcurrentHashMap<>();
+        // Created on first use: a site with dynamic tags never reports its own id
+        private volatile Series siteSeries;
+        private volatile boolean overflowLogged;
+
+        Site(MeterId id) {
+            this.id = id;
+        }
+
+        Series siteSeries() {
+            Series series = siteSeries;
+            if (series == null) {
+                series = new Series(id);
+                siteSeries = series;
+            }
+            return series;
+        }
+
+        Series dynamicSeries(MeterId callId) {
+            Series series = dynamic.get(callId);
+            if (series != null) {
+                return series;
+            }
+            if (dynamic.size() >= maxSeriesPerSite) {
+                if (!overflowLogged) {
+                    overflowLogged = true;
+                    log.warn("More than {} tag combinations for [{}]; further ones are not cached",
+                            maxSeriesPerSite, id.getName());
+                }
+                return new Series(callId);
+            }
+            return dynamic.computeIfAbsent(callId, Series::new);
+        }
+    }
+
+    /**
+     * Meters of one series, that is one metric name and full tag set.
+     */
+    private final class Series {
+
+        private final String name;
+        private final Tags tags;
+        private final ConcurrentMap<Class<?>, Outcome> failures = new ConcurrentHashMap<>();
+        private final AtomicReferenceArray<Meter> values = new AtomicReferenceArray<>(MEASUREMENTS.length);
+        private volatile Outcome success;
+
+        Series(MeterId id) {
+            this.name = id.getName();
+            this.tags = toTags(id.getTags());
+        }
+
+        Outcome success() {
+            Outcome outcome = success;
+            if (outcome == null) {
+                outcome = new Outcome(name, tags.and(EXCEPTION_TAG, NO_EXCEPTION));
+                success = outcome;
+            }
+            return outcome;
+        }
+
+        Outcome failure(Throwable exception) {
+            Outcome outcome = failures.get(exception.getClass());
+            if (outcome == null) {
+                outcome = failures.computeIfAbsent(exception.getClass(),
+                        c -> new Outcome(name, tags.and(EXCEPTION_TAG, exceptionName(exception))));
+            }
+            return outcome;
+        }
+
+        Meter value(Measurement measurement) {
+            Meter meter = values.get(measurement.ordinal());
+            if (meter == null) {
+                meter = register(measurement);
+                values.set(measurement.ordinal(), meter);
+            }
+            return meter;
+        }
+
+        private Meter register(Measurement measurement) {
+            String meterName = name + "." + measurement.getKey();
+            if (measurement.isDuration()) {
+                return Timer.builder(meterName).tags(tags).register(registry);
+            }
+            if (measurement.isCallCount()) {
+                return Counter.builder(meterName).tags(tags).baseUnit("calls").register(registry);
+            }
+            DistributionSummary.Builder builder = DistributionSummary.builder(meterName).tags(tags);
+            if (measurement == Measurement.ALLOCATED_BYTES) {
+                builder.baseUnit("bytes");
+            }
+            return builder.register(registry);
+        }
+    }
+
+    /**
+     * Timer of one series and outcome, and the counter of the calls its
+     * sampled records stand for.
+     */
+    private final class Outcome {
+
+        private final String name;
+        private final Tags tags;
+        private final Timer timer;
+        private volatile Counter calls;
+
+        Outcome(String name, Tags tags) {
+            this.name = name;
+            this.tags = tags;
+            this.timer = Timer.builder(name).tags(tags).register(registry);
+        }
+
+        void record(long durationNanos, double sampleWeight) {
+            timer.record(durationNanos, TimeUnit.NANOSECONDS);
+            Counter counter = calls;
+            if (counter == null) {
+                if (sampleWeight == 1.0) {
+                    return;
+                }
+                counter = registerCalls();
+            }
+            counter.increment(sampleWeight);
+        }
+
+        private synchronized Counter registerCalls() {
+            Counter counter = calls;
+            if (counter == null) {
+                counter = Counter.builder(name + ".calls").tags(tags).baseUnit("calls").register(registry);
+                // Every call timed before this one had a weight of 1
+                counter.increment(Math.max(0, timer.count() - 1));
+                calls = counter;
+            }
+            return counter;
+        }
+    }
+}
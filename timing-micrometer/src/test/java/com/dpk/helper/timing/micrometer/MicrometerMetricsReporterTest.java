@@ -0,0 +1,104 @@
+package com.dpk.helper.timing.micrometer;
+
+import com.dpk.helper.timing.aop.Measurement;
+import com.dpk.helper.timing.aop.MeterId;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MicrometerMetricsReporterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerMetricsReporter reporter = new MicrometerMetricsReporter(registry);
+
+    private final MeterId site = MeterId.of("orders.place", Map.of("service", "orders"));
+
+    @Test
+    void success_recordsIntoTimerTaggedNone() {
+        reporter.report(site, 1_000_000, null);
+        reporter.report(site, 3_000_000, null);
+
+        Timer timer = registry.get("orders.place").tags("service", "orders", "exception", "none").timer();
+        assertThat(timer.count()).isEqualTo(2);
+        assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(4.0);
+    }
+
+    @Test
+    void failure_isTaggedWithExceptionSimpleName() {
+        reporter.report(site, 1_000_000, new IllegalStateException("boom"));
+
+        assertThat(registry.get("orders.place").tag("exception", "IllegalStateException").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.find("orders.place").tag("exception", "none").timer()).isNull();
+    }
+
+    @Test
+    void dynamicTags_recordSeparateSeries() {
+        MeterId dynamicSite = MeterId.of("orders.get", Map.of("service", "orders"), "tenant");
+
+        reporter.report(dynamicSite.withDynamicValues("acme"), 1_000, null);
+        reporter.report(dynamicSite.withDynamicValues("acme"), 1_000, null);
+        reporter.report(dynamicSite.withDynamicValues("globex"), 1_000, null);
+
+        assertThat(registry.get("orders.get").tag("tenant", "acme").timer().count()).isEqualTo(2);
+        assertThat(registry.get("orders.get").tag("tenant", "globex").timer().count()).isEqualTo(1);
+        assertThat(registry.find("orders.get").tagKeys("tenant").timers()).hasSize(2);
+    }
+
+    @Test
+    void seriesBeyondCacheLimit_areStillRecorded() {
+        MicrometerMetricsReporter bounded = new MicrometerMetricsReporter(registry, 1);
+        MeterId dynamicSite = MeterId.of("orders.get", Map.of(), "tenant");
+
+        for (String tenant : new String[] {"a", "b", "b", "c"}) {
+            bounded.report(dynamicSite.withDynamicValues(tenant), 1_000, null);
+        }
+
+        assertThat(registry.get("orders.get").tag("tenant", "b").timer().count()).isEqualTo(2);
+        assertThat(registry.find("orders.get").timers()).hasSize(3);
+    }
+
+    @Test
+    void sampleWeight_isCountedBesideTimerRecordedOnce() {
+        reporter.report(site, 1_000_000, null);
+        reporter.report(site, 1_000_000, null, 2.5);
+        reporter.report(site, 1_000_000, null, 4.0);
+
+        assertThat(registry.get("orders.place").timer().count()).isEqualTo(3);
+        assertThat(registry.get("orders.place.calls").tags("service", "orders", "exception", "none")
+                .counter().count()).isEqualTo(7.5);
+    }
+
+    @Test
+    void unsampledSite_hasNoCallsCounter() {
+        reporter.report(site, 1_000_000, null, 1.0);
+
+        assertThat(registry.find("orders.place.calls").counter()).isNull();
+    }
+
+    @Test
+    void values_recordIntoMeterPerMeasurement() {
+        reporter.reportValue(site, Measurement.CPU_TIME_NANOS, 2_000_000, 1.0);
+        reporter.reportValue(site, Measurement.ALLOCATED_BYTES, 4_096, 1.0);
+        reporter.reportValue(site, Measurement.SUCCESS_COUNT, 5, 1.0);
+
+        assertThat(registry.get("orders.place.cpu.time").tags("service", "orders").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isEqualTo(2.0);
+        assertThat(registry.get("orders.place.allocated.bytes").summary().totalAmount()).isEqualTo(4_096);
+        assertThat(registry.get("orders.place.allocated.bytes").summary().getId().getBaseUnit())
+                .isEqualTo("bytes");
+        assertThat(registry.get("orders.place.calls.success").counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    void mapBasedReport_recordsWithoutSite() {
+        reporter.report("legacy", 1_000, Map.of("k", "v"), null);
+
+        assertThat(registry.get("legacy").tags("k", "v", "exception", "none").timer().count()).isEqualTo(1);
+    }
+}